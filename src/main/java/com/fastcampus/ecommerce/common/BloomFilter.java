@@ -0,0 +1,70 @@
+package com.fastcampus.ecommerce.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// answers "definitely absent" or "maybe present" for a set of strings in a few bits per entry,
+// safe for concurrent puts and lookups
+public class BloomFilter {
+
+  private final AtomicLongArray bits;
+  private final long bitCount;
+  private final int hashCount;
+
+  public BloomFilter(long expectedEntries, double falsePositiveRate) {
+    long entries = Math.max(expectedEntries, 1);
+    // optimal sizes for the given rate, see https://en.wikipedia.org/wiki/Bloom_filter
+    long optimalBits = (long) Math.ceil(
+        -entries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    this.bits = new AtomicLongArray(Math.toIntExact((Math.max(optimalBits, 64) + 63) / 64));
+    this.bitCount = bits.length() * 64L;
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / entries * Math.log(2)));
+  }
+
+  public void put(String value) {
+    long hash = hash(value);
+    int first = (int) hash;
+    int second = (int) (hash >>> 32);
+    for (int i = 1; i <= hashCount; i++) {
+      long bit = Integer.toUnsignedLong(first + i * second) % bitCount;
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current = bits.get(word);
+      while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+        current = bits.get(word);
+      }
+    }
+  }
+
+  public boolean mightContain(String value) {
+    long hash = hash(value);
+    int first = (int) hash;
+    int second = (int) (hash >>> 32);
+    for (int i = 1; i <= hashCount; i++) {
+      long bit = Integer.toUnsignedLong(first + i * second) % bitCount;
+      if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public long sizeInBytes() {
+    return bitCount / 8;
+  }
+
+  // 64 bit fnv-1a over the chars with the murmur3 finalizer, split into the two hashes that
+  // derive every probe position
+  private static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,17 @@
+package com.fastcampus.ecommerce.common;
+
+import com.fasterxml.jackson.databind.JavaType;
+import java.io.IOException;
+
+// turns cached values into bytes, the id is stored with every value so any node can read it
+// back whichever codec wrote it
+public interface CacheCodec {
+
+  byte id();
+
+  String name();
+
+  byte[] encode(Object value) throws IOException;
+
+  <T> T decode(byte[] bytes, JavaType type) throws IOException;
+}
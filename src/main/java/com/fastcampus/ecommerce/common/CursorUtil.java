@@ -0,0 +1,31 @@
+package com.fastcampus.ecommerce.common;
+
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// continuation tokens for keyset pagination. The token only carries the sort key of the last
+// row, clients are expected to treat it as opaque. Only the last value may contain the separator
+public class CursorUtil {
+
+  private static final String SEPARATOR = "|";
+
+  public static String encode(String... values) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(String.join(SEPARATOR, values).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static String[] decode(String cursor, int size) {
+    String[] values;
+    try {
+      values = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+          .split("\\" + SEPARATOR, size);
+    } catch (IllegalArgumentException ex) {
+      throw new BadRequestException("Invalid cursor: " + cursor);
+    }
+    if (values.length != size) {
+      throw new BadRequestException("Invalid cursor: " + cursor);
+    }
+    return values;
+  }
+}
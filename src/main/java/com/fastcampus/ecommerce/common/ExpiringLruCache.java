@@ -0,0 +1,146 @@
+package com.fastcampus.ecommerce.common;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+// bounded in-process cache. reads take no lock, they only stamp the entry with its last read, and
+// eviction approximates lru by dropping the stalest of a few sampled entries the way redis does.
+// only a put that overflows the budget serializes on the eviction lock
+public class ExpiringLruCache<K, V> {
+
+  private static final int EVICTION_SAMPLES = 8;
+
+  private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final AtomicLong weight = new AtomicLong();
+  private final Object evictionLock = new Object();
+  private final long maxWeight;
+  private final ToLongFunction<V> weigher;
+  // keeps walking the map across evictions so every region gets sampled, guarded by evictionLock
+  private Iterator<Map.Entry<K, Entry<V>>> evictionHand;
+
+  public ExpiringLruCache(int maxSize) {
+    this(maxSize, value -> 1);
+  }
+
+  // bounded by the summed weight of the values instead of their count
+  public ExpiringLruCache(long maxWeight, ToLongFunction<V> weigher) {
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+  }
+
+  public Optional<V> get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      return Optional.empty();
+    }
+    long now = System.nanoTime();
+    if (entry.expiresAt <= now) {
+      remove(key, entry);
+      return Optional.empty();
+    }
+    entry.lastAccess = now;
+    return Optional.of(entry.value);
+  }
+
+  public void put(K key, V value, Duration ttl) {
+    long valueWeight = weigher.applyAsLong(value);
+    if (valueWeight > maxWeight) {
+      invalidate(key);
+      return;
+    }
+
+    long now = System.nanoTime();
+    Entry<V> previous = entries.put(key, new Entry<>(value, now + ttl.toNanos(), valueWeight, now));
+    weight.addAndGet(previous == null ? valueWeight : valueWeight - previous.weight);
+    if (weight.get() > maxWeight) {
+      evict(key);
+    }
+  }
+
+  public void invalidate(K key) {
+    Entry<V> removed = entries.remove(key);
+    if (removed != null) {
+      weight.addAndGet(-removed.weight);
+    }
+  }
+
+  public void invalidateAll() {
+    // one key at a time so the weight stays in step with puts racing the clear
+    entries.keySet().forEach(this::invalidate);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long weight() {
+    return weight.get();
+  }
+
+  private void evict(K insertedKey) {
+    synchronized (evictionLock) {
+      while (weight.get() > maxWeight) {
+        Map.Entry<K, Entry<V>> victim = null;
+        for (int i = 0; i < EVICTION_SAMPLES; i++) {
+          Map.Entry<K, Entry<V>> candidate = nextCandidate();
+          if (candidate == null) {
+            break;
+          }
+          // the value that triggered the eviction is the most recent one, never its own victim
+          if (candidate.getKey().equals(insertedKey)) {
+            continue;
+          }
+          if (victim == null || candidate.getValue().staleness() < victim.getValue().staleness()) {
+            victim = candidate;
+          }
+        }
+        if (victim == null) {
+          return;
+        }
+        remove(victim.getKey(), victim.getValue());
+      }
+    }
+  }
+
+  private Map.Entry<K, Entry<V>> nextCandidate() {
+    if (evictionHand == null || !evictionHand.hasNext()) {
+      evictionHand = entries.entrySet().iterator();
+      if (!evictionHand.hasNext()) {
+        return null;
+      }
+    }
+    return evictionHand.next();
+  }
+
+  // only drops the entry that was looked at, a concurrent put of the same key survives
+  private void remove(K key, Entry<V> entry) {
+    if (entries.remove(key, entry)) {
+      weight.addAndGet(-entry.weight);
+    }
+  }
+
+  private static final class Entry<V> {
+
+    private final V value;
+    private final long expiresAt;
+    private final long weight;
+    private volatile long lastAccess;
+
+    private Entry(V value, long expiresAt, long weight, long lastAccess) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.weight = weight;
+      this.lastAccess = lastAccess;
+    }
+
+    // expired entries go before anything still live
+    private long staleness() {
+      return expiresAt <= System.nanoTime() ? Long.MIN_VALUE : lastAccess;
+    }
+  }
+}
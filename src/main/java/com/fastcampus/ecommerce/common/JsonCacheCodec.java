@@ -0,0 +1,36 @@
+package com.fastcampus.ecommerce.common;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+
+public class JsonCacheCodec implements CacheCodec {
+
+  public static final byte ID = 1;
+
+  private final ObjectMapper objectMapper;
+
+  public JsonCacheCodec(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public byte id() {
+    return ID;
+  }
+
+  @Override
+  public String name() {
+    return "json";
+  }
+
+  @Override
+  public byte[] encode(Object value) throws IOException {
+    return objectMapper.writeValueAsBytes(value);
+  }
+
+  @Override
+  public <T> T decode(byte[] bytes, JavaType type) throws IOException {
+    return objectMapper.readValue(bytes, type);
+  }
+}
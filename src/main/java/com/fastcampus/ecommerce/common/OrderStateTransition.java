@@ -18,6 +18,7 @@ public class OrderStateTransition {
     VALID_TRANSITIONS.put(OrderStatus.CANCELLED, Set.of());
     VALID_TRANSITIONS.put(OrderStatus.SHIPPED, Set.of());
     VALID_TRANSITIONS.put(OrderStatus.PAYMENT_FAILED, Set.of());
+    VALID_TRANSITIONS.put(OrderStatus.REFUND_REQUIRED, Set.of());
   }
 
   // PENDING & PAID => return true
@@ -8,6 +8,13 @@ import org.springframework.data.domain.Sort.Order;
 
 public class PageUtil {
 
+  // bounds the rows one listing request can read, larger sizes get the largest page instead
+  public static final int MAX_PAGE_SIZE = 100;
+
+  public static int clampPageSize(int size) {
+    return Math.min(size, MAX_PAGE_SIZE);
+  }
+
   public static List<Order> parseSortOrderRequest(String[] sort) {
     List<Sort.Order> orders = new ArrayList<>();
     if (sort[0].contains(",")) {
@@ -0,0 +1,288 @@
+package com.fastcampus.ecommerce.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// an immutable, weighted set of texts answering "the heaviest texts starting with a prefix".
+// the texts are one sorted utf-8 blob, so a million names cost their bytes plus a few arrays
+// instead of a million strings. a max segment tree over the weights finds the top of any prefix
+// range without visiting it. ascii letters compare case insensitively, other bytes as they are
+public final class PrefixIndex {
+
+  public static final PrefixIndex EMPTY = new PrefixIndex(new byte[0], new int[1], new long[0],
+      new long[0]);
+
+  private final byte[] text;
+  // entry i is text[offsets[i], offsets[i + 1])
+  private final int[] offsets;
+  private final long[] ids;
+  private final long[] weights;
+  // tree[size + i] is entry i, every parent holds the heavier of its children
+  private final int[] tree;
+
+  private PrefixIndex(byte[] text, int[] offsets, long[] ids, long[] weights) {
+    this.text = text;
+    this.offsets = offsets;
+    this.ids = ids;
+    this.weights = weights;
+    int size = ids.length;
+    this.tree = new int[2 * size];
+    for (int i = 0; i < size; i++) {
+      tree[size + i] = i;
+    }
+    for (int i = size - 1; i > 0; i--) {
+      tree[i] = heavier(tree[2 * i], tree[2 * i + 1]);
+    }
+  }
+
+  public record Entry(long id, String text, long weight) {
+
+  }
+
+  public static PrefixIndex build(Collection<Entry> entries) {
+    Entry[] items = entries.toArray(Entry[]::new);
+    byte[][] texts = new byte[items.length][];
+    Integer[] order = new Integer[items.length];
+    int totalBytes = 0;
+    for (int i = 0; i < items.length; i++) {
+      texts[i] = items[i].text().getBytes(StandardCharsets.UTF_8);
+      totalBytes += texts[i].length;
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> {
+      int result = compare(texts[a], 0, texts[a].length, texts[b], 0, texts[b].length);
+      return result != 0 ? result : Long.compare(items[a].id(), items[b].id());
+    });
+
+    Writer writer = new Writer(items.length, totalBytes);
+    for (int i : order) {
+      writer.add(items[i].id(), items[i].weight(), texts[i], 0, texts[i].length);
+    }
+    return writer.build();
+  }
+
+  // a copy without the entries of the given ids and with the given entries added, in one pass
+  // over both instead of a rebuild
+  public PrefixIndex withChanges(Set<Long> removedIds, Collection<Entry> addedEntries) {
+    PrefixIndex added = build(addedEntries);
+    int kept = 0;
+    int keptBytes = 0;
+    for (int i = 0; i < size(); i++) {
+      if (!removedIds.contains(ids[i])) {
+        kept++;
+        keptBytes += offsets[i + 1] - offsets[i];
+      }
+    }
+
+    Writer writer = new Writer(kept + added.size(), keptBytes + added.text.length);
+    int i = 0;
+    int j = 0;
+    while (i < size() || j < added.size()) {
+      if (i < size() && removedIds.contains(ids[i])) {
+        i++;
+        continue;
+      }
+      boolean takeAdded = i == size()
+          || (j < added.size() && compareEntries(this, i, added, j) > 0);
+      PrefixIndex source = takeAdded ? added : this;
+      int entry = takeAdded ? j++ : i++;
+      writer.add(source.ids[entry], source.weights[entry], source.text,
+          source.offsets[entry], source.offsets[entry + 1] - source.offsets[entry]);
+    }
+    return writer.build();
+  }
+
+  // at most limit distinct texts starting with prefix, heaviest first, ties in text order
+  public List<String> topByPrefix(String prefix, int limit) {
+    byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+    int from = lowerBound(key);
+    int to = upperBound(key, from);
+    if (from >= to || limit <= 0) {
+      return List.of();
+    }
+
+    // ranges still to pick from, each with the index of its heaviest entry. a pick splits its
+    // range in two, so the ranges never outnumber the picks. duplicate texts cost extra picks
+    // and are bounded so one text repeated across a huge range stays cheap
+    int maxPicks = limit * 4;
+    int[] rangeFrom = new int[maxPicks + 1];
+    int[] rangeTo = new int[maxPicks + 1];
+    int[] rangeTop = new int[maxPicks + 1];
+    int ranges = 1;
+    rangeFrom[0] = from;
+    rangeTo[0] = to;
+    rangeTop[0] = heaviest(from, to);
+
+    int[] picked = new int[limit];
+    int pickedCount = 0;
+    for (int picks = 0; picks < maxPicks && ranges > 0 && pickedCount < limit; picks++) {
+      int best = 0;
+      for (int r = 1; r < ranges; r++) {
+        if (heavier(rangeTop[best], rangeTop[r]) == rangeTop[r]) {
+          best = r;
+        }
+      }
+      int top = rangeTop[best];
+      if (!isPicked(top, picked, pickedCount)) {
+        picked[pickedCount++] = top;
+      }
+
+      int left = rangeFrom[best];
+      int right = rangeTo[best];
+      ranges--;
+      rangeFrom[best] = rangeFrom[ranges];
+      rangeTo[best] = rangeTo[ranges];
+      rangeTop[best] = rangeTop[ranges];
+      if (left < top) {
+        rangeFrom[ranges] = left;
+        rangeTo[ranges] = top;
+        rangeTop[ranges++] = heaviest(left, top);
+      }
+      if (top + 1 < right) {
+        rangeFrom[ranges] = top + 1;
+        rangeTo[ranges] = right;
+        rangeTop[ranges++] = heaviest(top + 1, right);
+      }
+    }
+
+    String[] result = new String[pickedCount];
+    for (int p = 0; p < pickedCount; p++) {
+      result[p] = text(picked[p]);
+    }
+    return Arrays.asList(result);
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  public long sizeInBytes() {
+    return text.length + 4L * offsets.length + 8L * ids.length + 8L * weights.length
+        + 4L * tree.length;
+  }
+
+  private String text(int entry) {
+    return new String(text, offsets[entry], offsets[entry + 1] - offsets[entry],
+        StandardCharsets.UTF_8);
+  }
+
+  private boolean isPicked(int entry, int[] picked, int pickedCount) {
+    int length = offsets[entry + 1] - offsets[entry];
+    for (int p = 0; p < pickedCount; p++) {
+      if (Arrays.equals(text, offsets[entry], offsets[entry] + length, text, offsets[picked[p]],
+          offsets[picked[p] + 1])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // first entry not before the key
+  private int lowerBound(byte[] key) {
+    int low = 0;
+    int high = size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (compare(text, offsets[middle], offsets[middle + 1] - offsets[middle], key, 0,
+          key.length) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  // first entry from low on that does not start with the key
+  private int upperBound(byte[] key, int low) {
+    int high = size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int length = Math.min(offsets[middle + 1] - offsets[middle], key.length);
+      if (length == key.length
+          && compare(text, offsets[middle], length, key, 0, key.length) == 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private int heaviest(int from, int to) {
+    int best = -1;
+    for (int low = from + size(), high = to + size(); low < high; low >>= 1, high >>= 1) {
+      if ((low & 1) == 1) {
+        best = best == -1 ? tree[low] : heavier(best, tree[low]);
+        low++;
+      }
+      if ((high & 1) == 1) {
+        high--;
+        best = best == -1 ? tree[high] : heavier(best, tree[high]);
+      }
+    }
+    return best;
+  }
+
+  private int heavier(int first, int second) {
+    if (weights[first] != weights[second]) {
+      return weights[first] > weights[second] ? first : second;
+    }
+    return Math.min(first, second);
+  }
+
+  private static int compareEntries(PrefixIndex first, int i, PrefixIndex second, int j) {
+    int result = compare(first.text, first.offsets[i], first.offsets[i + 1] - first.offsets[i],
+        second.text, second.offsets[j], second.offsets[j + 1] - second.offsets[j]);
+    return result != 0 ? result : Long.compare(first.ids[i], second.ids[j]);
+  }
+
+  private static int compare(byte[] first, int firstFrom, int firstLength, byte[] second,
+      int secondFrom, int secondLength) {
+    int length = Math.min(firstLength, secondLength);
+    for (int k = 0; k < length; k++) {
+      int a = fold(first[firstFrom + k]);
+      int b = fold(second[secondFrom + k]);
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return firstLength - secondLength;
+  }
+
+  private static int fold(byte value) {
+    int unsigned = value & 0xff;
+    return unsigned >= 'A' && unsigned <= 'Z' ? unsigned + ('a' - 'A') : unsigned;
+  }
+
+  private static final class Writer {
+
+    private final byte[] text;
+    private final int[] offsets;
+    private final long[] ids;
+    private final long[] weights;
+    private int size;
+
+    private Writer(int entries, int bytes) {
+      this.text = new byte[bytes];
+      this.offsets = new int[entries + 1];
+      this.ids = new long[entries];
+      this.weights = new long[entries];
+    }
+
+    private void add(long id, long weight, byte[] source, int from, int length) {
+      System.arraycopy(source, from, text, offsets[size], length);
+      ids[size] = id;
+      weights[size] = weight;
+      offsets[size + 1] = offsets[size] + length;
+      size++;
+    }
+
+    private PrefixIndex build() {
+      return new PrefixIndex(text, offsets, ids, weights);
+    }
+  }
+}
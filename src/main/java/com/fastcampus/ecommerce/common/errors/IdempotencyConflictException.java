@@ -0,0 +1,8 @@
+package com.fastcampus.ecommerce.common.errors;
+
+public class IdempotencyConflictException extends RuntimeException {
+
+  public IdempotencyConflictException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,15 @@
+package com.fastcampus.ecommerce.common.errors;
+
+import java.util.List;
+import lombok.Getter;
+
+@Getter
+public class InsufficientInventoryException extends InventoryException {
+
+  private final List<Long> productIds;
+
+  public InsufficientInventoryException(List<Long> productIds) {
+    super("Insufficient inventory for products " + productIds);
+    this.productIds = productIds;
+  }
+}
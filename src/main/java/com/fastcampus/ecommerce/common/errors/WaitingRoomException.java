@@ -0,0 +1,9 @@
+package com.fastcampus.ecommerce.common.errors;
+
+public class WaitingRoomException extends RuntimeException {
+
+  public WaitingRoomException(String message) {
+    super(message);
+  }
+
+}
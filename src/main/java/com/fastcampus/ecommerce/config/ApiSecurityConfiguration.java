@@ -30,7 +30,7 @@ public class ApiSecurityConfiguration {
         .authorizeHttpRequests(registry -> {
           registry.requestMatchers("/auth/**", "/api-docs/**", "/swagger-ui/**", "/webhook/xendit")
               .permitAll()
-              .requestMatchers("/admin/**").hasAuthority("ROLE_ADMIN")
+              .requestMatchers("/admin/**", "/actuator/**").hasAuthority("ROLE_ADMIN")
               .anyRequest().authenticated();
         }).sessionManagement(configurer -> {
           configurer.sessionCreationPolicy(SessionCreationPolicy.STATELESS);
@@ -53,7 +53,7 @@ public class ApiSecurityConfiguration {
 
     configuration.setAllowedOrigins(List.of("http://localhost:3000"));
     configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE"));
-    configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+    configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Idempotency-Key"));
 
     UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
 
@@ -1,9 +1,14 @@
 package com.fastcampus.ecommerce.config;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.apache.http.HttpHost;
 import org.elasticsearch.client.RestClient;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,11 +30,24 @@ public class ElasticsearchConfig {
 
   @Bean
   public ElasticsearchTransport elasticsearchTransport(RestClient restClient) {
-    return new RestClientTransport(restClient, new JacksonJsonpMapper());
+    // documents carry java time fields, the mapper the client builds on its own has no module
+    // for them
+    ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    return new RestClientTransport(restClient, new JacksonJsonpMapper(objectMapper));
   }
 
   @Bean
   public ElasticsearchClient elasticsearchClient(ElasticsearchTransport elasticsearchTransport) {
     return new ElasticsearchClient(elasticsearchTransport);
   }
+
+  // shares the transport and its connection pool with the blocking client
+  @Bean
+  public ElasticsearchAsyncClient elasticsearchAsyncClient(
+      ElasticsearchTransport elasticsearchTransport) {
+    return new ElasticsearchAsyncClient(elasticsearchTransport);
+  }
 }
@@ -1,7 +1,5 @@
 package com.fastcampus.ecommerce.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,14 +7,13 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
-@RequiredArgsConstructor
 public class RedisConfig {
 
-  private final ObjectMapper objectMapper;
   @Value("${redis.host:localhost}")
   private String redisHost;
   @Value("${redis.port:6379}")
@@ -29,13 +26,22 @@ public class RedisConfig {
     return new LettuceConnectionFactory(configuration);
   }
 
+  // cached values are framed by CacheValueFormat, the template passes the bytes through as is
   @Bean
-  public RedisTemplate<String, Object> redisTemplate(
+  public RedisTemplate<String, byte[]> redisTemplate(
       RedisConnectionFactory redisConnectionFactory) {
-    RedisTemplate<String, Object> template = new RedisTemplate<>();
+    RedisTemplate<String, byte[]> template = new RedisTemplate<>();
     template.setConnectionFactory(redisConnectionFactory);
     template.setKeySerializer(new StringRedisSerializer());
-    template.setValueSerializer(new GenericJackson2JsonRedisSerializer(objectMapper));
+    template.setValueSerializer(RedisSerializer.byteArray());
     return template;
   }
+
+  @Bean
+  public RedisMessageListenerContainer redisMessageListenerContainer(
+      RedisConnectionFactory redisConnectionFactory) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(redisConnectionFactory);
+    return container;
+  }
 }
@@ -3,12 +3,14 @@ package com.fastcampus.ecommerce.config.middleware;
 import com.fastcampus.ecommerce.common.errors.BadRequestException;
 import com.fastcampus.ecommerce.common.errors.EmailAlreadyExistsException;
 import com.fastcampus.ecommerce.common.errors.ForbiddenAccessException;
+import com.fastcampus.ecommerce.common.errors.IdempotencyConflictException;
 import com.fastcampus.ecommerce.common.errors.InvalidPasswordException;
 import com.fastcampus.ecommerce.common.errors.InventoryException;
 import com.fastcampus.ecommerce.common.errors.ResourceNotFoundException;
 import com.fastcampus.ecommerce.common.errors.RoleNotFoundException;
 import com.fastcampus.ecommerce.common.errors.UserNotFoundException;
 import com.fastcampus.ecommerce.common.errors.UsernameAlreadyExistsException;
+import com.fastcampus.ecommerce.common.errors.WaitingRoomException;
 import com.fastcampus.ecommerce.model.ErrorResponse;
 import io.github.resilience4j.ratelimiter.RequestNotPermitted;
 import io.jsonwebtoken.ExpiredJwtException;
@@ -55,7 +57,7 @@ public class GenericExceptionHandler {
   @ExceptionHandler({BadRequestException.class, InventoryException.class})
   @ResponseStatus(HttpStatus.BAD_REQUEST)
   public @ResponseBody ErrorResponse handleBadRequestException(HttpServletRequest req,
-      BadRequestException exception) {
+      RuntimeException exception) {
     return ErrorResponse.builder()
         .code(HttpStatus.BAD_REQUEST.value())
         .message(exception.getMessage())
@@ -124,7 +126,8 @@ public class GenericExceptionHandler {
 
   @ExceptionHandler({
       UsernameAlreadyExistsException.class,
-      EmailAlreadyExistsException.class
+      EmailAlreadyExistsException.class,
+      IdempotencyConflictException.class
   })
   @ResponseStatus(HttpStatus.CONFLICT)
   public @ResponseBody ErrorResponse handleConflictException(HttpServletRequest req,
@@ -147,7 +150,7 @@ public class GenericExceptionHandler {
         .build();
   }
 
-  @ExceptionHandler(RequestNotPermitted.class)
+  @ExceptionHandler({RequestNotPermitted.class, WaitingRoomException.class})
   @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
   public @ResponseBody ErrorResponse handleRateLimitException(HttpServletRequest req,
       Exception exception) {
@@ -6,9 +6,15 @@ import com.fastcampus.ecommerce.model.CheckoutRequest;
 import com.fastcampus.ecommerce.model.OrderItemResponse;
 import com.fastcampus.ecommerce.model.OrderResponse;
 import com.fastcampus.ecommerce.model.OrderStatus;
+import com.fastcampus.ecommerce.model.OrderStatusResponse;
 import com.fastcampus.ecommerce.model.PaginatedOrderResponse;
+import com.fastcampus.ecommerce.model.QueueTicketRequest;
+import com.fastcampus.ecommerce.model.QueueTicketResponse;
 import com.fastcampus.ecommerce.model.UserInfo;
+import com.fastcampus.ecommerce.service.CheckoutService;
+import com.fastcampus.ecommerce.service.IdempotencyService;
 import com.fastcampus.ecommerce.service.OrderService;
+import com.fastcampus.ecommerce.service.WaitingRoomService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import java.util.List;
@@ -26,6 +32,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -37,18 +44,52 @@ import org.springframework.web.bind.annotation.RestController;
 public class OrderController {
 
   private final OrderService orderService;
+  private final CheckoutService checkoutService;
+  private final WaitingRoomService waitingRoomService;
+  private final IdempotencyService idempotencyService;
 
   @PostMapping("/checkout")
   public ResponseEntity<OrderResponse> checkout(
+      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
       @Valid @RequestBody CheckoutRequest checkoutRequest) {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     UserInfo userInfo = (UserInfo) authentication.getPrincipal();
 
     checkoutRequest.setUserId(userInfo.getUser().getUserId());
-    OrderResponse orderResponse = orderService.checkout(checkoutRequest);
+    if (idempotencyKey == null) {
+      OrderResponse orderResponse = checkoutService.checkout(checkoutRequest);
+      return ResponseEntity.ok(orderResponse);
+    }
+
+    // retries with the same key get the stored response instead of placing another order
+    OrderResponse orderResponse = idempotencyService.execute(
+        "checkout:" + checkoutRequest.getUserId(), idempotencyKey, checkoutRequest,
+        OrderResponse.class, () -> checkoutService.checkout(checkoutRequest));
     return ResponseEntity.ok(orderResponse);
   }
 
+  @PostMapping("/queue")
+  public ResponseEntity<QueueTicketResponse> joinQueue(
+      @Valid @RequestBody QueueTicketRequest queueTicketRequest) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    UserInfo userInfo = (UserInfo) authentication.getPrincipal();
+
+    QueueTicketResponse ticket = waitingRoomService.join(userInfo.getUser().getUserId(),
+        queueTicketRequest.getProductId());
+    return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket);
+  }
+
+  // polled by clients in the waiting room, answered from redis only
+  @GetMapping("/queue/{ticketId}")
+  public ResponseEntity<QueueTicketResponse> findQueueTicket(@PathVariable String ticketId) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    UserInfo userInfo = (UserInfo) authentication.getPrincipal();
+
+    return waitingRoomService.findTicket(userInfo.getUser().getUserId(), ticketId)
+        .map(ResponseEntity::ok)
+        .orElse(ResponseEntity.notFound().build());
+  }
+
   @GetMapping("/{orderId}")
   public ResponseEntity<OrderResponse> findOrderById(@PathVariable Long orderId) {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -67,18 +108,45 @@ public class OrderController {
         .orElse(ResponseEntity.notFound().build());
   }
 
+  // polled after checkout until the payment url is available
+  @GetMapping("/{orderId}/status")
+  public ResponseEntity<OrderStatusResponse> findOrderStatus(@PathVariable Long orderId) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    UserInfo userInfo = (UserInfo) authentication.getPrincipal();
+
+    return orderService.findOrderById(orderId)
+        .map(order -> {
+          if (!order.getUserId().equals(userInfo.getUser().getUserId())) {
+            return ResponseEntity
+                .status(HttpStatus.FORBIDDEN)
+                .body(OrderStatusResponse.builder().build());
+          }
+          return ResponseEntity.ok(OrderStatusResponse.fromOrder(order));
+        })
+        .orElse(ResponseEntity.notFound().build());
+  }
+
   @GetMapping("")
   public ResponseEntity<PaginatedOrderResponse> findOrdersByUserId(
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      @RequestParam(defaultValue = "order_id,desc") String[] sort
+      @RequestParam(defaultValue = "order_id,desc") String[] sort,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(value = "include_total", defaultValue = "false") boolean includeTotal
   ) {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     UserInfo userInfo = (UserInfo) authentication.getPrincipal();
 
+    // cursor mode is used once the cursor parameter is sent, an empty cursor is the first page.
+    // pages are always newest first there, sort is only used by page mode
+    if (cursor != null) {
+      return ResponseEntity.ok(orderService.findOrdersByUserIdAndCursor(
+          userInfo.getUser().getUserId(), cursor, size, includeTotal));
+    }
+
     List<Sort.Order> sortOrder = PageUtil.parseSortOrderRequest(sort);
 
-    Pageable pageable = PageRequest.of(page, size, Sort.by(sortOrder));
+    Pageable pageable = PageRequest.of(page, PageUtil.clampPageSize(size), Sort.by(sortOrder));
 
     Page<OrderResponse> userOrders = orderService.findOrdersByUserIdAndPageable(userInfo.getUser()
         .getUserId(), pageable);
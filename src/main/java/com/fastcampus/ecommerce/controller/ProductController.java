@@ -2,6 +2,7 @@ package com.fastcampus.ecommerce.controller;
 
 import com.fastcampus.ecommerce.common.PageUtil;
 import com.fastcampus.ecommerce.model.ActivityType;
+import com.fastcampus.ecommerce.model.CountMode;
 import com.fastcampus.ecommerce.model.PaginatedProductResponse;
 import com.fastcampus.ecommerce.model.ProductRequest;
 import com.fastcampus.ecommerce.model.ProductResponse;
@@ -125,10 +126,19 @@ public class ProductController {
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
       @RequestParam(defaultValue = "product_id,asc") String[] sort,
-      @RequestParam(required = false) String name
+      @RequestParam(required = false) String name,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "NONE") CountMode count
   ) {
     List<Sort.Order> orders = PageUtil.parseSortOrderRequest(sort);
-    Pageable pageable = PageRequest.of(page, size, Sort.by(orders));
+
+    // cursor mode is used once the cursor parameter is sent, an empty cursor is the first page.
+    // it seeks on the first sort column plus product_id instead of skipping rows
+    if (cursor != null) {
+      return ResponseEntity.ok(productService.findByCursor(cursor, size, orders.get(0), name,
+          count));
+    }
+    Pageable pageable = PageRequest.of(page, PageUtil.clampPageSize(size), Sort.by(orders));
     Page<ProductResponse> productResponses;
 
     if (name != null && !name.isEmpty()) {
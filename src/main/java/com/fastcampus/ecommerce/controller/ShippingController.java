@@ -2,14 +2,20 @@ package com.fastcampus.ecommerce.controller;
 
 import com.fastcampus.ecommerce.model.ShippingOrderRequest;
 import com.fastcampus.ecommerce.model.ShippingOrderResponse;
+import com.fastcampus.ecommerce.model.ShippingQuoteRequest;
+import com.fastcampus.ecommerce.model.ShippingQuoteResponse;
 import com.fastcampus.ecommerce.model.ShippingRateRequest;
 import com.fastcampus.ecommerce.model.ShippingRateResponse;
+import com.fastcampus.ecommerce.model.UserInfo;
+import com.fastcampus.ecommerce.service.ShippingQuoteService;
 import com.fastcampus.ecommerce.service.ShippingService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -24,6 +30,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class ShippingController {
 
   private final ShippingService shippingService;
+  private final ShippingQuoteService shippingQuoteService;
 
   @PostMapping("/rate")
   public ResponseEntity<ShippingRateResponse> calculateShippingRate(
@@ -32,6 +39,18 @@ public class ShippingController {
     return ResponseEntity.ok(response);
   }
 
+  // quote for the selected cart items before checkout, one parcel per seller
+  @PostMapping("/quote")
+  public ResponseEntity<ShippingQuoteResponse> quoteCartItems(
+      @Valid @RequestBody ShippingQuoteRequest shippingQuoteRequest) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    UserInfo userInfo = (UserInfo) authentication.getPrincipal();
+
+    shippingQuoteRequest.setUserId(userInfo.getUser().getUserId());
+    ShippingQuoteResponse response = shippingQuoteService.quoteCartItems(shippingQuoteRequest);
+    return ResponseEntity.ok(response);
+  }
+
   @PostMapping("/order")
   public ResponseEntity<ShippingOrderResponse> createShippingOrder(
       @Valid @RequestBody ShippingOrderRequest shippingOrderRequest) {
@@ -0,0 +1,48 @@
+package com.fastcampus.ecommerce.controller.admin;
+
+import com.fastcampus.ecommerce.model.CategoryRequest;
+import com.fastcampus.ecommerce.model.CategoryResponse;
+import com.fastcampus.ecommerce.service.CategoryService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/categories")
+@SecurityRequirement(name = "Bearer")
+@RequiredArgsConstructor
+public class AdminCategoryController {
+
+  private final CategoryService categoryService;
+
+  @PostMapping("")
+  public ResponseEntity<CategoryResponse> createCategory(
+      @RequestBody @Valid CategoryRequest request) {
+    return ResponseEntity
+        .status(HttpStatus.CREATED)
+        .body(categoryService.create(request));
+  }
+
+  @PutMapping("/{id}")
+  public ResponseEntity<CategoryResponse> updateCategory(
+      @RequestBody @Valid CategoryRequest request,
+      @PathVariable(name = "id") Long categoryId
+  ) {
+    return ResponseEntity.ok(categoryService.update(categoryId, request));
+  }
+
+  @DeleteMapping("/{id}")
+  public ResponseEntity<Void> deleteCategory(@PathVariable(name = "id") Long categoryId) {
+    categoryService.delete(categoryId);
+    return ResponseEntity.noContent().build();
+  }
+}
@@ -35,14 +35,23 @@ public class AdminOrderController {
   public ResponseEntity<PaginatedOrderResponse> findOrdersByUserId(
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      @RequestParam(defaultValue = "order_id,desc") String[] sort
+      @RequestParam(defaultValue = "order_id,desc") String[] sort,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(value = "include_total", defaultValue = "false") boolean includeTotal
   ) {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     UserInfo userInfo = (UserInfo) authentication.getPrincipal();
 
+    // cursor mode is used once the cursor parameter is sent, an empty cursor is the first page.
+    // pages are always newest first there, sort is only used by page mode
+    if (cursor != null) {
+      return ResponseEntity.ok(orderService.findOrdersByUserIdAndCursor(
+          userInfo.getUser().getUserId(), cursor, size, includeTotal));
+    }
+
     List<Order> sortOrder = PageUtil.parseSortOrderRequest(sort);
 
-    Pageable pageable = PageRequest.of(page, size, Sort.by(sortOrder));
+    Pageable pageable = PageRequest.of(page, PageUtil.clampPageSize(size), Sort.by(sortOrder));
 
     Page<OrderResponse> userOrders = orderService.findOrdersByUserIdAndPageable(userInfo.getUser()
         .getUserId(), pageable);
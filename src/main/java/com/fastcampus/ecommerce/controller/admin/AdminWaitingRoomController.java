@@ -0,0 +1,32 @@
+package com.fastcampus.ecommerce.controller.admin;
+
+import com.fastcampus.ecommerce.service.WaitingRoomService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/waiting-room")
+@SecurityRequirement(name = "Bearer")
+@RequiredArgsConstructor
+public class AdminWaitingRoomController {
+
+  private final WaitingRoomService waitingRoomService;
+
+  @PutMapping("/products/{productId}")
+  public ResponseEntity<Void> openWaitingRoom(@PathVariable Long productId) {
+    waitingRoomService.open(productId);
+    return ResponseEntity.ok().build();
+  }
+
+  @DeleteMapping("/products/{productId}")
+  public ResponseEntity<Void> closeWaitingRoom(@PathVariable Long productId) {
+    waitingRoomService.close(productId);
+    return ResponseEntity.ok().build();
+  }
+}
@@ -0,0 +1,27 @@
+package com.fastcampus.ecommerce.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "inventory_hold_sync")
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventoryHoldSync {
+
+  @Id
+  @Column(name = "order_id")
+  private Long orderId;
+
+  @Column(name = "synced_at", nullable = false)
+  private LocalDateTime syncedAt;
+}
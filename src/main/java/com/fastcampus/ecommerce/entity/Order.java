@@ -61,6 +61,8 @@ public class Order {
   private String xenditPaymentMethod;
   @Column(name = "xendit_payment_status")
   private String xenditPaymentStatus;
+  @Column(name = "xendit_payment_url")
+  private String xenditPaymentUrl;
 
   @CreationTimestamp
   @Column(name = "created_at", nullable = false, updatable = false)
@@ -0,0 +1,59 @@
+package com.fastcampus.ecommerce.entity;
+
+import com.fastcampus.ecommerce.model.OutboxEventStatus;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+@Entity
+@Table(name = "outbox_event")
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "event_type", nullable = false)
+  @Enumerated(EnumType.STRING)
+  private OutboxEventType eventType;
+
+  // order id or product id depending on the event type
+  @Column(name = "aggregate_id", nullable = false)
+  private Long aggregateId;
+
+  @Column(nullable = false)
+  @Enumerated(EnumType.STRING)
+  private OutboxEventStatus status;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(name = "next_attempt_at", nullable = false)
+  private LocalDateTime nextAttemptAt;
+
+  @Column(name = "last_error")
+  private String lastError;
+
+  @CreationTimestamp
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private LocalDateTime createdAt;
+
+  @Column(name = "processed_at")
+  private LocalDateTime processedAt;
+}
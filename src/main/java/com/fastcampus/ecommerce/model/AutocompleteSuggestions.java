@@ -0,0 +1,18 @@
+package com.fastcampus.ecommerce.model;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AutocompleteSuggestions {
+
+  private List<String> suggestions;
+  // a strategy missed the latency budget or failed, the same query may return more next time
+  private boolean partial;
+}
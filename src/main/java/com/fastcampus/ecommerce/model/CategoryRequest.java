@@ -0,0 +1,22 @@
+package com.fastcampus.ecommerce.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryRequest {
+
+  @NotBlank(message = "Nama kategori tidak boleh kosong")
+  @Size(max = 255, message = "Nama kategori tidak boleh lebih dari 255 karakter")
+  private String name;
+
+  @Size(max = 1000, message = "Deskripsi kategori tidak boleh lebih dari 1000 karakter")
+  private String description;
+}
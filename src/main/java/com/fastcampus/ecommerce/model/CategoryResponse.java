@@ -3,19 +3,18 @@ package com.fastcampus.ecommerce.model;
 import com.fastcampus.ecommerce.entity.Category;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies.SnakeCaseStrategy;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
+// immutable, so the category dictionary hands the same instance to every product
+@Value
 @Builder
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+@Jacksonized
 @JsonNaming(SnakeCaseStrategy.class)
 public class CategoryResponse {
-  private Long categoryId;
-  private String name;
+  Long categoryId;
+  String name;
 
   public static CategoryResponse fromCategory(Category category) {
     return CategoryResponse.builder()
@@ -26,4 +26,7 @@ public class CheckoutRequest {
 
   @NotNull(message = "User Address ID is required")
   private Long userAddressId;
+
+  // one admitted ticket for every selected product behind a waiting room
+  private List<String> queueTicketIds;
 }
@@ -0,0 +1,5 @@
+package com.fastcampus.ecommerce.model;
+
+public enum CountMode {
+  NONE, EXACT, ESTIMATED
+}
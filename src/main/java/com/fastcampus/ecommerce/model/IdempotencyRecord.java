@@ -0,0 +1,23 @@
+package com.fastcampus.ecommerce.model;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies.SnakeCaseStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(SnakeCaseStrategy.class)
+public class IdempotencyRecord {
+
+  private IdempotencyStatus status;
+  private String requestHash;
+  // tells apart two in-flight markers for the same request
+  private String token;
+  // serialized response, only set once completed
+  private String response;
+}
@@ -44,6 +44,7 @@ public class OrderResponse implements Serializable {
         .xenditInvoiceId(order.getXenditInvoiceId())
         .xenditPaymentStatus(order.getXenditPaymentStatus())
         .xenditPaymentMethod(order.getXenditPaymentMethod())
+        .paymentUrl(order.getXenditPaymentUrl())
         .build();
   }
 }
@@ -1,5 +1,5 @@
 package com.fastcampus.ecommerce.model;
 
 public enum OrderStatus {
-  PENDING, CANCELLED, PAYMENT_FAILED, PAID, SHIPPED
+  PENDING, CANCELLED, PAYMENT_FAILED, PAID, SHIPPED, REFUND_REQUIRED
 }
@@ -0,0 +1,32 @@
+package com.fastcampus.ecommerce.model;
+
+import com.fastcampus.ecommerce.entity.Order;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies.SnakeCaseStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(SnakeCaseStrategy.class)
+public class OrderStatusResponse {
+
+  private Long orderId;
+  private OrderStatus status;
+  private String xenditPaymentStatus;
+  // null until the invoice has been created
+  private String paymentUrl;
+
+  public static OrderStatusResponse fromOrder(Order order) {
+    return OrderStatusResponse.builder()
+        .orderId(order.getOrderId())
+        .status(order.getStatus())
+        .xenditPaymentStatus(order.getXenditPaymentStatus())
+        .paymentUrl(order.getXenditPaymentUrl())
+        .build();
+  }
+}
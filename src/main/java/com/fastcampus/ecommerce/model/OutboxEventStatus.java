@@ -0,0 +1,5 @@
+package com.fastcampus.ecommerce.model;
+
+public enum OutboxEventStatus {
+  PENDING, PROCESSED, FAILED
+}
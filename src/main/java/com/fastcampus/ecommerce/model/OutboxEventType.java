@@ -0,0 +1,11 @@
+package com.fastcampus.ecommerce.model;
+
+public enum OutboxEventType {
+  ORDER_INVOICE_CREATION,
+  ORDER_INVOICE_EXPIRATION,
+  ORDER_PAYMENT_SUCCEEDED_EMAIL,
+  ORDER_PAYMENT_FAILED_EMAIL,
+  ORDER_PURCHASE_TRACKING,
+  PRODUCT_REINDEX,
+  PRODUCT_INDEX_DELETION
+}
@@ -14,7 +14,10 @@ public class PaginatedOrderResponse {
   private List<OrderResponse> data;
   private int pageNo;
   private int pageSize;
-  private long totalElements;
-  private int totalPages;
+  // only counted in cursor mode when asked for
+  private Long totalElements;
+  private Integer totalPages;
   private boolean last;
+  // set in cursor mode, pass it back as the cursor to fetch the next page
+  private String nextCursor;
 }
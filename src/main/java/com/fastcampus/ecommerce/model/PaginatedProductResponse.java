@@ -13,7 +13,11 @@ public class PaginatedProductResponse {
   private List<ProductResponse> data;
   private int pageNo;
   private int pageSize;
-  private long totalElements;
-  private int totalPages;
+  // only counted in cursor mode when asked for
+  private Long totalElements;
+  private Integer totalPages;
+  private boolean estimatedTotal;
   private boolean last;
+  // set in cursor mode, pass it back as the cursor to fetch the next page
+  private String nextCursor;
 }
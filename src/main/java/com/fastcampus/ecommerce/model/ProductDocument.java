@@ -55,6 +55,8 @@ public class ProductDocument {
         .weight(product.getWeight())
         .stockQuantity(product.getStockQuantity())
         .userId(product.getUserId())
+        .createdAt(product.getCreatedAt())
+        .updatedAt(product.getUpdatedAt())
         .nameSuggest(product.getName())
         .nameNgram(product.getName())
         .build();
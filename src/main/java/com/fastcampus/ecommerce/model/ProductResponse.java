@@ -44,4 +44,26 @@ public class ProductResponse {
         .categories(categories)
         .build();
   }
+
+  public static ProductResponse fromProductDocument(ProductDocument productDocument) {
+    List<CategoryResponse> categories = productDocument.getCategories() == null ? List.of()
+        : productDocument.getCategories().stream()
+            .map(category -> CategoryResponse.builder()
+                .categoryId(category.getCategoryId())
+                .name(category.getName())
+                .build())
+            .toList();
+    return ProductResponse.builder()
+        .productId(Long.valueOf(productDocument.getId()))
+        .name(productDocument.getName())
+        .description(productDocument.getDescription())
+        .price(productDocument.getPrice())
+        .stockQuantity(productDocument.getStockQuantity())
+        .weight(productDocument.getWeight())
+        .createdAt(productDocument.getCreatedAt())
+        .updatedAt(productDocument.getUpdatedAt())
+        .userId(productDocument.getUserId())
+        .categories(categories)
+        .build();
+  }
 }
@@ -19,4 +19,7 @@ public class ProductSearchRequest {
   private String sortOrder;
   private int page;
   private int size;
+  // cursor mode is used once a cursor is sent, an empty cursor is the first page and page is
+  // ignored
+  private String cursor;
 }
@@ -0,0 +1,51 @@
+package com.fastcampus.ecommerce.model;
+
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
+import com.fastcampus.ecommerce.entity.Product;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// columns product listing can seek on, each one has a (column, product_id) index
+public enum ProductSortColumn {
+  PRODUCT_ID("product_id"),
+  NAME("name"),
+  PRICE("price"),
+  CREATED_AT("created_at");
+
+  private final String column;
+
+  ProductSortColumn(String column) {
+    this.column = column;
+  }
+
+  public String getColumn() {
+    return column;
+  }
+
+  public static ProductSortColumn fromColumn(String column) {
+    for (ProductSortColumn sortColumn : values()) {
+      if (sortColumn.column.equals(column)) {
+        return sortColumn;
+      }
+    }
+    throw new BadRequestException("Products cannot be sorted by " + column);
+  }
+
+  public String cursorValue(Product product) {
+    return switch (this) {
+      case PRODUCT_ID -> String.valueOf(product.getProductId());
+      case NAME -> product.getName();
+      case PRICE -> product.getPrice().toPlainString();
+      case CREATED_AT -> product.getCreatedAt().toString();
+    };
+  }
+
+  public Object parseCursorValue(String value) {
+    return switch (this) {
+      case PRODUCT_ID -> Long.valueOf(value);
+      case NAME -> value;
+      case PRICE -> new BigDecimal(value);
+      case CREATED_AT -> LocalDateTime.parse(value);
+    };
+  }
+}
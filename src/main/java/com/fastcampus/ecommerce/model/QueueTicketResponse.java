@@ -0,0 +1,23 @@
+package com.fastcampus.ecommerce.model;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies.SnakeCaseStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(SnakeCaseStrategy.class)
+public class QueueTicketResponse {
+
+  private String ticketId;
+  private Long productId;
+  private QueueTicketStatus status;
+  // 1 based position in the queue, 0 once the ticket left the queue
+  private long position;
+  private long retryAfterSeconds;
+}
@@ -0,0 +1,7 @@
+package com.fastcampus.ecommerce.model;
+
+// SOURCE builds search results from the indexed document, DATABASE reads every hit through
+// the product cache
+public enum SearchHydrationMode {
+  SOURCE, DATABASE
+}
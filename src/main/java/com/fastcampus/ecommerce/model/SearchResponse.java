@@ -16,6 +16,8 @@ public class SearchResponse<T> {
   private List<T> data;
   private long totalHits;
   private Map<String, List<FacetEntry>> facets;
+  // only in cursor mode, null on the last page
+  private String nextCursor;
 
   @Data
   @Builder
@@ -0,0 +1,36 @@
+package com.fastcampus.ecommerce.model;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies.SnakeCaseStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(SnakeCaseStrategy.class)
+public class ShippingQuoteResponse {
+
+  private List<Parcel> parcels;
+  private BigDecimal totalShippingFee;
+
+  // items of one seller shipped together from the seller default address
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @JsonNaming(SnakeCaseStrategy.class)
+  public static class Parcel {
+
+    private Long sellerId;
+    private List<Long> productIds;
+    private BigDecimal totalWeightInGrams;
+    private BigDecimal shippingFee;
+    private String estimatedDeliveryTime;
+  }
+}
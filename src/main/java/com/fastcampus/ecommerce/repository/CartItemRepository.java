@@ -1,6 +1,7 @@
 package com.fastcampus.ecommerce.repository;
 
 import com.fastcampus.ecommerce.entity.CartItem;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -26,6 +27,12 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
       """, nativeQuery = true)
   Optional<CartItem> findByCartIdAndProductId(Long cartId, Long productId);
 
+  @Query(value = """
+      SELECT DISTINCT product_id FROM cart_items
+      WHERE cart_item_id IN (:cartItemIds)
+      """, nativeQuery = true)
+  List<Long> findProductIdsByCartItemIds(Collection<Long> cartItemIds);
+
   @Modifying
   @Query(value = """
       DELETE FROM cart_items
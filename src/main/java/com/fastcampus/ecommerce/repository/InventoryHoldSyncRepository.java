@@ -0,0 +1,35 @@
+package com.fastcampus.ecommerce.repository;
+
+import com.fastcampus.ecommerce.entity.InventoryHoldSync;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface InventoryHoldSyncRepository extends JpaRepository<InventoryHoldSync, Long> {
+
+  // returns only the orders marked by this call, orders synced before are left out so their
+  // stock is not deducted again. must run in the transaction that deducts the stock
+  @Query(value = """
+      INSERT INTO inventory_hold_sync (order_id, synced_at)
+      SELECT order_id, CURRENT_TIMESTAMP
+      FROM unnest(ARRAY[:orderIds]) AS r(order_id)
+      ON CONFLICT (order_id) DO NOTHING
+      RETURNING order_id
+      """, nativeQuery = true)
+  List<Long> markSynced(@Param("orderIds") Collection<Long> orderIds);
+
+  @Transactional
+  @Modifying
+  @Query(value = """
+      DELETE FROM inventory_hold_sync
+      WHERE synced_at < :before
+      """, nativeQuery = true)
+  int deleteSyncedBefore(@Param("before") LocalDateTime before);
+}
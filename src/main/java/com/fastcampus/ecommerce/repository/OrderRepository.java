@@ -9,7 +9,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -22,6 +24,29 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
       """, nativeQuery = true)
   Page<Order> findByUserIdByPageable(Long userId, Pageable pageable);
 
+  @Query(value = """
+      SELECT * FROM orders
+      WHERE user_id = :userId
+      ORDER BY order_date DESC, order_id DESC
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<Order> findFirstPageByUserId(@Param("userId") Long userId, @Param("limit") int limit);
+
+  // seeks past the last row of the previous page on the (user_id, order_date, order_id) index,
+  // so deep pages cost the same as the first one
+  @Query(value = """
+      SELECT * FROM orders
+      WHERE user_id = :userId
+      AND (order_date, order_id) < (:orderDate, :orderId)
+      ORDER BY order_date DESC, order_id DESC
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<Order> findPageByUserIdAfter(@Param("userId") Long userId,
+      @Param("orderDate") LocalDateTime orderDate, @Param("orderId") Long orderId,
+      @Param("limit") int limit);
+
+  long countByUserId(Long userId);
+
   List<Order> findByStatus(OrderStatus status);
 
   @Query(value = """
@@ -33,5 +58,30 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
   Optional<Order> findByXenditInvoiceId(String xenditInvoiceId);
 
-  List<Order> findByStatusAndOrderDateBefore(OrderStatus orderStatus, LocalDateTime dateTime);
+  // payment notifications hold the row so the expiry job skips the order instead of racing it
+  @Query(value = """
+      SELECT * FROM orders
+      WHERE xendit_invoice_id = :xenditInvoiceId
+      FOR UPDATE
+      """, nativeQuery = true)
+  Optional<Order> findByXenditInvoiceIdWithPessimisticLock(
+      @Param("xenditInvoiceId") String xenditInvoiceId);
+
+  // cancels one bounded page of stale unpaid orders. SKIP LOCKED leaves orders that a payment
+  // notification or a manual cancel is updating right now to the next cycle
+  @Transactional
+  @Query(value = """
+      UPDATE orders
+      SET status = 'CANCELLED', updated_at = CURRENT_TIMESTAMP
+      WHERE status = 'PENDING' AND order_id IN (
+        SELECT order_id FROM orders
+        WHERE status = 'PENDING' AND order_date < :cutoff
+        ORDER BY order_date
+        LIMIT :batchSize
+        FOR UPDATE SKIP LOCKED
+      )
+      RETURNING *
+      """, nativeQuery = true)
+  List<Order> cancelUnpaidOrdersBefore(@Param("cutoff") LocalDateTime cutoff,
+      @Param("batchSize") int batchSize);
 }
@@ -0,0 +1,75 @@
+package com.fastcampus.ecommerce.repository;
+
+import com.fastcampus.ecommerce.entity.OutboxEvent;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+  // claimed events are leased by pushing next_attempt_at forward, so a node that dies while
+  // dispatching only delays them until the lease runs out
+  @Transactional
+  @Query(value = """
+      UPDATE outbox_event
+      SET attempts = attempts + 1, next_attempt_at = :leaseUntil
+      WHERE id IN (
+        SELECT id FROM outbox_event
+        WHERE status = 'PENDING' AND next_attempt_at <= :now
+        ORDER BY next_attempt_at, id
+        LIMIT :batchSize
+        FOR UPDATE SKIP LOCKED
+      )
+      RETURNING *
+      """, nativeQuery = true)
+  List<OutboxEvent> claimBatch(@Param("now") LocalDateTime now,
+      @Param("leaseUntil") LocalDateTime leaseUntil,
+      @Param("batchSize") int batchSize);
+
+  @Transactional
+  @Modifying
+  @Query(value = """
+      UPDATE outbox_event
+      SET status = 'PROCESSED', processed_at = :processedAt, last_error = NULL
+      WHERE id = :id
+      """, nativeQuery = true)
+  int markProcessed(@Param("id") Long id, @Param("processedAt") LocalDateTime processedAt);
+
+  @Transactional
+  @Modifying
+  @Query(value = """
+      UPDATE outbox_event
+      SET status = :status, next_attempt_at = :nextAttemptAt, last_error = :lastError
+      WHERE id = :id
+      """, nativeQuery = true)
+  int markAttemptFailed(@Param("id") Long id, @Param("status") String status,
+      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+      @Param("lastError") String lastError);
+
+  @Query(value = """
+      SELECT MIN(created_at) FROM outbox_event
+      WHERE status = 'PENDING'
+      """, nativeQuery = true)
+  Optional<LocalDateTime> findOldestPendingCreatedAt();
+
+  @Query(value = """
+      SELECT COUNT(*) FROM outbox_event
+      WHERE status = 'PENDING'
+      """, nativeQuery = true)
+  long countPending();
+
+  @Transactional
+  @Modifying
+  @Query(value = """
+      DELETE FROM outbox_event
+      WHERE status = 'PROCESSED' AND processed_at < :processedBefore
+      """, nativeQuery = true)
+  int deleteProcessedBefore(@Param("processedBefore") LocalDateTime processedBefore);
+}
@@ -2,6 +2,7 @@ package com.fastcampus.ecommerce.repository;
 
 import com.fastcampus.ecommerce.entity.ProductCategory;
 import com.fastcampus.ecommerce.entity.ProductCategory.ProductCategoryId;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -16,4 +17,14 @@ public interface ProductCategoryRepository extends JpaRepository<ProductCategory
       WHERE product_id = :productId
       """, nativeQuery = true)
   List<ProductCategory> findCategoriesByProductId(@Param("productId") Long productId);
+
+  boolean existsByIdCategoryId(Long categoryId);
+
+  // each row is [productId, categoryId], one round trip for a whole page of products
+  @Query("""
+      SELECT pc.id.productId, pc.id.categoryId FROM ProductCategory pc
+      WHERE pc.id.productId IN :productIds
+      ORDER BY pc.id.productId, pc.id.categoryId
+      """)
+  List<Object[]> findCategoryIdsByProductIds(@Param("productIds") Collection<Long> productIds);
 }
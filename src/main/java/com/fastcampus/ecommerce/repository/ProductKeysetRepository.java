@@ -0,0 +1,11 @@
+package com.fastcampus.ecommerce.repository;
+
+import com.fastcampus.ecommerce.entity.Product;
+import com.fastcampus.ecommerce.model.ProductSortColumn;
+import java.util.List;
+
+public interface ProductKeysetRepository {
+
+  List<Product> findPageAfter(ProductSortColumn sortColumn, boolean ascending, Object sortValue,
+      Long productId, String name, int limit);
+}
@@ -0,0 +1,59 @@
+package com.fastcampus.ecommerce.repository;
+
+import com.fastcampus.ecommerce.entity.Product;
+import com.fastcampus.ecommerce.model.ProductSortColumn;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import java.util.List;
+
+// the sort column and direction cannot be bound as parameters, so the query is built here from
+// the ProductSortColumn whitelist instead of an @Query per column and direction
+public class ProductKeysetRepositoryImpl implements
+    ProductKeysetRepository {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Product> findPageAfter(ProductSortColumn sortColumn, boolean ascending,
+      Object sortValue, Long productId, String name, int limit) {
+    String column = sortColumn.getColumn();
+    String direction = ascending ? "ASC" : "DESC";
+    boolean tieBreaker = sortColumn != ProductSortColumn.PRODUCT_ID;
+
+    StringBuilder sql = new StringBuilder("SELECT * FROM product WHERE 1 = 1");
+    if (name != null) {
+      sql.append(" AND lower(name) LIKE :name");
+    }
+    // the row comparison seeks straight to the last row of the previous page
+    if (productId != null) {
+      String operator = ascending ? ">" : "<";
+      if (tieBreaker) {
+        sql.append(" AND (").append(column).append(", product_id) ").append(operator)
+            .append(" (:sortValue, :productId)");
+      } else {
+        sql.append(" AND product_id ").append(operator).append(" :productId");
+      }
+    }
+    sql.append(" ORDER BY ").append(column).append(" ").append(direction);
+    if (tieBreaker) {
+      sql.append(", product_id ").append(direction);
+    }
+    sql.append(" LIMIT :limit");
+
+    Query query = entityManager.createNativeQuery(sql.toString(), Product.class);
+    if (name != null) {
+      query.setParameter("name", name);
+    }
+    if (productId != null) {
+      query.setParameter("productId", productId);
+      if (tieBreaker) {
+        query.setParameter("sortValue", sortValue);
+      }
+    }
+    query.setParameter("limit", limit);
+    return query.getResultList();
+  }
+}
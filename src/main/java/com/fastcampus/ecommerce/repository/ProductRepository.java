@@ -2,6 +2,7 @@ package com.fastcampus.ecommerce.repository;
 
 import com.fastcampus.ecommerce.entity.Product;
 import jakarta.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -9,12 +10,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>,
+    ProductKeysetRepository {
 
   // SELECT * FROM products WHERE name like ?;
   @Query(value = """
@@ -36,14 +39,132 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
       """, nativeQuery = true)
   Page<Product> findByPageable(Pageable pageable);
 
+  @Query(value = """
+      SELECT COUNT(*) FROM product
+      WHERE lower("name") like :name
+      """, nativeQuery = true)
+  long countByNameLike(@Param("name") String name);
+
+  // planner statistics kept up to date by autovacuum, -1 until the table is analyzed once
+  @Query(value = """
+      SELECT CAST(reltuples AS BIGINT) FROM pg_class
+      WHERE oid = CAST('product' AS regclass)
+      """, nativeQuery = true)
+  long estimateCount();
+
   @Lock(LockModeType.PESSIMISTIC_WRITE)
   @Query(value = """
       SELECT p FROM Product p WHERE p.id = :id
       """)
   Optional<Product> findByIdWithPessimisticLock(@Param("id") Long id);
 
+  // lock rows in product id order so concurrent checkouts never deadlock each other
+  @Query(value = """
+      SELECT * FROM product
+      WHERE product_id IN (:productIds)
+      ORDER BY product_id
+      FOR UPDATE
+      """, nativeQuery = true)
+  List<Product> findAllByIdWithPessimisticLock(@Param("productIds") Collection<Long> productIds);
+
+  // rows of product_id, stock quantity, read from the table and never from entities the
+  // persistence context already holds
+  @Query(value = """
+      SELECT product_id, stock_quantity FROM product
+      WHERE product_id IN (:productIds)
+      """, nativeQuery = true)
+  List<Object[]> findCurrentStockQuantities(@Param("productIds") Collection<Long> productIds);
+
+  // productIds and quantities are parallel lists, only rows with enough stock are decreased
+  @Query(value = """
+      UPDATE product p
+      SET stock_quantity = p.stock_quantity - r.quantity
+      FROM unnest(ARRAY[:productIds], ARRAY[:quantities]) AS r(product_id, quantity)
+      WHERE p.product_id = r.product_id
+      AND p.stock_quantity >= r.quantity
+      RETURNING p.product_id
+      """, nativeQuery = true)
+  List<Long> decreaseStockIfAvailable(@Param("productIds") List<Long> productIds,
+      @Param("quantities") List<Integer> quantities);
+
+  @Modifying
+  @Query(value = """
+      UPDATE product p
+      SET stock_quantity = p.stock_quantity - r.quantity
+      FROM unnest(ARRAY[:productIds], ARRAY[:quantities]) AS r(product_id, quantity)
+      WHERE p.product_id = r.product_id
+      """, nativeQuery = true)
+  int decreaseStock(@Param("productIds") List<Long> productIds,
+      @Param("quantities") List<Integer> quantities);
+
+  @Modifying
+  @Query(value = """
+      UPDATE product p
+      SET stock_quantity = p.stock_quantity + r.quantity
+      FROM unnest(ARRAY[:productIds], ARRAY[:quantities]) AS r(product_id, quantity)
+      WHERE p.product_id = r.product_id
+      """, nativeQuery = true)
+  int increaseStock(@Param("productIds") List<Long> productIds,
+      @Param("quantities") List<Integer> quantities);
+
   @Query(value = """
       SELECT * FROM product
       """, nativeQuery = true)
   Stream<Product> streamAll();
+
+  @Query(value = """
+      SELECT product_id FROM product
+      WHERE product_id > :afterId
+      ORDER BY product_id
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<Long> findProductIdsAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+  // rows of productId, updatedAt, stockQuantity
+  @Query(value = """
+      SELECT p.productId, p.updatedAt, p.stockQuantity FROM Product p
+      WHERE p.productId IN :productIds
+      """)
+  List<Object[]> findFreshnessByIds(@Param("productIds") Collection<Long> productIds);
+
+  // rows of product_id, name, view count, purchase count. the activity of the whole batch is
+  // counted in one grouped pass instead of two subqueries per product
+  @Query(value = """
+      WITH batch AS (
+        SELECT product_id, name FROM product
+        WHERE product_id > :afterId
+        ORDER BY product_id
+        LIMIT :limit
+      ), counts AS (
+        SELECT ua.product_id,
+          COUNT(*) FILTER (WHERE ua.activity_type = 'VIEW') AS view_count,
+          COUNT(*) FILTER (WHERE ua.activity_type = 'PURCHASE') AS purchase_count
+        FROM user_activity ua
+        JOIN batch b ON b.product_id = ua.product_id
+        GROUP BY ua.product_id
+      )
+      SELECT b.product_id, b.name, COALESCE(c.view_count, 0), COALESCE(c.purchase_count, 0)
+      FROM batch b
+      LEFT JOIN counts c ON c.product_id = b.product_id
+      ORDER BY b.product_id
+      """, nativeQuery = true)
+  List<Object[]> findSuggestionRowsAfter(@Param("afterId") long afterId,
+      @Param("limit") int limit);
+
+  // rows of product_id, name, view count, purchase count
+  @Query(value = """
+      WITH counts AS (
+        SELECT ua.product_id,
+          COUNT(*) FILTER (WHERE ua.activity_type = 'VIEW') AS view_count,
+          COUNT(*) FILTER (WHERE ua.activity_type = 'PURCHASE') AS purchase_count
+        FROM user_activity ua
+        WHERE ua.product_id IN (:productIds)
+        GROUP BY ua.product_id
+      )
+      SELECT p.product_id, p.name, COALESCE(c.view_count, 0), COALESCE(c.purchase_count, 0)
+      FROM product p
+      LEFT JOIN counts c ON c.product_id = p.product_id
+      WHERE p.product_id IN (:productIds)
+      """, nativeQuery = true)
+  List<Object[]> findSuggestionRowsByIds(@Param("productIds") Collection<Long> productIds);
 }
@@ -1,6 +1,7 @@
 package com.fastcampus.ecommerce.repository;
 
 import com.fastcampus.ecommerce.entity.UserAddress;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -15,6 +16,8 @@ public interface UserAddressRepository extends JpaRepository<UserAddress, Long>
 
   Optional<UserAddress> findByUserIdAndIsDefaultTrue(Long userId);
 
+  List<UserAddress> findByUserIdInAndIsDefaultTrue(Collection<Long> userIds);
+
   @Query(value = """
       UPDATE user_addresses SET is_default = false
       WHERE user_id = :userId
@@ -1,11 +1,13 @@
 package com.fastcampus.ecommerce.repository;
 
 import com.fastcampus.ecommerce.entity.User;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
@@ -26,4 +28,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
       lower(email) LIKE :keyword
       """, nativeQuery = true)
   Page<User> searchUsers(String keyword, Pageable pageable);
+
+  // rows of user_id, username, email in user_id order
+  @Query(value = """
+      SELECT user_id, username, email FROM users
+      WHERE user_id > :afterId
+      ORDER BY user_id
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<Object[]> findLoginKeysAfter(@Param("afterId") long afterId, @Param("limit") int limit);
 }
@@ -1,6 +1,7 @@
 package com.fastcampus.ecommerce.service;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Refresh;
 import co.elastic.clients.elasticsearch.core.BulkRequest;
 import co.elastic.clients.elasticsearch.core.BulkResponse;
 import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
@@ -8,12 +9,11 @@ import com.fastcampus.ecommerce.entity.Category;
 import com.fastcampus.ecommerce.entity.Product;
 import com.fastcampus.ecommerce.model.ActivityType;
 import com.fastcampus.ecommerce.model.ProductDocument;
-import com.fastcampus.ecommerce.repository.CategoryRepository;
-import com.fastcampus.ecommerce.repository.ProductCategoryRepository;
 import com.fastcampus.ecommerce.repository.ProductRepository;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
@@ -29,11 +29,11 @@ public class BulkReindexServiceImpl implements
     BulkReindexService {
 
   private final ElasticsearchClient elasticsearchClient;
-  private final ProductCategoryRepository productCategoryRepository;
-  private final CategoryRepository categoryRepository;
+  private final ProductCategoryLoader productCategoryLoader;
   private final ProductRepository productRepository;
   private final ProductIndexService productIndexService;
   private final UserActivityService userActivityService;
+  private final SearchIndexGeneration searchIndexGeneration;
 
   private static final int BATCH_SIZE = 100;
 
@@ -43,23 +43,11 @@ public class BulkReindexServiceImpl implements
   public void reindexAllProducts() throws IOException {
     long startTime = System.currentTimeMillis();
     AtomicLong totalIndexed = new AtomicLong();
-    List<ProductDocument> batch = new ArrayList<>(BATCH_SIZE);
+    List<Product> batch = new ArrayList<>(BATCH_SIZE);
 
     try (Stream<Product> products = productRepository.streamAll()) {
       products.forEach(product -> {
-        List<Long> categoryIds = productCategoryRepository.findCategoriesByProductId(
-                product.getProductId())
-            .stream().map(productCategory -> productCategory.getId().getCategoryId()).toList();
-        List<Category> categories = categoryRepository.findAllById(categoryIds);
-        ProductDocument productDocument = ProductDocument.fromProductAndCategories(product,
-            categories);
-        Long viewCount = userActivityService.getActivityCount(product.getProductId(),
-            ActivityType.VIEW);
-        Long purchaseCount = userActivityService.getActivityCount(product.getProductId(),
-            ActivityType.PURCHASE);
-        productDocument.setViewCount(viewCount);
-        productDocument.setPurchaseCount(purchaseCount);
-        batch.add(productDocument);
+        batch.add(product);
 
         if (batch.size() >= BATCH_SIZE) {
           try {
@@ -82,10 +70,21 @@ public class BulkReindexServiceImpl implements
         (endTime - startTime));
   }
 
-  private long indexBatch(List<ProductDocument> batch) throws IOException {
+  private long indexBatch(List<Product> batch) throws IOException {
+    // categories of the whole batch come from one query instead of two per product
+    Map<Long, List<Category>> categories = productCategoryLoader.load(
+        batch.stream().map(Product::getProductId).toList());
     BulkRequest.Builder builder = new BulkRequest.Builder();
 
-    for (ProductDocument document : batch) {
+    for (Product product : batch) {
+      ProductDocument document = ProductDocument.fromProductAndCategories(product,
+          categories.get(product.getProductId()));
+      Long viewCount = userActivityService.getActivityCount(product.getProductId(),
+          ActivityType.VIEW);
+      Long purchaseCount = userActivityService.getActivityCount(product.getProductId(),
+          ActivityType.PURCHASE);
+      document.setViewCount(viewCount);
+      document.setPurchaseCount(purchaseCount);
       builder.operations(op ->
           op.update(upd ->
               upd.index(productIndexService.indexName())
@@ -95,7 +94,10 @@ public class BulkReindexServiceImpl implements
                           .doc(document))));
     }
 
-    BulkResponse result = elasticsearchClient.bulk(builder.build());
+    // every batch changes what searches return, so each one is made searchable and moves the
+    // search generation on
+    BulkResponse result = elasticsearchClient.bulk(builder.refresh(Refresh.WaitFor).build());
+    searchIndexGeneration.bump();
 
     if (result.errors()) {
       log.error("Error while performing bulk operations");
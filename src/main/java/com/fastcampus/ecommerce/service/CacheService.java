@@ -2,7 +2,11 @@ package com.fastcampus.ecommerce.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public interface CacheService {
 
@@ -14,5 +18,24 @@ public interface CacheService {
 
   <T> void put(String key, T value, Duration ttl);
 
+  // keys that are not cached are left out of the result
+  <T> Map<String, T> getAll(Collection<String> keys, Class<T> clazz);
+
+  <T> void putAll(Map<String, T> values);
+
+  <T> void putAll(Map<String, T> values, Duration ttl);
+
+  // concurrent misses share one loader call, a null ttl keeps the value until it is evicted.
+  // a loader returning null leaves a short lived tombstone, until it expires or the key is
+  // written again every call returns null without running the loader
+  <T> T getOrLoad(String key, Class<T> clazz, Duration ttl, Supplier<T> loader);
+
+  <T> T getOrLoad(String key, TypeReference<T> clazz, Duration ttl, Supplier<T> loader);
+
+  // a loaded value the predicate rejects, e.g. a result cut short by a timeout, is returned to
+  // this call and the ones waiting on it but never cached, the next miss loads again
+  <T> T getOrLoad(String key, TypeReference<T> clazz, Duration ttl, Supplier<T> loader,
+      Predicate<T> cacheable);
+
   void evict(String key);
 }
@@ -1,65 +1,611 @@
 package com.fastcampus.ecommerce.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fastcampus.ecommerce.common.ExpiringLruCache;
+import com.fastcampus.ecommerce.service.CacheValueFormat.Envelope;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import lombok.RequiredArgsConstructor;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 
+// redis (l2) with an in-process near cache (l1) for the namespaces that can tolerate a few
+// seconds of staleness, writes and evictions are broadcast so every node drops its l1 copy
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class CacheServiceImpl implements CacheService {
+public class CacheServiceImpl implements CacheService, MessageListener {
 
+  public static final String INVALIDATION_CHANNEL = "cache:invalidate";
+  private static final String LOCK_KEY_PREFIX = "cache:lock:";
+  private static final String STALE_KEY_PREFIX = "cache:stale:";
+
+  // KEYS: lock. ARGV: lock token
+  private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = RedisScript.of("""
+      if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+        return 0
+      end
+      return redis.call('DEL', KEYS[1])
+      """, Long.class);
+
+  // locks and broadcasts, values go through cacheRedisTemplate as encoded bytes
   private final RedisTemplate<String, String> redisTemplate;
+  private final RedisTemplate<String, byte[]> cacheRedisTemplate;
+  private final CacheValueFormat cacheValueFormat;
   private final ObjectMapper objectMapper;
+  // l1 keeps the encoded bytes so callers never share a mutable instance
+  private final ExpiringLruCache<String, byte[]> localCache;
+  private final Map<String, Duration> localTtls = new LinkedHashMap<>();
+  private final String nodeId = UUID.randomUUID().toString();
+  private final Counter localHits;
+  private final Counter localMisses;
+  private final Counter redisHits;
+  private final Counter redisMisses;
+  private final Timer localLatency;
+  private final Timer redisLatency;
+  private final Map<String, CompletableFuture<byte[]>> inFlightLoads = new ConcurrentHashMap<>();
+  private final Counter loads;
+  private final Counter coalescedLoads;
+  private final Counter staleLoads;
+  private final Counter waitedLoads;
+  private final Counter earlyRefreshes;
+  private final Counter tombstoneWrites;
+  private final Counter tombstoneHits;
+  private final Counter uncachedLoads;
+  private final Map<String, CachePolicy> policies = new LinkedHashMap<>();
+  private final ExecutorService refreshExecutor;
+
+  @Value("${cache.load.lock-ttl:5s}")
+  private Duration lockTtl;
+
+  @Value("${cache.load.lock-wait:2s}")
+  private Duration lockWait;
+
+  @Value("${cache.load.poll-interval:25ms}")
+  private Duration pollInterval;
+
+  @Value("${cache.load.stale-grace:5m}")
+  private Duration staleGrace;
+
+  @Value("${cache.negative.ttl:30s}")
+  private Duration negativeTtl;
+
+  public CacheServiceImpl(RedisTemplate<String, String> redisTemplate,
+      RedisTemplate<String, byte[]> cacheRedisTemplate, CacheValueFormat cacheValueFormat,
+      ObjectMapper objectMapper, RedisMessageListenerContainer listenerContainer,
+      MeterRegistry meterRegistry,
+      @Value("${cache.local.max-bytes:33554432}") long maxBytes,
+      @Value("${cache.local.ttl.user-roles:30s}") Duration userRolesTtl,
+      @Value("${cache.local.ttl.user:30s}") Duration userTtl,
+      @Value("${cache.local.ttl.suggestion:1m}") Duration suggestionTtl,
+      @Value("${cache.local.ttl.product:30s}") Duration productTtl,
+      @Value("${cache.policy.product.ttl:10m}") Duration productPolicyTtl,
+      @Value("${cache.policy.product.beta:1.0}") double productBeta,
+      @Value("${cache.policy.suggestion.ttl:${suggestion.cache.ttl:1h}}")
+      Duration suggestionPolicyTtl,
+      @Value("${cache.policy.suggestion.beta:1.0}") double suggestionBeta) {
+    this.redisTemplate = redisTemplate;
+    this.cacheRedisTemplate = cacheRedisTemplate;
+    this.cacheValueFormat = cacheValueFormat;
+    this.objectMapper = objectMapper;
+    this.localCache = new ExpiringLruCache<>(maxBytes, value -> value.length);
+    // the first matching prefix wins, so longer prefixes go first
+    this.localTtls.put("cache:user:roles:", userRolesTtl);
+    this.localTtls.put("cache:user:", userTtl);
+    this.localTtls.put("product:", suggestionTtl);
+    this.localTtls.put("products:", productTtl);
+    this.policies.put("product:", new CachePolicy(suggestionPolicyTtl, suggestionBeta));
+    this.policies.put("products:", new CachePolicy(productPolicyTtl, productBeta));
+
+    this.localHits = requests(meterRegistry, "l1", "hit");
+    this.localMisses = requests(meterRegistry, "l1", "miss");
+    this.redisHits = requests(meterRegistry, "l2", "hit");
+    this.redisMisses = requests(meterRegistry, "l2", "miss");
+    this.localLatency = Timer.builder("cache.get.latency")
+        .tag("tier", "l1")
+        .register(meterRegistry);
+    this.redisLatency = Timer.builder("cache.get.latency")
+        .tag("tier", "l2")
+        .register(meterRegistry);
+    this.loads = loads(meterRegistry, "loaded");
+    this.coalescedLoads = loads(meterRegistry, "coalesced");
+    this.staleLoads = loads(meterRegistry, "stale");
+    this.waitedLoads = loads(meterRegistry, "waited");
+    this.earlyRefreshes = loads(meterRegistry, "early_refresh");
+    this.tombstoneWrites = loads(meterRegistry, "missing");
+    this.tombstoneHits = loads(meterRegistry, "tombstone");
+    this.uncachedLoads = loads(meterRegistry, "uncached");
+    // refreshes only wait on the database or elasticsearch
+    this.refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    Gauge.builder("cache.local.bytes", localCache, ExpiringLruCache::weight)
+        .register(meterRegistry);
+    listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+  }
 
   @Override
   public <T> Optional<T> get(String key, Class<T> clazz) {
-    String value = redisTemplate.opsForValue().get(key);
-    try {
-      return Optional.ofNullable(objectMapper.readValue(value, clazz));
-    } catch (JsonProcessingException | IllegalArgumentException e) {
-      return Optional.empty();
-    }
+    return Optional.ofNullable(decodeQuietly(key, read(key), objectMapper.constructType(clazz)));
   }
 
   @Override
   public <T> Optional<T> get(String key, TypeReference<T> clazz) {
-    String value = redisTemplate.opsForValue().get(key);
-    try {
-      return Optional.ofNullable(objectMapper.readValue(value, clazz));
-    } catch (JsonProcessingException | IllegalArgumentException e) {
-      return Optional.empty();
-    }
+    return Optional.ofNullable(decodeQuietly(key, read(key), objectMapper.constructType(clazz)));
   }
 
   @Override
   public <T> void put(String key, T value) {
-    try {
-      String jsonValue = objectMapper.writeValueAsString(value);
-      redisTemplate.opsForValue().set(key, jsonValue);
-    } catch (JsonProcessingException e) {
-      throw new RuntimeException(e);
+    // without an explicit ttl the namespace policy decides, keys outside any policy never expire
+    Duration ttl = policy(key).ttl();
+    if (ttl != null) {
+      put(key, value, ttl);
+      return;
     }
+    byte[] storedValue = encode(value, null);
+    cacheRedisTemplate.opsForValue().set(key, storedValue);
+    writeLocal(key, storedValue, null);
   }
 
   @Override
   public <T> void put(String key, T value, Duration ttl) {
-    try {
-      String jsonValue = objectMapper.writeValueAsString(value);
-      redisTemplate.opsForValue().set(key, jsonValue, ttl);
-    } catch (JsonProcessingException e) {
-      throw new RuntimeException(e);
+    byte[] storedValue = encode(value, null);
+    cacheRedisTemplate.opsForValue().set(key, storedValue, ttl);
+    writeLocal(key, storedValue, ttl);
+  }
+
+  @Override
+  public <T> Map<String, T> getAll(Collection<String> keys, Class<T> clazz) {
+    Map<String, byte[]> storedValues = new LinkedHashMap<>();
+    List<String> redisKeys = new ArrayList<>();
+    for (String key : new LinkedHashSet<>(keys)) {
+      Optional<byte[]> localValue = readLocal(key);
+      if (localValue.isPresent()) {
+        storedValues.put(key, localValue.get());
+      } else {
+        redisKeys.add(key);
+      }
+    }
+
+    if (!redisKeys.isEmpty()) {
+      // one MGET for everything the local tier did not have
+      long redisStart = System.nanoTime();
+      List<byte[]> redisValues = cacheRedisTemplate.opsForValue().multiGet(redisKeys);
+      redisLatency.record(Duration.ofNanos(System.nanoTime() - redisStart));
+      for (int i = 0; i < redisKeys.size(); i++) {
+        byte[] value = redisValues == null ? null : redisValues.get(i);
+        if (value == null) {
+          redisMisses.increment();
+          continue;
+        }
+        redisHits.increment();
+        cacheLocally(redisKeys.get(i), value, null);
+        storedValues.put(redisKeys.get(i), value);
+      }
     }
+
+    JavaType type = objectMapper.constructType(clazz);
+    Map<String, T> values = new LinkedHashMap<>();
+    storedValues.forEach((key, storedValue) -> {
+      T value = decodeQuietly(key, storedValue, type);
+      if (value != null) {
+        values.put(key, value);
+      }
+    });
+    return values;
+  }
+
+  @Override
+  public <T> void putAll(Map<String, T> values) {
+    putAll(values, null);
+  }
+
+  @Override
+  public <T> void putAll(Map<String, T> values, Duration ttl) {
+    if (values.isEmpty()) {
+      return;
+    }
+
+    Map<String, byte[]> storedValues = new LinkedHashMap<>();
+    values.forEach((key, value) -> storedValues.put(key, encode(value, null)));
+
+    // the writes and their invalidation broadcasts share one pipelined round trip
+    byte[] channel = INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8);
+    cacheRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+      storedValues.forEach((key, storedValue) -> {
+        Duration keyTtl = ttl != null ? ttl : policy(key).ttl();
+        connection.stringCommands().set(key.getBytes(StandardCharsets.UTF_8), storedValue,
+            keyTtl == null ? Expiration.persistent() : Expiration.from(keyTtl),
+            SetOption.upsert());
+        connection.publish(channel, invalidation(key).getBytes(StandardCharsets.UTF_8));
+      });
+      return null;
+    });
+    storedValues.forEach((key, storedValue) ->
+        cacheLocally(key, storedValue, ttl != null ? ttl : policy(key).ttl()));
+  }
+
+  @Override
+  public <T> T getOrLoad(String key, Class<T> clazz, Duration ttl, Supplier<T> loader) {
+    return getOrLoad(key, objectMapper.constructType(clazz), ttl, loader, value -> true);
+  }
+
+  @Override
+  public <T> T getOrLoad(String key, TypeReference<T> clazz, Duration ttl, Supplier<T> loader) {
+    return getOrLoad(key, objectMapper.constructType(clazz), ttl, loader, value -> true);
+  }
+
+  @Override
+  public <T> T getOrLoad(String key, TypeReference<T> clazz, Duration ttl, Supplier<T> loader,
+      Predicate<T> cacheable) {
+    return getOrLoad(key, objectMapper.constructType(clazz), ttl, loader, cacheable);
   }
 
   @Override
   public void evict(String key) {
-    redisTemplate.delete(key);
+    // the stale copy goes too, it no longer matches what the loader would return
+    cacheRedisTemplate.delete(List.of(key, STALE_KEY_PREFIX + key));
+    localCache.invalidate(key);
+    broadcastInvalidation(key);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    refreshExecutor.shutdown();
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    // message is "<node id>|<key>", a node skips what it sent itself
+    String[] invalidation = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+    if (invalidation.length == 2 && !nodeId.equals(invalidation[0])) {
+      localCache.invalidate(invalidation[1]);
+    }
+  }
+
+  private byte[] read(String key) {
+    Optional<byte[]> localValue = readLocal(key);
+    if (localValue.isPresent()) {
+      return localValue.get();
+    }
+
+    long redisStart = System.nanoTime();
+    byte[] value = cacheRedisTemplate.opsForValue().get(key);
+    redisLatency.record(Duration.ofNanos(System.nanoTime() - redisStart));
+    if (value == null) {
+      redisMisses.increment();
+      return null;
+    }
+    redisHits.increment();
+    cacheLocally(key, value, null);
+    return value;
+  }
+
+  private <T> T getOrLoad(String key, JavaType type, Duration ttl, Supplier<T> loader,
+      Predicate<T> cacheable) {
+    CachePolicy policy = policy(key);
+    Duration loadTtl = ttl != null ? ttl : policy.ttl();
+    byte[] cached = read(key);
+    if (cached != null && cacheValueFormat.isTombstone(cached)) {
+      tombstoneHits.increment();
+      return null;
+    }
+    if (cached != null) {
+      T value = decodeQuietly(key, cached, type);
+      if (value != null) {
+        if (shouldRefreshEarly(cacheValueFormat.envelope(cached), policy.beta())) {
+          refreshInBackground(key, cached, loadTtl, loader, cacheable);
+        }
+        return value;
+      }
+    }
+
+    // concurrent misses on this node wait for the first one instead of loading again
+    CompletableFuture<byte[]> flight = new CompletableFuture<>();
+    CompletableFuture<byte[]> existingFlight = inFlightLoads.putIfAbsent(key, flight);
+    if (existingFlight != null) {
+      coalescedLoads.increment();
+      return decode(awaitFlight(existingFlight), type);
+    }
+
+    try {
+      // a flight that finished between our miss and putIfAbsent has already filled l1
+      Optional<byte[]> filled = localTtl(key) == null ? Optional.empty() : localCache.get(key);
+      byte[] value = filled.isPresent() ? filled.get()
+          : loadAcrossNodes(key, loadTtl, loader, cacheable);
+      flight.complete(value);
+      return decode(value, type);
+    } catch (RuntimeException ex) {
+      flight.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlightLoads.remove(key, flight);
+    }
+  }
+
+  // across nodes only the holder of a short redis lock runs the loader, the others serve the
+  // stale copy meanwhile or wait for the holder to write the key
+  private <T> byte[] loadAcrossNodes(String key, Duration ttl, Supplier<T> loader,
+      Predicate<T> cacheable) {
+    String lockKey = LOCK_KEY_PREFIX + key;
+    String token = UUID.randomUUID().toString();
+    if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, token, lockTtl))) {
+      try {
+        byte[] current = cacheRedisTemplate.opsForValue().get(key);
+        return current != null ? current : load(key, ttl, loader, cacheable);
+      } finally {
+        redisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(lockKey), token);
+      }
+    }
+
+    byte[] stale = cacheRedisTemplate.opsForValue().get(STALE_KEY_PREFIX + key);
+    if (stale != null) {
+      staleLoads.increment();
+      return stale;
+    }
+
+    long deadline = System.nanoTime() + lockWait.toNanos();
+    while (System.nanoTime() < deadline) {
+      try {
+        Thread.sleep(pollInterval.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      byte[] current = cacheRedisTemplate.opsForValue().get(key);
+      if (current != null) {
+        waitedLoads.increment();
+        return current;
+      }
+    }
+    // the lock holder is slow or gone, loading here beats failing the request
+    return load(key, ttl, loader, cacheable);
+  }
+
+  // XFetch: the closer the expiry and the slower the loader, the likelier a hit refreshes early,
+  // so a hot key is reloaded by one caller before it expires instead of by all of them after
+  private boolean shouldRefreshEarly(Envelope envelope, double beta) {
+    if (envelope.expiresAt() == 0 || beta <= 0) {
+      return false;
+    }
+    double gap = -Math.max(envelope.computeMillis(), 1) * beta
+        * Math.log(ThreadLocalRandom.current().nextDouble());
+    return System.currentTimeMillis() + gap >= envelope.expiresAt();
+  }
+
+  // the caller keeps the current value, the reload runs on the refresh executor
+  private <T> void refreshInBackground(String key, byte[] current, Duration ttl,
+      Supplier<T> loader, Predicate<T> cacheable) {
+    CompletableFuture<byte[]> flight = new CompletableFuture<>();
+    if (inFlightLoads.putIfAbsent(key, flight) != null) {
+      return;
+    }
+
+    earlyRefreshes.increment();
+    try {
+      refreshExecutor.execute(() -> {
+        String lockKey = LOCK_KEY_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        byte[] refreshed = current;
+        try {
+          // another node holding the lock is already refreshing this key
+          if (Boolean.TRUE.equals(
+              redisTemplate.opsForValue().setIfAbsent(lockKey, token, lockTtl))) {
+            try {
+              byte[] loaded = load(key, ttl, loader, cacheable);
+              refreshed = loaded != null ? loaded : current;
+            } finally {
+              redisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(lockKey), token);
+            }
+          }
+        } catch (RuntimeException ex) {
+          log.warn("Error while refreshing cache key {}. error message: {}", key,
+              ex.getMessage());
+        } finally {
+          flight.complete(refreshed);
+          inFlightLoads.remove(key, flight);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      flight.complete(current);
+      inFlightLoads.remove(key, flight);
+    }
+  }
+
+  private <T> byte[] load(String key, Duration ttl, Supplier<T> loader,
+      Predicate<T> cacheable) {
+    loads.increment();
+    long loadStart = System.nanoTime();
+    T value = loader.get();
+    if (value != null && !cacheable.test(value)) {
+      // answers this call and the ones coalesced on it, nothing is written to l1 or redis
+      uncachedLoads.increment();
+      return encode(value, Envelope.NONE);
+    }
+    if (value == null) {
+      // remember the miss so repeated lookups of a missing key skip the loader
+      byte[] tombstone = cacheValueFormat.tombstone();
+      cacheRedisTemplate.opsForValue().set(key, tombstone, negativeTtl);
+      writeLocal(key, tombstone, negativeTtl);
+      tombstoneWrites.increment();
+      return tombstone;
+    }
+
+    long now = System.currentTimeMillis();
+    byte[] storedValue = encode(value, new Envelope(now,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart),
+        ttl == null ? 0 : now + ttl.toMillis()));
+    if (ttl == null) {
+      cacheRedisTemplate.opsForValue().set(key, storedValue);
+    } else {
+      // the stale copy outlives the key so there is something to serve while it is reloaded
+      Duration staleTtl = ttl.plus(staleGrace);
+      cacheRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+        connection.stringCommands().set(key.getBytes(StandardCharsets.UTF_8), storedValue,
+            Expiration.from(ttl), SetOption.upsert());
+        connection.stringCommands().set(
+            (STALE_KEY_PREFIX + key).getBytes(StandardCharsets.UTF_8), storedValue,
+            Expiration.from(staleTtl), SetOption.upsert());
+        return null;
+      });
+    }
+    writeLocal(key, storedValue, ttl);
+    return storedValue;
+  }
+
+  private byte[] awaitFlight(CompletableFuture<byte[]> flight) {
+    try {
+      return flight.join();
+    } catch (CompletionException ex) {
+      // the loader's own exception, e.g. not found, reaches every waiting caller unchanged
+      if (ex.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw ex;
+    }
+  }
+
+  private byte[] encode(Object value, Envelope envelope) {
+    try {
+      return cacheValueFormat.encode(value, envelope);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private <T> T decode(byte[] storedValue, JavaType type) {
+    if (storedValue == null) {
+      return null;
+    }
+    try {
+      return cacheValueFormat.decode(storedValue, type);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // a value this node cannot read, e.g. written by a newer format version, counts as a miss
+  private <T> T decodeQuietly(String key, byte[] storedValue, JavaType type) {
+    if (storedValue == null) {
+      return null;
+    }
+    try {
+      return cacheValueFormat.decode(storedValue, type);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Error while reading cached value of {}. error message: {}", key,
+          e.getMessage());
+      return null;
+    }
+  }
+
+  private Optional<byte[]> readLocal(String key) {
+    if (localTtl(key) == null) {
+      return Optional.empty();
+    }
+
+    long localStart = System.nanoTime();
+    Optional<byte[]> localValue = localCache.get(key);
+    localLatency.record(Duration.ofNanos(System.nanoTime() - localStart));
+    if (localValue.isPresent()) {
+      localHits.increment();
+    } else {
+      localMisses.increment();
+    }
+    return localValue;
+  }
+
+  private void writeLocal(String key, byte[] storedValue, Duration ttl) {
+    cacheLocally(key, storedValue, ttl);
+    broadcastInvalidation(key);
+  }
+
+  private void cacheLocally(String key, byte[] storedValue, Duration ttl) {
+    Duration localTtl = localTtl(key);
+    if (localTtl != null) {
+      // an l1 entry never outlives its redis copy
+      localCache.put(key, storedValue,
+          ttl != null && ttl.compareTo(localTtl) < 0 ? ttl : localTtl);
+    }
+  }
+
+  private String invalidation(String key) {
+    return nodeId + "|" + key;
+  }
+
+  private void broadcastInvalidation(String key) {
+    try {
+      redisTemplate.convertAndSend(INVALIDATION_CHANNEL, invalidation(key));
+    } catch (RuntimeException ex) {
+      log.warn("Error while broadcasting cache invalidation. error message: {}",
+          ex.getMessage());
+    }
+  }
+
+  private CachePolicy policy(String key) {
+    for (Map.Entry<String, CachePolicy> namespace : policies.entrySet()) {
+      if (key.startsWith(namespace.getKey())) {
+        return namespace.getValue();
+      }
+    }
+    return CachePolicy.NONE;
+  }
+
+  private Duration localTtl(String key) {
+    for (Map.Entry<String, Duration> namespace : localTtls.entrySet()) {
+      if (key.startsWith(namespace.getKey())) {
+        return namespace.getValue().isZero() ? null : namespace.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static Counter loads(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder("cache.loads")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  private static Counter requests(MeterRegistry meterRegistry, String tier, String result) {
+    return Counter.builder("cache.requests")
+        .tag("tier", tier)
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  private record CachePolicy(Duration ttl, double beta) {
+
+    static final CachePolicy NONE = new CachePolicy(null, 0);
   }
 }
@@ -0,0 +1,179 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.common.CacheCodec;
+import com.fastcampus.ecommerce.common.JsonCacheCodec;
+import com.fastcampus.ecommerce.common.SmileCacheCodec;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// layout of a cached value:
+//   version (1 byte) | codec id (1 byte) | flags (1 byte)
+//   [written at, compute millis, expires at (3 longs) when FLAG_ENVELOPE]
+//   [raw length (int) when FLAG_LZ4]
+//   payload, empty when FLAG_TOMBSTONE
+// values written before this format are plain utf-8 json and are still read
+@Service
+public class CacheValueFormat {
+
+  public static final byte VERSION = 2;
+  private static final byte FLAG_LZ4 = 1;
+  private static final byte FLAG_ENVELOPE = 2;
+  private static final byte FLAG_TOMBSTONE = 4;
+  private static final int HEADER_BYTES = 3;
+  // marker of the string envelope getOrLoad wrote before values were binary
+  private static final byte LEGACY_ENVELOPE_MARKER = 1;
+
+  private final Map<Byte, CacheCodec> codecs;
+  private final CacheCodec writeCodec;
+  private final int compressionThreshold;
+  // the raw length is read from the stored value, it is never trusted past this bound
+  private final int maxRawBytes;
+  private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+  // the safe decompressor never reads or writes outside the buffers it is given, so a corrupt
+  // or hostile value fails instead of reading past the payload
+  private final LZ4SafeDecompressor decompressor =
+      LZ4Factory.fastestInstance().safeDecompressor();
+
+  public CacheValueFormat(ObjectMapper objectMapper,
+      @Value("${cache.codec:smile}") String codec,
+      @Value("${cache.compression.threshold-bytes:1024}") int compressionThreshold,
+      @Value("${cache.compression.max-raw-bytes:16777216}") int maxRawBytes) {
+    this.codecs = List.of(new JsonCacheCodec(objectMapper), new SmileCacheCodec(objectMapper))
+        .stream()
+        .collect(Collectors.toMap(CacheCodec::id, Function.identity()));
+    // every codec is always readable, the setting only picks the one new values are written with
+    this.writeCodec = codecs.values().stream()
+        .filter(candidate -> candidate.name().equalsIgnoreCase(codec))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unknown cache codec: " + codec));
+    this.compressionThreshold = compressionThreshold;
+    this.maxRawBytes = maxRawBytes;
+  }
+
+  public byte[] encode(Object value) throws IOException {
+    return encode(value, null);
+  }
+
+  public byte[] encode(Object value, Envelope envelope) throws IOException {
+    byte[] payload = writeCodec.encode(value);
+    int rawLength = payload.length;
+    byte flags = envelope == null ? 0 : FLAG_ENVELOPE;
+    // a threshold of zero or less turns compression off
+    if (compressionThreshold > 0 && rawLength >= compressionThreshold) {
+      byte[] compressed = compressor.compress(payload);
+      if (compressed.length < rawLength) {
+        payload = compressed;
+        flags |= FLAG_LZ4;
+      }
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES
+        + ((flags & FLAG_ENVELOPE) != 0 ? 3 * Long.BYTES : 0)
+        + ((flags & FLAG_LZ4) != 0 ? Integer.BYTES : 0)
+        + payload.length);
+    buffer.put(VERSION).put(writeCodec.id()).put(flags);
+    if (envelope != null) {
+      buffer.putLong(envelope.writtenAt())
+          .putLong(envelope.computeMillis())
+          .putLong(envelope.expiresAt());
+    }
+    if ((flags & FLAG_LZ4) != 0) {
+      buffer.putInt(rawLength);
+    }
+    return buffer.put(payload).array();
+  }
+
+  // marks a key that was looked up and found missing, see CacheService#getOrLoad
+  public byte[] tombstone() {
+    return new byte[]{VERSION, writeCodec.id(), FLAG_TOMBSTONE};
+  }
+
+  public boolean isTombstone(byte[] stored) {
+    return stored.length >= HEADER_BYTES && stored[0] == VERSION
+        && (stored[2] & FLAG_TOMBSTONE) != 0;
+  }
+
+  public Envelope envelope(byte[] stored) {
+    return parse(stored).envelope();
+  }
+
+  // a tombstone decodes to null
+  public <T> T decode(byte[] stored, JavaType type) throws IOException {
+    if (isTombstone(stored)) {
+      return null;
+    }
+    Frame frame = parse(stored);
+    return frame.codec().decode(frame.payload(), type);
+  }
+
+  private Frame parse(byte[] stored) {
+    // control bytes above our version are newer formats, no json value starts with one
+    if (stored.length > 0 && stored[0] > VERSION && stored[0] < ' ') {
+      throw new IllegalStateException("Cached value was written with a newer format version");
+    }
+    if (stored.length == 0 || stored[0] != VERSION) {
+      return parseLegacy(stored);
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(stored);
+    buffer.get();
+    CacheCodec codec = codecs.get(buffer.get());
+    if (codec == null) {
+      throw new IllegalStateException("Cached value was written with an unknown codec");
+    }
+    byte flags = buffer.get();
+    Envelope envelope = Envelope.NONE;
+    if ((flags & FLAG_ENVELOPE) != 0) {
+      envelope = new Envelope(buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+    if ((flags & FLAG_LZ4) != 0) {
+      int rawLength = buffer.getInt();
+      if (rawLength < 0 || rawLength > maxRawBytes) {
+        throw new IllegalStateException("Cached value has an invalid raw length " + rawLength);
+      }
+      byte[] payload = new byte[rawLength];
+      int decompressed = decompressor.decompress(stored, buffer.position(),
+          stored.length - buffer.position(), payload, 0, rawLength);
+      if (decompressed != rawLength) {
+        throw new IllegalStateException("Cached value is shorter than its raw length");
+      }
+      return new Frame(codec, envelope, payload);
+    }
+    return new Frame(codec, envelope,
+        Arrays.copyOfRange(stored, buffer.position(), stored.length));
+  }
+
+  private Frame parseLegacy(byte[] stored) {
+    CacheCodec json = codecs.get(JsonCacheCodec.ID);
+    if (stored.length == 0 || stored[0] != LEGACY_ENVELOPE_MARKER) {
+      return new Frame(json, Envelope.NONE, stored);
+    }
+    String[] parts = new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8)
+        .split("\\|", 4);
+    return new Frame(json, new Envelope(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+        Long.parseLong(parts[2])), parts[3].getBytes(StandardCharsets.UTF_8));
+  }
+
+  // write time, loader cost and expiry of a value written by getOrLoad, zero when unknown
+  public record Envelope(long writtenAt, long computeMillis, long expiresAt) {
+
+    public static final Envelope NONE = new Envelope(0, 0, 0);
+  }
+
+  private record Frame(CacheCodec codec, Envelope envelope, byte[] payload) {
+
+  }
+}
@@ -1,8 +1,11 @@
 package com.fastcampus.ecommerce.service;
 
+import com.fastcampus.ecommerce.model.AutocompleteSuggestions;
 import com.fasterxml.jackson.core.type.TypeReference;
 import java.time.Duration;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,57 +17,72 @@ import org.springframework.stereotype.Service;
 public class CachedProductAutocompleteServiceImpl implements
     CachedProductAutocompleteService {
 
+  private static final TypeReference<List<String>> SUGGESTIONS_TYPE =
+      new TypeReference<>() {
+      };
+
+  // the partial flag is stored with the suggestions
+  private static final TypeReference<AutocompleteSuggestions> COMBINED_TYPE =
+      new TypeReference<>() {
+      };
+
+  private static final int COMPLETION_SIZE = 3;
+  private static final int COMBINED_SIZE = 5;
+
   private final SearchService searchService;
   private final CacheService cacheService;
+  private final ProductSuggestionIndex productSuggestionIndex;
 
   @Value("${suggestion.cache.ttl}")
   private Duration ttl;
 
   @Override
   public List<String> getAutocomplete(String query) {
+    // prefix matches never leave the node once the suggestion index is built
+    if (productSuggestionIndex.isReady()) {
+      return productSuggestionIndex.suggest(query, COMPLETION_SIZE);
+    }
     String cacheKey = "product:suggestions:" + query;
-    return cacheService.get(cacheKey, new TypeReference<List<String>>() {
-        })
-        .orElseGet(() -> {
-          List<String> autocompletes = searchService.getAutocomplete(query);
-          cacheService.put(cacheKey, autocompletes, ttl);
-          return autocompletes;
-        });
+    return getOrLoad(cacheKey, () -> searchService.getAutocomplete(query));
   }
 
   @Override
   public List<String> getNgramAutocomplete(String query) {
     String cacheKey = "product:ngram:suggestions:" + query;
-    return cacheService.get(cacheKey, new TypeReference<List<String>>() {
-        })
-        .orElseGet(() -> {
-          List<String> autocompletes = searchService.getNgramAutocomplete(query);
-          cacheService.put(cacheKey, autocompletes, ttl);
-          return autocompletes;
-        });
+    return getOrLoad(cacheKey, () -> searchService.getNgramAutocomplete(query));
   }
 
   @Override
   public List<String> getFuzzyAutocomplete(String query) {
     String cacheKey = "product:fuzzy:suggestions:" + query;
-    return cacheService.get(cacheKey, new TypeReference<List<String>>() {
-        })
-        .orElseGet(() -> {
-          List<String> autocompletes = searchService.getFuzzyAutocomplete(query);
-          cacheService.put(cacheKey, autocompletes, ttl);
-          return autocompletes;
-        });
+    return getOrLoad(cacheKey, () -> searchService.getFuzzyAutocomplete(query));
   }
 
   @Override
   public List<String> combinedAutocomplete(String query) {
+    // elasticsearch only fills in the ngram and fuzzy matches a short prefix list leaves room
+    // for, after the in process ones
+    List<String> prefixMatches = List.of();
+    if (productSuggestionIndex.isReady()) {
+      prefixMatches = productSuggestionIndex.suggest(query, COMBINED_SIZE);
+      if (prefixMatches.size() == COMBINED_SIZE) {
+        return prefixMatches;
+      }
+    }
+
     String cacheKey = "product:combined:suggestions:" + query;
-    return cacheService.get(cacheKey, new TypeReference<List<String>>() {
-        })
-        .orElseGet(() -> {
-          List<String> autocompletes = searchService.combinedAutocomplete(query);
-          cacheService.put(cacheKey, autocompletes, ttl);
-          return autocompletes;
-        });
+    // a result cut short by the latency budget answers this call and its coalesced waiters but
+    // is never cached, the next keystroke asks elasticsearch again
+    AutocompleteSuggestions combined = cacheService.getOrLoad(cacheKey, COMBINED_TYPE, ttl,
+        () -> searchService.combinedAutocomplete(query), loaded -> !loaded.isPartial());
+    return Stream.concat(prefixMatches.stream(), combined.getSuggestions().stream())
+        .distinct()
+        .limit(COMBINED_SIZE)
+        .toList();
+  }
+
+  // concurrent misses on the same query share one elasticsearch request
+  private List<String> getOrLoad(String cacheKey, Supplier<List<String>> loader) {
+    return cacheService.getOrLoad(cacheKey, SUGGESTIONS_TYPE, ttl, loader);
   }
 }
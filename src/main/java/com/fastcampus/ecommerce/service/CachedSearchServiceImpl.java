@@ -0,0 +1,219 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.model.ActivityType;
+import com.fastcampus.ecommerce.model.AutocompleteSuggestions;
+import com.fastcampus.ecommerce.model.ProductResponse;
+import com.fastcampus.ecommerce.model.ProductSearchRequest;
+import com.fastcampus.ecommerce.model.SearchResponse;
+import com.fastcampus.ecommerce.model.SearchResponse.FacetEntry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+// caches offset search pages under the current index generation. hits are kept as product ids
+// and read back through the product cache, facets once per filter set for every sort and page
+@Service
+@Primary
+@Slf4j
+public class CachedSearchServiceImpl implements
+    SearchService {
+
+  private static final String SEARCH_HITS_CACHE_KEY = "search:hits:";
+  private static final String SEARCH_FACETS_CACHE_KEY = "search:facets:";
+  private static final TypeReference<Map<String, List<FacetEntry>>> FACETS_TYPE =
+      new TypeReference<>() {
+      };
+
+  private final SearchService searchService;
+  private final ProductService productService;
+  private final CacheService cacheService;
+  private final SearchIndexGeneration searchIndexGeneration;
+  private final ObjectMapper objectMapper;
+  private final Duration hitsTtl;
+  private final Duration facetsTtl;
+  private final int maxPage;
+
+  public CachedSearchServiceImpl(
+      @Qualifier("searchServiceImpl") SearchService searchService,
+      ProductService productService, CacheService cacheService,
+      SearchIndexGeneration searchIndexGeneration, ObjectMapper objectMapper,
+      @Value("${search.cache.hits-ttl:30s}") Duration hitsTtl,
+      @Value("${search.cache.facets-ttl:10m}") Duration facetsTtl,
+      @Value("${search.cache.max-page:5}") int maxPage) {
+    this.searchService = searchService;
+    this.productService = productService;
+    this.cacheService = cacheService;
+    this.searchIndexGeneration = searchIndexGeneration;
+    this.objectMapper = objectMapper;
+    this.hitsTtl = hitsTtl;
+    this.facetsTtl = facetsTtl;
+    this.maxPage = maxPage;
+  }
+
+  @Override
+  public SearchResponse<ProductResponse> search(ProductSearchRequest searchRequest) {
+    return search(searchRequest, true);
+  }
+
+  @Override
+  public SearchResponse<ProductResponse> search(ProductSearchRequest searchRequest,
+      boolean withFacets) {
+    // a cursor reads its own point in time, and deep pages are rarely asked for twice
+    if (searchRequest.getCursor() != null || searchRequest.getPage() > maxPage) {
+      return searchService.search(searchRequest, withFacets);
+    }
+
+    long generation;
+    try {
+      generation = searchIndexGeneration.current();
+    } catch (RuntimeException ex) {
+      // without the generation a cached page could be older than the last write
+      log.warn("Error while reading search index generation. error message: {}",
+          ex.getMessage());
+      return searchService.search(searchRequest, withFacets);
+    }
+
+    ProductSearchRequest canonicalRequest = canonicalize(searchRequest);
+    String hitsKey = SEARCH_HITS_CACHE_KEY + generation + ":" + hash(canonicalRequest);
+    String facetsKey = SEARCH_FACETS_CACHE_KEY + generation + ":"
+        + hash(facetsRequest(canonicalRequest));
+
+    Map<String, List<FacetEntry>> cachedFacets = withFacets ? readFacets(facetsKey) : null;
+    boolean loadFacets = withFacets && cachedFacets == null;
+    // set when this call ran the search itself, its page is already hydrated
+    AtomicReference<SearchResponse<ProductResponse>> loaded = new AtomicReference<>();
+    CachedHits hits = cacheService.getOrLoad(hitsKey, CachedHits.class, hitsTtl, () -> {
+      SearchResponse<ProductResponse> response = searchService.search(canonicalRequest,
+          loadFacets);
+      if (loadFacets && response.getFacets() != null) {
+        cacheService.put(facetsKey, response.getFacets(), facetsTtl);
+      }
+      loaded.set(response);
+      return CachedHits.from(response);
+    });
+
+    SearchResponse<ProductResponse> response = loaded.get();
+    if (response == null) {
+      // product updates show through the product cache without waiting for the generation
+      response = new SearchResponse<>();
+      response.setData(productService.findAllByIds(hits.productIds()));
+      response.setTotalHits(hits.totalHits());
+    }
+    if (withFacets && !loadFacets) {
+      response.setFacets(cachedFacets);
+    } else if (withFacets && response.getFacets() == null) {
+      response.setFacets(cacheService.getOrLoad(facetsKey, FACETS_TYPE, facetsTtl,
+          () -> searchService.search(facetsRequest(canonicalRequest), true).getFacets()));
+    }
+    return response;
+  }
+
+  @Override
+  public SearchResponse<ProductResponse> similarProducts(Long productId) {
+    return searchService.similarProducts(productId);
+  }
+
+  @Override
+  public SearchResponse<ProductResponse> userRecommendation(Long userId,
+      ActivityType activityType) {
+    return searchService.userRecommendation(userId, activityType);
+  }
+
+  @Override
+  public List<String> getAutocomplete(String query) {
+    return searchService.getAutocomplete(query);
+  }
+
+  @Override
+  public List<String> getNgramAutocomplete(String query) {
+    return searchService.getNgramAutocomplete(query);
+  }
+
+  @Override
+  public List<String> getFuzzyAutocomplete(String query) {
+    return searchService.getFuzzyAutocomplete(query);
+  }
+
+  @Override
+  public AutocompleteSuggestions combinedAutocomplete(String query) {
+    return searchService.combinedAutocomplete(query);
+  }
+
+  // requests that return the same page get the same key. name and description use the standard
+  // analyzer so case and spacing of the query do not matter, the category is an exact term
+  static ProductSearchRequest canonicalize(ProductSearchRequest searchRequest) {
+    String query = searchRequest.getQuery() == null ? ""
+        : searchRequest.getQuery().trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    String category = searchRequest.getCategory() == null ? ""
+        : searchRequest.getCategory().trim();
+    String sortBy = searchRequest.getSortBy() == null || searchRequest.getSortBy().isBlank()
+        ? "_score" : searchRequest.getSortBy();
+    return ProductSearchRequest.builder()
+        .query(query.isEmpty() ? null : query)
+        .category(category.isEmpty() ? null : category)
+        .minPrice(searchRequest.getMinPrice())
+        .maxPrice(searchRequest.getMaxPrice())
+        .sortBy(sortBy)
+        // anything but asc sorts descending
+        .sortOrder("asc".equals(searchRequest.getSortOrder()) ? "asc" : "desc")
+        .page(searchRequest.getPage())
+        .size(searchRequest.getSize())
+        .build();
+  }
+
+  // facets only depend on the filters, an empty page of them returns just the aggregation
+  private static ProductSearchRequest facetsRequest(ProductSearchRequest canonicalRequest) {
+    return ProductSearchRequest.builder()
+        .query(canonicalRequest.getQuery())
+        .category(canonicalRequest.getCategory())
+        .minPrice(canonicalRequest.getMinPrice())
+        .maxPrice(canonicalRequest.getMaxPrice())
+        .sortBy("_score")
+        .page(1)
+        .size(0)
+        .build();
+  }
+
+  private Map<String, List<FacetEntry>> readFacets(String facetsKey) {
+    Optional<Map<String, List<FacetEntry>>> facets = Optional.empty();
+    try {
+      facets = cacheService.get(facetsKey, FACETS_TYPE);
+    } catch (RuntimeException ex) {
+      log.warn("Error while reading search facets cache. error message: {}", ex.getMessage());
+    }
+    return facets.orElse(null);
+  }
+
+  private String hash(ProductSearchRequest searchRequest) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(
+          searchRequest)));
+    } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  record CachedHits(List<Long> productIds, long totalHits) {
+
+    static CachedHits from(SearchResponse<ProductResponse> response) {
+      return new CachedHits(response.getData().stream()
+          .map(ProductResponse::getProductId)
+          .toList(), response.getTotalHits());
+    }
+  }
+}
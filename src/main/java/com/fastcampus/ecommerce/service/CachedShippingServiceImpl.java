@@ -0,0 +1,120 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.common.ExpiringLruCache;
+import com.fastcampus.ecommerce.model.ShippingOrderRequest;
+import com.fastcampus.ecommerce.model.ShippingOrderResponse;
+import com.fastcampus.ecommerce.model.ShippingRateRequest;
+import com.fastcampus.ecommerce.model.ShippingRateResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+// caches courier rates per route and weight bucket, everything else goes to the delegate
+@Service
+@Primary
+@Slf4j
+public class CachedShippingServiceImpl implements
+    ShippingService {
+
+  private static final String SHIPPING_RATE_CACHE_KEY = "shipping:rate:";
+
+  private final ShippingService shippingService;
+  private final CacheService cacheService;
+  private final ExpiringLruCache<String, ShippingRateResponse> localCache;
+  private final Counter localHits;
+  private final Counter redisHits;
+  private final Counter misses;
+  private final BigDecimal weightBucketInGrams;
+  private final Duration ttl;
+
+  public CachedShippingServiceImpl(
+      @Qualifier("mockShippingServiceImpl") ShippingService shippingService,
+      CacheService cacheService, MeterRegistry meterRegistry,
+      @Value("${shipping.rate.cache.max-size:10000}") int maxSize,
+      @Value("${shipping.rate.cache.weight-bucket-grams:1000}") int weightBucketInGrams,
+      @Value("${shipping.rate.cache.ttl:1h}") Duration ttl) {
+    this.shippingService = shippingService;
+    this.cacheService = cacheService;
+    this.localCache = new ExpiringLruCache<>(maxSize);
+    this.weightBucketInGrams = BigDecimal.valueOf(weightBucketInGrams);
+    this.ttl = ttl;
+    this.localHits = Counter.builder("shipping.rate.cache.requests")
+        .tag("result", "local_hit")
+        .register(meterRegistry);
+    this.redisHits = Counter.builder("shipping.rate.cache.requests")
+        .tag("result", "redis_hit")
+        .register(meterRegistry);
+    this.misses = Counter.builder("shipping.rate.cache.requests")
+        .tag("result", "miss")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public ShippingRateResponse calculateShippingRate(ShippingRateRequest request) {
+    // every weight in a bucket is quoted as the bucket ceiling, so one entry serves all of them
+    BigDecimal bucket = request.getTotalWeightInGrams()
+        .divide(weightBucketInGrams, 0, RoundingMode.CEILING)
+        .max(BigDecimal.ONE);
+    String cacheKey = SHIPPING_RATE_CACHE_KEY + postalCode(request.getFromAddress()) + ":"
+        + postalCode(request.getToAddress()) + ":" + bucket.toPlainString();
+
+    Optional<ShippingRateResponse> localRate = localCache.get(cacheKey);
+    if (localRate.isPresent()) {
+      localHits.increment();
+      return localRate.get();
+    }
+
+    Optional<ShippingRateResponse> redisRate = Optional.empty();
+    try {
+      redisRate = cacheService.get(cacheKey, ShippingRateResponse.class);
+    } catch (RuntimeException ex) {
+      log.warn("Error while reading shipping rate cache. error message: {}", ex.getMessage());
+    }
+    if (redisRate.isPresent()) {
+      redisHits.increment();
+      localCache.put(cacheKey, redisRate.get(), ttl);
+      return redisRate.get();
+    }
+
+    misses.increment();
+    ShippingRateResponse rate = shippingService.calculateShippingRate(ShippingRateRequest.builder()
+        .fromAddress(request.getFromAddress())
+        .toAddress(request.getToAddress())
+        .totalWeightInGrams(bucket.multiply(weightBucketInGrams))
+        .build());
+    try {
+      cacheService.put(cacheKey, rate, ttl);
+    } catch (RuntimeException ex) {
+      log.warn("Error while writing shipping rate cache. error message: {}", ex.getMessage());
+    }
+    localCache.put(cacheKey, rate, ttl);
+    return rate;
+  }
+
+  @Override
+  public ShippingOrderResponse createShippingOrder(ShippingOrderRequest request) {
+    return shippingService.createShippingOrder(request);
+  }
+
+  @Override
+  public String generateAwbNumber(Long orderId) {
+    return shippingService.generateAwbNumber(orderId);
+  }
+
+  @Override
+  public BigDecimal calculateTotalWeight(Long orderId) {
+    return shippingService.calculateTotalWeight(orderId);
+  }
+
+  private String postalCode(ShippingRateRequest.Address address) {
+    return address == null || address.getPostalCode() == null ? "" : address.getPostalCode();
+  }
+}
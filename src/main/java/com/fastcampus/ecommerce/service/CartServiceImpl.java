@@ -43,7 +43,8 @@ public class CartServiceImpl implements CartService {
           return cartRepository.save(newCart);
         });
 
-    Product product = productRepository.findByIdWithPessimisticLock(productId)
+    // stock is only checked here, reservation happens at checkout so the row is not locked
+    Product product = productRepository.findById(productId)
         .orElseThrow(
             () -> new ResourceNotFoundException("product with id " + productId + " is not found"));
 
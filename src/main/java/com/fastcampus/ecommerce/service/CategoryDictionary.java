@@ -0,0 +1,159 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.common.ExpiringLruCache;
+import com.fastcampus.ecommerce.entity.Category;
+import com.fastcampus.ecommerce.model.CategoryResponse;
+import com.fastcampus.ecommerce.repository.CategoryRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// categories kept in memory as an immutable snapshot, a refresh swaps in a whole new one so
+// readers never see a half built map. Responses are built once per snapshot and shared, the
+// mutable category entity is copied for every caller so changing it never leaks into the
+// snapshot
+@Service
+@Slf4j
+public class CategoryDictionary implements MessageListener {
+
+  public static final String CHANGED_CHANNEL = "category:changed";
+
+  private final CategoryRepository categoryRepository;
+  private final RedisTemplate<String, String> redisTemplate;
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+  // ids that were looked up in the database and not found
+  private final ExpiringLruCache<Long, Boolean> missingCategories = new ExpiringLruCache<>(1024);
+  private final Duration negativeTtl;
+
+  public CategoryDictionary(CategoryRepository categoryRepository,
+      RedisTemplate<String, String> redisTemplate,
+      RedisMessageListenerContainer listenerContainer,
+      @Value("${cache.negative.ttl:30s}") Duration negativeTtl) {
+    this.categoryRepository = categoryRepository;
+    this.redisTemplate = redisTemplate;
+    this.negativeTtl = negativeTtl;
+    listenerContainer.addMessageListener(this, new ChannelTopic(CHANGED_CHANNEL));
+  }
+
+  public Optional<Category> get(Long categoryId) {
+    Entry entry = current().categories().get(categoryId);
+    if (entry != null) {
+      return Optional.of(entry.toCategory());
+    }
+
+    if (missingCategories.get(categoryId).isPresent()) {
+      return Optional.empty();
+    }
+
+    // the change broadcast may not have reached this node yet, only a real category reloads
+    Optional<Category> storedCategory = categoryRepository.findById(categoryId);
+    if (storedCategory.isPresent()) {
+      refresh();
+    } else {
+      missingCategories.put(categoryId, Boolean.TRUE, negativeTtl);
+    }
+    return storedCategory;
+  }
+
+  // the hot path of product listings, a known category allocates nothing
+  public Optional<CategoryResponse> getResponse(Long categoryId) {
+    Entry entry = current().categories().get(categoryId);
+    if (entry != null) {
+      return Optional.of(entry.response());
+    }
+    return get(categoryId).map(CategoryResponse::fromCategory);
+  }
+
+  // the name comes from the snapshot, so a renamed category shows its current name
+  public CategoryResponse toResponse(Category category) {
+    Entry entry = current().categories().get(category.getCategoryId());
+    return entry != null ? entry.response() : CategoryResponse.fromCategory(category);
+  }
+
+  public void refresh() {
+    snapshot.set(Snapshot.of(categoryRepository.findAll()));
+    // a category created since may have one of these ids
+    missingCategories.invalidateAll();
+  }
+
+  // called after a category create, rename or delete commits so every node reloads
+  public void publishChange() {
+    refresh();
+    try {
+      redisTemplate.convertAndSend(CHANGED_CHANNEL, "refresh");
+    } catch (RuntimeException ex) {
+      log.warn("Error while broadcasting category change. error message: {}", ex.getMessage());
+    }
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    try {
+      refresh();
+    } catch (RuntimeException ex) {
+      log.warn("Error while refreshing categories. error message: {}", ex.getMessage());
+    }
+  }
+
+  // picks up changes made straight in the database that were never broadcast
+  @Scheduled(fixedDelayString = "${category.dictionary.refresh-interval-ms:600000}")
+  public void scheduledRefresh() {
+    onMessage(null, null);
+  }
+
+  private Snapshot current() {
+    Snapshot current = snapshot.get();
+    if (current == null) {
+      synchronized (snapshot) {
+        current = snapshot.get();
+        if (current == null) {
+          current = Snapshot.of(categoryRepository.findAll());
+          snapshot.set(current);
+        }
+      }
+    }
+    return current;
+  }
+
+  private record Snapshot(Map<Long, Entry> categories) {
+
+    static Snapshot of(List<Category> categories) {
+      return new Snapshot(Map.copyOf(categories.stream()
+          .collect(Collectors.toMap(Category::getCategoryId, Entry::of))));
+    }
+  }
+
+  private record Entry(Long categoryId, String name, String description,
+                       LocalDateTime createdAt, LocalDateTime updatedAt,
+                       CategoryResponse response) {
+
+    static Entry of(Category category) {
+      return new Entry(category.getCategoryId(), category.getName(), category.getDescription(),
+          category.getCreatedAt(), category.getUpdatedAt(),
+          CategoryResponse.fromCategory(category));
+    }
+
+    Category toCategory() {
+      return Category.builder()
+          .categoryId(categoryId)
+          .name(name)
+          .description(description)
+          .createdAt(createdAt)
+          .updatedAt(updatedAt)
+          .build();
+    }
+  }
+}
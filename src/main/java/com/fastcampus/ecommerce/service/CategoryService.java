@@ -1,9 +1,21 @@
 package com.fastcampus.ecommerce.service;
 
 import com.fastcampus.ecommerce.entity.Category;
+import com.fastcampus.ecommerce.model.CategoryRequest;
+import com.fastcampus.ecommerce.model.CategoryResponse;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface CategoryService {
 
   List<Category> getProductCategories(Long productId);
+
+  Map<Long, List<Category>> getProductCategories(Collection<Long> productIds);
+
+  CategoryResponse create(CategoryRequest categoryRequest);
+
+  CategoryResponse update(Long categoryId, CategoryRequest categoryRequest);
+
+  void delete(Long categoryId);
 }
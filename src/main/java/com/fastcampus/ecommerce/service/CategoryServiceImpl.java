@@ -1,12 +1,21 @@
 package com.fastcampus.ecommerce.service;
 
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
+import com.fastcampus.ecommerce.common.errors.ResourceNotFoundException;
 import com.fastcampus.ecommerce.entity.Category;
+import com.fastcampus.ecommerce.model.CategoryRequest;
+import com.fastcampus.ecommerce.model.CategoryResponse;
 import com.fastcampus.ecommerce.repository.CategoryRepository;
 import com.fastcampus.ecommerce.repository.ProductCategoryRepository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @RequiredArgsConstructor
@@ -14,15 +23,65 @@ import org.springframework.stereotype.Service;
 public class CategoryServiceImpl implements
     CategoryService {
 
-  private final ProductCategoryRepository productCategoryRepository;
+  private final ProductCategoryLoader productCategoryLoader;
   private final CategoryRepository categoryRepository;
+  private final ProductCategoryRepository productCategoryRepository;
+  private final CategoryDictionary categoryDictionary;
 
   @Override
   public List<Category> getProductCategories(Long productId) {
-    List<Long> categoryIds = productCategoryRepository.findCategoriesByProductId(
-            productId)
-        .stream()
-        .map(productCategory -> productCategory.getId().getCategoryId()).toList();
-    return categoryRepository.findAllById(categoryIds);
+    return productCategoryLoader.load(List.of(productId)).get(productId);
+  }
+
+  @Override
+  public Map<Long, List<Category>> getProductCategories(Collection<Long> productIds) {
+    return productCategoryLoader.load(productIds);
+  }
+
+  @Override
+  @Transactional
+  public CategoryResponse create(CategoryRequest categoryRequest) {
+    Category category = categoryRepository.save(Category.builder()
+        .name(categoryRequest.getName())
+        .description(categoryRequest.getDescription())
+        .build());
+    publishChangeAfterCommit();
+    return CategoryResponse.fromCategory(category);
+  }
+
+  @Override
+  @Transactional
+  public CategoryResponse update(Long categoryId, CategoryRequest categoryRequest) {
+    Category category = categoryRepository.findById(categoryId)
+        .orElseThrow(() -> new ResourceNotFoundException(
+            "Category with id " + categoryId + " is not found"));
+    category.setName(categoryRequest.getName());
+    category.setDescription(categoryRequest.getDescription());
+    categoryRepository.save(category);
+    publishChangeAfterCommit();
+    return CategoryResponse.fromCategory(category);
+  }
+
+  @Override
+  @Transactional
+  public void delete(Long categoryId) {
+    Category category = categoryRepository.findById(categoryId)
+        .orElseThrow(() -> new ResourceNotFoundException(
+            "Category with id " + categoryId + " is not found"));
+    if (productCategoryRepository.existsByIdCategoryId(categoryId)) {
+      throw new BadRequestException("Category with id " + categoryId + " still has products");
+    }
+    categoryRepository.delete(category);
+    publishChangeAfterCommit();
+  }
+
+  // other nodes reload from the database, so they are only told once the change is visible
+  private void publishChangeAfterCommit() {
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        categoryDictionary.publishChange();
+      }
+    });
   }
 }
@@ -0,0 +1,9 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.model.CheckoutRequest;
+import com.fastcampus.ecommerce.model.OrderResponse;
+
+public interface CheckoutService {
+
+  OrderResponse checkout(CheckoutRequest checkoutRequest);
+}
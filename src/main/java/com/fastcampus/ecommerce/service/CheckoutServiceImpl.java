@@ -0,0 +1,39 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.model.CheckoutRequest;
+import com.fastcampus.ecommerce.model.OrderResponse;
+import com.fastcampus.ecommerce.repository.CartItemRepository;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+// not transactional on purpose: checkouts rejected by a waiting room during a flash sale never
+// open the checkout transaction, the only database work before admission is one short read
+@Service
+@RequiredArgsConstructor
+public class CheckoutServiceImpl implements CheckoutService {
+
+  private final CartItemRepository cartItemRepository;
+  private final WaitingRoomService waitingRoomService;
+  private final OrderService orderService;
+
+  @Override
+  public OrderResponse checkout(CheckoutRequest checkoutRequest) {
+    List<String> usedTicketIds = List.of();
+    if (waitingRoomService.hasOpenRooms()) {
+      List<Long> productIds = cartItemRepository.findProductIdsByCartItemIds(
+          checkoutRequest.getSelectedCartItemIds());
+      usedTicketIds = waitingRoomService.admit(checkoutRequest.getUserId(),
+          checkoutRequest.getQueueTicketIds() == null ? List.of()
+              : checkoutRequest.getQueueTicketIds(), productIds);
+    }
+
+    try {
+      return orderService.checkout(checkoutRequest);
+    } catch (RuntimeException ex) {
+      // the tickets can be used again when the checkout that consumed them fails
+      waitingRoomService.restoreTickets(usedTicketIds);
+      throw ex;
+    }
+  }
+}
@@ -0,0 +1,276 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.common.BloomFilter;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import com.fastcampus.ecommerce.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// a bloom filter of the keys that exist per namespace, rebuilt from the database on a schedule.
+// a key the filter rejects cannot exist, so the lookup is answered before redis or postgres.
+// until the first build finishes every key passes, and so do numeric ids above the highest id
+// the last build saw, since rows created after it may not have reached this node yet. other keys
+// added since a build started are also kept in a redis sorted set, so a rejected login can still
+// find an account whose broadcast never reached this node
+@Service
+@Slf4j
+public class ExistenceFilter implements MessageListener {
+
+  public static final String ADDED_CHANNEL = "existence:added";
+  public static final String PRODUCTS = "product";
+  // usernames and emails, a login accepts either
+  public static final String USERS = "user";
+  private static final String RECENT_KEY_PREFIX = "existence:recent:";
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final Map<String, Namespace> namespaces;
+  private final MeterRegistry meterRegistry;
+  private final double falsePositiveRate;
+  private final int batchSize;
+  private final long recentRetentionMs;
+  // the scans read every product and user, so they stay off the shared scheduler threads
+  private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(
+      runnable -> new Thread(runnable, "existence-filter-rebuild"));
+  private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+  public ExistenceFilter(ProductRepository productRepository, UserRepository userRepository,
+      RedisTemplate<String, String> redisTemplate,
+      RedisMessageListenerContainer listenerContainer, MeterRegistry meterRegistry,
+      @Value("${cache.existence.false-positive-rate:0.01}") double falsePositiveRate,
+      @Value("${cache.existence.batch-size:10000}") int batchSize,
+      @Value("${cache.existence.rebuild-interval-ms:600000}") long rebuildIntervalMs) {
+    this.redisTemplate = redisTemplate;
+    this.meterRegistry = meterRegistry;
+    this.falsePositiveRate = falsePositiveRate;
+    this.batchSize = batchSize;
+    // two intervals, by then every node has finished a build that started after the key was added
+    this.recentRetentionMs = 2 * rebuildIntervalMs;
+    this.namespaces = Map.of(
+        PRODUCTS, new Namespace(PRODUCTS, true, productRepository::count, sink -> {
+          long afterId = 0;
+          List<Long> productIds;
+          do {
+            productIds = productRepository.findProductIdsAfter(afterId, batchSize);
+            productIds.forEach(productId -> sink.accept(String.valueOf(productId)));
+            afterId = productIds.isEmpty() ? afterId : productIds.get(productIds.size() - 1);
+          } while (productIds.size() == batchSize);
+        }),
+        USERS, new Namespace(USERS, false, () -> 2 * userRepository.count(), sink -> {
+          long afterId = 0;
+          List<Object[]> rows;
+          do {
+            rows = userRepository.findLoginKeysAfter(afterId, batchSize);
+            for (Object[] row : rows) {
+              sink.accept((String) row[1]);
+              sink.accept((String) row[2]);
+              afterId = ((Number) row[0]).longValue();
+            }
+          } while (rows.size() == batchSize);
+        }));
+    listenerContainer.addMessageListener(this, new ChannelTopic(ADDED_CHANNEL));
+  }
+
+  public boolean mightExist(String namespace, String key) {
+    Namespace filter = namespaces.get(namespace);
+    if (filter == null || key == null) {
+      return true;
+    }
+    boolean mightExist = filter.mightContain(key);
+    if (!mightExist) {
+      filter.rejected.increment();
+    }
+    return mightExist;
+  }
+
+  // call once the key is committed so no node rejects it before its next rebuild
+  public void add(String namespace, String key) {
+    Namespace filter = namespaces.get(namespace);
+    if (filter == null || key == null) {
+      return;
+    }
+    filter.add(key);
+    try {
+      if (!filter.numericKeys) {
+        redisTemplate.opsForZSet().add(RECENT_KEY_PREFIX + namespace, key,
+            System.currentTimeMillis());
+      }
+      redisTemplate.convertAndSend(ADDED_CHANNEL, namespace + "|" + key);
+    } catch (RuntimeException ex) {
+      log.warn("Error while broadcasting {} key. error message: {}", namespace, ex.getMessage());
+    }
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    // message is "<namespace>|<key>", adding a key twice is harmless so a node's own broadcast
+    // is not filtered out
+    String[] added = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+    Namespace filter = added.length == 2 ? namespaces.get(added[0]) : null;
+    if (filter != null) {
+      filter.add(added[1]);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${cache.existence.rebuild-interval-ms:600000}")
+  public void scheduleRebuild() {
+    if (!rebuilding.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      rebuildExecutor.execute(() -> {
+        try {
+          rebuild();
+        } finally {
+          rebuilding.set(false);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      rebuilding.set(false);
+    }
+  }
+
+  // deleted keys only leave the filter here, until then they cost a lookup as before
+  public void rebuild() {
+    namespaces.values().forEach(filter -> {
+      try {
+        filter.rebuild();
+      } catch (RuntimeException ex) {
+        log.warn("Error while rebuilding {} existence filter. error message: {}", filter.name,
+            ex.getMessage());
+      }
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    rebuildExecutor.shutdownNow();
+  }
+
+  private final class Namespace {
+
+    private final String name;
+    private final boolean numericKeys;
+    private final LongSupplier count;
+    private final Consumer<Consumer<String>> scan;
+    private final Counter rejected;
+    private volatile BloomFilter current;
+    // highest id the current filter was built from, only tracked for numeric keys
+    private volatile long highestKey = Long.MAX_VALUE;
+    private BloomFilter building;
+    // keys added since the last rebuild started, they may not have been committed when it
+    // scanned so the next rebuild adds them again
+    private Set<String> added = new HashSet<>();
+
+    private Namespace(String name, boolean numericKeys, LongSupplier count,
+        Consumer<Consumer<String>> scan) {
+      this.name = name;
+      this.numericKeys = numericKeys;
+      this.count = count;
+      this.scan = scan;
+      this.rejected = Counter.builder("cache.existence.rejected")
+          .tag("namespace", name)
+          .register(meterRegistry);
+    }
+
+    private boolean mightContain(String key) {
+      BloomFilter filter = current;
+      return filter == null || filter.mightContain(key) || isNewerThanBuild(key);
+    }
+
+    private boolean isNewerThanBuild(String key) {
+      if (!numericKeys) {
+        return isRecentlyAdded(key);
+      }
+      try {
+        return Long.parseLong(key) > highestKey;
+      } catch (NumberFormatException ex) {
+        return false;
+      }
+    }
+
+    // a redis failure lets the key through, the lookup behind the filter still answers it
+    private boolean isRecentlyAdded(String key) {
+      try {
+        return redisTemplate.opsForZSet().score(RECENT_KEY_PREFIX + name, key) != null;
+      } catch (RuntimeException ex) {
+        log.warn("Error while checking recent {} keys. error message: {}", name, ex.getMessage());
+        return true;
+      }
+    }
+
+    private void trimRecentlyAdded() {
+      if (numericKeys) {
+        return;
+      }
+      try {
+        redisTemplate.opsForZSet().removeRangeByScore(RECENT_KEY_PREFIX + name,
+            Double.NEGATIVE_INFINITY, System.currentTimeMillis() - recentRetentionMs);
+      } catch (RuntimeException ex) {
+        log.warn("Error while trimming recent {} keys. error message: {}", name, ex.getMessage());
+      }
+    }
+
+    private synchronized void add(String key) {
+      if (current != null) {
+        current.put(key);
+      }
+      if (building != null) {
+        building.put(key);
+      }
+      added.add(key);
+    }
+
+    private void rebuild() {
+      // twice the current size keeps the false positive rate while keys are created
+      BloomFilter next = new BloomFilter(Math.max(2 * count.getAsLong(), 1024),
+          falsePositiveRate);
+      synchronized (this) {
+        added.forEach(next::put);
+        added = new HashSet<>();
+        building = next;
+      }
+      long[] highest = {0};
+      try {
+        scan.accept(key -> {
+          next.put(key);
+          if (numericKeys) {
+            highest[0] = Math.max(highest[0], Long.parseLong(key));
+          }
+        });
+      } catch (RuntimeException ex) {
+        synchronized (this) {
+          building = null;
+        }
+        throw ex;
+      }
+      synchronized (this) {
+        building = null;
+        highestKey = highest[0];
+        current = next;
+      }
+      trimRecentlyAdded();
+      log.info("Rebuilt {} existence filter, {} bytes", name, next.sizeInBytes());
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package com.fastcampus.ecommerce.service;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+  <T> T execute(String scope, String idempotencyKey, Object request, Class<T> responseType,
+      Supplier<T> action);
+}
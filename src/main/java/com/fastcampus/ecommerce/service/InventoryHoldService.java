@@ -0,0 +1,21 @@
+package com.fastcampus.ecommerce.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface InventoryHoldService {
+
+  // the hold is released again when the surrounding transaction rolls back
+  void hold(Long orderId, Map<Long, Integer> productQuantities);
+
+  // inside a transaction the hold cannot expire until it completes and is committed only once
+  // it commits. false when the order had no hold left, for example because it expired
+  boolean commit(Long orderId);
+
+  // inside a transaction the hold is released only once it commits
+  void release(Long orderId);
+
+  void releaseAll(Collection<Long> orderIds);
+
+  void evictStock(Long productId);
+}
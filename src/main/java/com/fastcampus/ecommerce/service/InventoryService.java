@@ -9,4 +9,6 @@ public interface InventoryService {
   void decreaseQuantity(Map<Long, Integer> productQuantities);
 
   void increaseQuantity(Map<Long, Integer> productQuantities);
+
+  void deductQuantity(Map<Long, Integer> productQuantities);
 }
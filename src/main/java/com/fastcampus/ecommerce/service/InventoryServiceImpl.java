@@ -1,9 +1,15 @@
 package com.fastcampus.ecommerce.service;
 
+import com.fastcampus.ecommerce.common.errors.InsufficientInventoryException;
 import com.fastcampus.ecommerce.common.errors.InventoryException;
 import com.fastcampus.ecommerce.entity.Product;
 import com.fastcampus.ecommerce.repository.ProductRepository;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,47 +26,85 @@ public class InventoryServiceImpl implements
   @Override
   @Transactional
   public boolean checkAndLockInventory(Map<Long, Integer> productQuantities) {
-    for (Map.Entry<Long, Integer> entry : productQuantities.entrySet()) {
-      Product product = productRepository.findByIdWithPessimisticLock(entry.getKey())
-          .orElseThrow(
-              () -> new InventoryException("Product with id " + entry.getKey() + " is not found"));
-
-      if (product.getStockQuantity() < entry.getValue()) {
-        return false;
-      }
+    if (productQuantities.isEmpty()) {
+      return true;
     }
-    return true;
+
+    List<Product> products = productRepository.findAllByIdWithPessimisticLock(
+        productQuantities.keySet());
+    if (products.size() != productQuantities.size()) {
+      throw new InventoryException(
+          "Product with id " + missingProductIds(productQuantities, products) + " is not found");
+    }
+
+    return products.stream()
+        .allMatch(product ->
+            product.getStockQuantity() >= productQuantities.get(product.getProductId()));
   }
 
   @Override
   @Transactional
   public void decreaseQuantity(Map<Long, Integer> productQuantities) {
-    for (Map.Entry<Long, Integer> entry : productQuantities.entrySet()) {
-      Product product = productRepository.findByIdWithPessimisticLock(entry.getKey())
-          .orElseThrow(
-              () -> new InventoryException("Product with id " + entry.getKey() + " is not found"));
-
-      if (product.getStockQuantity() < entry.getValue()) {
-        throw new InventoryException("Insufficient inventory for product " + entry.getKey());
-      }
-
-      Integer newQuantity = product.getStockQuantity() - entry.getValue();
-      product.setStockQuantity(newQuantity);
-      productRepository.save(product);
+    if (productQuantities.isEmpty()) {
+      return;
+    }
+
+    TreeMap<Long, Integer> sortedQuantities = new TreeMap<>(productQuantities);
+    productRepository.findAllByIdWithPessimisticLock(sortedQuantities.keySet());
+
+    List<Long> updatedProductIds = productRepository.decreaseStockIfAvailable(
+        new ArrayList<>(sortedQuantities.keySet()), new ArrayList<>(sortedQuantities.values()));
+
+    if (updatedProductIds.size() != sortedQuantities.size()) {
+      Set<Long> updated = new HashSet<>(updatedProductIds);
+      List<Long> shortProductIds = sortedQuantities.keySet().stream()
+          .filter(productId -> !updated.contains(productId))
+          .toList();
+      // rolls back the rows that were decreased, reservation is all or nothing
+      throw new InsufficientInventoryException(shortProductIds);
     }
   }
 
   @Override
   @Transactional
   public void increaseQuantity(Map<Long, Integer> productQuantities) {
-    for (Map.Entry<Long, Integer> entry : productQuantities.entrySet()) {
-      Product product = productRepository.findByIdWithPessimisticLock(entry.getKey())
-          .orElseThrow(
-              () -> new InventoryException("Product with id " + entry.getKey() + " is not found"));
-
-      Integer newQuantity = product.getStockQuantity() + entry.getValue();
-      product.setStockQuantity(newQuantity);
-      productRepository.save(product);
+    if (productQuantities.isEmpty()) {
+      return;
+    }
+
+    TreeMap<Long, Integer> sortedQuantities = new TreeMap<>(productQuantities);
+    List<Product> products = productRepository.findAllByIdWithPessimisticLock(
+        sortedQuantities.keySet());
+    if (products.size() != sortedQuantities.size()) {
+      throw new InventoryException(
+          "Product with id " + missingProductIds(sortedQuantities, products) + " is not found");
     }
+
+    productRepository.increaseStock(new ArrayList<>(sortedQuantities.keySet()),
+        new ArrayList<>(sortedQuantities.values()));
+  }
+
+  @Override
+  @Transactional
+  public void deductQuantity(Map<Long, Integer> productQuantities) {
+    if (productQuantities.isEmpty()) {
+      return;
+    }
+
+    // quantities were already reserved elsewhere, so the stock check is skipped
+    TreeMap<Long, Integer> sortedQuantities = new TreeMap<>(productQuantities);
+    productRepository.findAllByIdWithPessimisticLock(sortedQuantities.keySet());
+    productRepository.decreaseStock(new ArrayList<>(sortedQuantities.keySet()),
+        new ArrayList<>(sortedQuantities.values()));
+  }
+
+  private List<Long> missingProductIds(Map<Long, Integer> productQuantities,
+      List<Product> products) {
+    Set<Long> foundProductIds = new HashSet<>();
+    products.forEach(product -> foundProductIds.add(product.getProductId()));
+    return productQuantities.keySet().stream()
+        .filter(productId -> !foundProductIds.contains(productId))
+        .sorted()
+        .toList();
   }
 }
@@ -0,0 +1,87 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.entity.Order;
+import com.fastcampus.ecommerce.model.PaymentResponse;
+import com.fastcampus.ecommerce.repository.OrderItemRepository;
+import com.fastcampus.ecommerce.repository.OrderRepository;
+import com.fastcampus.ecommerce.repository.UserRepository;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+// local payment provider for benchmarking checkout without calling xendit.
+// notifications are handled the same way as xendit invoices
+@Service
+@ConditionalOnProperty(name = "payment.provider", havingValue = "mock")
+@Slf4j
+public class MockPaymentService extends XenditPaymentService {
+
+  private static final String MOCK_PAYMENT_URL = "https://checkout.mock/invoices/";
+
+  @Value("${payment.mock.latency:300ms}")
+  private Duration latency;
+
+  public MockPaymentService(UserRepository userRepository, OrderRepository orderRepository,
+      OrderItemRepository orderItemRepository, InventoryHoldService inventoryHoldService,
+      OutboxService outboxService) {
+    super(userRepository, orderRepository, orderItemRepository, inventoryHoldService,
+        outboxService);
+  }
+
+  @Override
+  public PaymentResponse create(Order order) {
+    simulateLatency();
+    String invoiceId = "mock-" + UUID.randomUUID();
+    return PaymentResponse.builder()
+        .xenditPaymentUrl(MOCK_PAYMENT_URL + invoiceId)
+        .xenditExternalId(order.getOrderId().toString())
+        .xenditInvoiceId(invoiceId)
+        .amount(order.getTotalAmount())
+        .xenditInvoiceStatus("PENDING")
+        .build();
+  }
+
+  @Override
+  public Optional<PaymentResponse> findPendingByOrder(Order order) {
+    simulateLatency();
+    return Optional.empty();
+  }
+
+  @Override
+  public PaymentResponse findByPaymentId(String paymentId) {
+    simulateLatency();
+    return PaymentResponse.builder()
+        .xenditPaymentUrl(MOCK_PAYMENT_URL + paymentId)
+        .xenditInvoiceId(paymentId)
+        .xenditInvoiceStatus("PENDING")
+        .build();
+  }
+
+  @Override
+  public boolean verifyByPaymentId(String paymentId) {
+    simulateLatency();
+    return false;
+  }
+
+  @Override
+  public PaymentResponse expire(String paymentId) {
+    simulateLatency();
+    return PaymentResponse.builder()
+        .xenditPaymentUrl(MOCK_PAYMENT_URL + paymentId)
+        .xenditInvoiceId(paymentId)
+        .xenditInvoiceStatus("EXPIRED")
+        .build();
+  }
+
+  private void simulateLatency() {
+    try {
+      Thread.sleep(latency.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.entity.Order;
+import com.fastcampus.ecommerce.entity.OrderItem;
+import com.fastcampus.ecommerce.entity.OutboxEvent;
+import com.fastcampus.ecommerce.model.OrderStatus;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import com.fastcampus.ecommerce.model.PaymentResponse;
+import com.fastcampus.ecommerce.repository.OrderItemRepository;
+import com.fastcampus.ecommerce.repository.OrderRepository;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderOutboxEventHandler implements
+    OutboxEventHandler {
+
+  private final OrderService orderService;
+  private final OrderRepository orderRepository;
+  private final OrderItemRepository orderItemRepository;
+  private final PaymentService paymentService;
+  private final EmailService emailService;
+  private final UserActivityService userActivityService;
+
+  @Override
+  public Set<OutboxEventType> eventTypes() {
+    return Set.of(
+        OutboxEventType.ORDER_INVOICE_CREATION,
+        OutboxEventType.ORDER_INVOICE_EXPIRATION,
+        OutboxEventType.ORDER_PAYMENT_SUCCEEDED_EMAIL,
+        OutboxEventType.ORDER_PAYMENT_FAILED_EMAIL,
+        OutboxEventType.ORDER_PURCHASE_TRACKING);
+  }
+
+  @Override
+  public void handle(OutboxEvent event) {
+    Optional<Order> order = orderRepository.findById(event.getAggregateId());
+    if (order.isEmpty()) {
+      log.warn("Order with id " + event.getAggregateId() + " not found for outbox event "
+          + event.getEventType());
+      return;
+    }
+
+    switch (event.getEventType()) {
+      case ORDER_INVOICE_CREATION -> createInvoice(order.get());
+      case ORDER_INVOICE_EXPIRATION -> expireInvoice(order.get());
+      case ORDER_PAYMENT_SUCCEEDED_EMAIL -> emailService.notifySuccessfulPayment(order.get());
+      case ORDER_PAYMENT_FAILED_EMAIL -> emailService.notifyUnsuccessfulPayment(order.get());
+      case ORDER_PURCHASE_TRACKING -> trackPurchasedOrder(order.get());
+      default -> throw new IllegalArgumentException(
+          "Unsupported outbox event type " + event.getEventType());
+    }
+  }
+
+  @Override
+  public void onRetriesExhausted(OutboxEvent event) {
+    if (event.getEventType() == OutboxEventType.ORDER_INVOICE_CREATION) {
+      orderService.failPayment(event.getAggregateId());
+    }
+  }
+
+  private void createInvoice(Order order) {
+    // an earlier delivery already attached the invoice
+    if (order.getXenditInvoiceId() != null
+        || !order.getStatus().equals(OrderStatus.PENDING)) {
+      return;
+    }
+
+    // a delivery that created the invoice but failed to attach it is retried with the same
+    // external id, the invoice it left behind is attached instead of creating a second one
+    PaymentResponse paymentResponse = paymentService.findPendingByOrder(order)
+        .orElseGet(() -> paymentService.create(order));
+    if (!orderService.applyPayment(order.getOrderId(), paymentResponse)) {
+      // the order was cancelled while the invoice was created
+      paymentService.expire(paymentResponse.getXenditInvoiceId());
+    }
+  }
+
+  private void expireInvoice(Order order) {
+    if (order.getXenditInvoiceId() == null) {
+      return;
+    }
+
+    PaymentResponse paymentResponse = paymentService.expire(order.getXenditInvoiceId());
+    order.setXenditPaymentStatus(paymentResponse.getXenditInvoiceStatus());
+    orderRepository.save(order);
+  }
+
+  private void trackPurchasedOrder(Order order) {
+    List<OrderItem> orderItemList = orderItemRepository.findByOrderId(order.getOrderId());
+    orderItemList.forEach(orderItem -> {
+      userActivityService.trackPurchase(orderItem.getProductId(), order.getUserId());
+    });
+  }
+}
@@ -6,6 +6,7 @@ import com.fastcampus.ecommerce.model.OrderItemResponse;
 import com.fastcampus.ecommerce.model.OrderResponse;
 import com.fastcampus.ecommerce.model.OrderStatus;
 import com.fastcampus.ecommerce.model.PaginatedOrderResponse;
+import com.fastcampus.ecommerce.model.PaymentResponse;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
@@ -15,12 +16,19 @@ public interface OrderService {
 
   OrderResponse checkout(CheckoutRequest checkoutRequest);
 
+  boolean applyPayment(Long orderId, PaymentResponse paymentResponse);
+
+  void failPayment(Long orderId);
+
   Optional<Order> findOrderById(Long orderId);
 
   List<Order> findOrdersByUserId(Long userId);
 
   Page<OrderResponse> findOrdersByUserIdAndPageable(Long userId, Pageable pageable);
 
+  PaginatedOrderResponse findOrdersByUserIdAndCursor(Long userId, String cursor, int size,
+      boolean includeTotal);
+
   List<Order> findOrdersByStatus(OrderStatus status);
 
   void cancelOrder(Long orderId);
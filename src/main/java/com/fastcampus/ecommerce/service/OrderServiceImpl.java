@@ -1,7 +1,9 @@
 package com.fastcampus.ecommerce.service;
 
+import com.fastcampus.ecommerce.common.CursorUtil;
 import com.fastcampus.ecommerce.common.OrderStateTransition;
-import com.fastcampus.ecommerce.common.errors.InventoryException;
+import com.fastcampus.ecommerce.common.PageUtil;
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
 import com.fastcampus.ecommerce.common.errors.ResourceNotFoundException;
 import com.fastcampus.ecommerce.entity.CartItem;
 import com.fastcampus.ecommerce.entity.Order;
@@ -12,19 +14,17 @@ import com.fastcampus.ecommerce.model.CheckoutRequest;
 import com.fastcampus.ecommerce.model.OrderItemResponse;
 import com.fastcampus.ecommerce.model.OrderResponse;
 import com.fastcampus.ecommerce.model.OrderStatus;
+import com.fastcampus.ecommerce.model.OutboxEventType;
 import com.fastcampus.ecommerce.model.PaginatedOrderResponse;
 import com.fastcampus.ecommerce.model.PaymentResponse;
-import com.fastcampus.ecommerce.model.ShippingRateRequest;
-import com.fastcampus.ecommerce.model.ShippingRateResponse;
 import com.fastcampus.ecommerce.repository.CartItemRepository;
 import com.fastcampus.ecommerce.repository.OrderItemRepository;
 import com.fastcampus.ecommerce.repository.OrderRepository;
 import com.fastcampus.ecommerce.repository.ProductRepository;
 import com.fastcampus.ecommerce.repository.UserAddressRepository;
-import com.xendit.exception.XenditException;
-import com.xendit.model.Invoice;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -35,7 +35,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -49,9 +48,9 @@ public class OrderServiceImpl implements OrderService {
   private final OrderItemRepository orderItemRepository;
   private final UserAddressRepository userAddressRepository;
   private final ProductRepository productRepository;
-  private final ShippingService shippingService;
-  private final PaymentService paymentService;
-  private final InventoryService inventoryService;
+  private final ShippingQuoteService shippingQuoteService;
+  private final InventoryHoldService inventoryHoldService;
+  private final OutboxService outboxService;
 
   private final BigDecimal TAX_RATE = BigDecimal.valueOf(0.03);
 
@@ -71,11 +70,6 @@ public class OrderServiceImpl implements OrderService {
     Map<Long, Integer> productQuantities = selectedItems.stream()
         .collect(Collectors.toMap(CartItem::getProductId, CartItem::getQuantity));
 
-    if (!inventoryService.checkAndLockInventory(productQuantities)) {
-      throw new InventoryException("Insufficient inventory for one or more products");
-    }
-    // request is validated
-
     Order newOrder = Order.builder()
         .userId(checkoutRequest.getUserId())
         .status(OrderStatus.PENDING)
@@ -87,6 +81,7 @@ public class OrderServiceImpl implements OrderService {
         .build();
 
     Order savedOrder = orderRepository.save(newOrder);
+    inventoryHoldService.hold(savedOrder.getOrderId(), productQuantities);
 
     List<OrderItem> orderItems = selectedItems.stream()
         .map(cartItem -> {
@@ -109,32 +104,9 @@ public class OrderServiceImpl implements OrderService {
             orderItem -> orderItem.getPrice().multiply(BigDecimal.valueOf(orderItem.getQuantity())))
         .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-    BigDecimal shippingFee = orderItems.stream()
-        .map(orderItem -> {
-          Optional<Product> product = productRepository.findById(orderItem.getProductId());
-          if (product.isEmpty()) {
-            return BigDecimal.ZERO;
-          }
-
-          Optional<UserAddress> sellerAddress = userAddressRepository.findByUserIdAndIsDefaultTrue(
-              product.get()
-                  .getUserId());
-          if (sellerAddress.isEmpty()) {
-            return BigDecimal.ZERO;
-          }
-
-          BigDecimal totalWeight = product.get().getWeight()
-              .multiply(BigDecimal.valueOf(orderItem.getQuantity()));
-          // calculate shipping rate
-          ShippingRateRequest rateRequest = ShippingRateRequest.builder()
-              .totalWeightInGrams(totalWeight)
-              .fromAddress(ShippingRateRequest.fromUserAddress(sellerAddress.get()))
-              .toAddress(ShippingRateRequest.fromUserAddress(shippingAddress))
-              .build();
-          ShippingRateResponse rateResponse = shippingService.calculateShippingRate(rateRequest);
-          return rateResponse.getShippingFee();
-        })
-        .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // items of the same seller ship together, quoted with bulk lookups
+    BigDecimal shippingFee = shippingQuoteService.quote(productQuantities, shippingAddress)
+        .getTotalShippingFee();
 
     BigDecimal taxFee = subtotal.multiply(TAX_RATE);
     BigDecimal totalAmount = subtotal.add(taxFee).add(shippingFee);
@@ -146,31 +118,45 @@ public class OrderServiceImpl implements OrderService {
 
     orderRepository.save(savedOrder);
 
-    // interact with xendit api
-    // generate payment url
-    String paymentUrl;
-
-    try {
-      PaymentResponse paymentResponse = paymentService.create(savedOrder);
-      savedOrder.setXenditInvoiceId(paymentResponse.getXenditInvoiceId());
-      savedOrder.setXenditPaymentStatus(paymentResponse.getXenditInvoiceStatus());
-      paymentUrl = paymentResponse.getXenditPaymentUrl();
-
-      orderRepository.save(savedOrder);
-      inventoryService.decreaseQuantity(productQuantities);
-    } catch (Exception ex) {
-      log.error("Payment creation for order: " + savedOrder.getOrderId() + " is failed. Reason:"
-          + ex.getMessage());
-      savedOrder.setStatus(OrderStatus.PAYMENT_FAILED);
-
-      orderRepository.save(savedOrder);
-      return OrderResponse.fromOrder(savedOrder);
+    // the outbox relay creates the invoice, xendit latency never holds a connection or lock
+    outboxService.publish(OutboxEventType.ORDER_INVOICE_CREATION, savedOrder.getOrderId());
+
+    return OrderResponse.fromOrder(savedOrder);
+  }
+
+  @Override
+  @Transactional
+  public boolean applyPayment(Long orderId, PaymentResponse paymentResponse) {
+    Order order = orderRepository.findById(orderId)
+        .orElseThrow(
+            () -> new ResourceNotFoundException("Order with id " + orderId + " not found"));
+
+    // the order may have been cancelled while the invoice was created
+    if (!order.getStatus().equals(OrderStatus.PENDING)) {
+      return false;
     }
 
-    OrderResponse orderResponse = OrderResponse.fromOrder(savedOrder);
-    orderResponse.setPaymentUrl(paymentUrl);
+    order.setXenditInvoiceId(paymentResponse.getXenditInvoiceId());
+    order.setXenditPaymentStatus(paymentResponse.getXenditInvoiceStatus());
+    order.setXenditPaymentUrl(paymentResponse.getXenditPaymentUrl());
+    orderRepository.save(order);
+    return true;
+  }
+
+  @Override
+  @Transactional
+  public void failPayment(Long orderId) {
+    Order order = orderRepository.findById(orderId)
+        .orElseThrow(
+            () -> new ResourceNotFoundException("Order with id " + orderId + " not found"));
+
+    if (!order.getStatus().equals(OrderStatus.PENDING) || order.getXenditInvoiceId() != null) {
+      return;
+    }
 
-    return orderResponse;
+    order.setStatus(OrderStatus.PAYMENT_FAILED);
+    orderRepository.save(order);
+    inventoryHoldService.release(orderId);
   }
 
   @Override
@@ -189,6 +175,41 @@ public class OrderServiceImpl implements OrderService {
         .map(OrderResponse::fromOrder);
   }
 
+  @Override
+  public PaginatedOrderResponse findOrdersByUserIdAndCursor(Long userId, String cursor, int size,
+      boolean includeTotal) {
+    if (size < 1) {
+      throw new BadRequestException("Page size must be at least 1");
+    }
+    size = PageUtil.clampPageSize(size);
+
+    // one extra row tells whether there is a next page without counting
+    List<Order> orders;
+    if (cursor == null || cursor.isBlank()) {
+      orders = orderRepository.findFirstPageByUserId(userId, size + 1);
+    } else {
+      String[] position = CursorUtil.decode(cursor, 2);
+      try {
+        orders = orderRepository.findPageByUserIdAfter(userId, LocalDateTime.parse(position[0]),
+            Long.valueOf(position[1]), size + 1);
+      } catch (DateTimeParseException | NumberFormatException ex) {
+        throw new BadRequestException("Invalid cursor: " + cursor);
+      }
+    }
+
+    boolean last = orders.size() <= size;
+    List<Order> page = last ? orders : orders.subList(0, size);
+    Order lastOrder = page.isEmpty() ? null : page.get(page.size() - 1);
+
+    return PaginatedOrderResponse.builder()
+        .data(page.stream().map(OrderResponse::fromOrder).toList())
+        .pageSize(size)
+        .totalElements(includeTotal ? orderRepository.countByUserId(userId) : null)
+        .last(last)
+        .nextCursor(last ? null : CursorUtil.encode(lastOrder.getOrderDate().toString(),
+            String.valueOf(lastOrder.getOrderId())))
+        .build();
+  }
 
   @Override
   public List<Order> findOrdersByStatus(OrderStatus status) {
@@ -206,15 +227,11 @@ public class OrderServiceImpl implements OrderService {
       throw new IllegalStateException("Only PENDING orders can be cancelled");
     }
 
-    List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
-    Map<Long, Integer> productQuantities = orderItems.stream()
-        .collect(Collectors.toMap(OrderItem::getProductId, OrderItem::getQuantity));
-
     order.setStatus(OrderStatus.CANCELLED);
     orderRepository.save(order);
     if (order.getStatus().equals(OrderStatus.CANCELLED)) {
-      cancelXenditInvoice(order);
-      inventoryService.increaseQuantity(productQuantities);
+      outboxService.publish(OutboxEventType.ORDER_INVOICE_EXPIRATION, order.getOrderId());
+      inventoryHoldService.release(orderId);
     }
 
   }
@@ -277,11 +294,16 @@ public class OrderServiceImpl implements OrderService {
     order.setStatus(newStatus);
     orderRepository.save(order);
     if (newStatus.equals(OrderStatus.CANCELLED)) {
-      cancelXenditInvoice(order);
-      List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
-      Map<Long, Integer> productQuantities = orderItems.stream()
-          .collect(Collectors.toMap(OrderItem::getProductId, OrderItem::getQuantity));
-      inventoryService.increaseQuantity(productQuantities);
+      outboxService.publish(OutboxEventType.ORDER_INVOICE_EXPIRATION, order.getOrderId());
+      inventoryHoldService.release(orderId);
+    } else if (newStatus.equals(OrderStatus.PAYMENT_FAILED)) {
+      inventoryHoldService.release(orderId);
+    } else if (newStatus.equals(OrderStatus.PAID) && !inventoryHoldService.commit(orderId)) {
+      // the hold expired before the payment was confirmed, take the stock again or fail
+      inventoryHoldService.hold(orderId, orderItemRepository.findByOrderId(orderId).stream()
+          .collect(Collectors.toMap(OrderItem::getProductId, OrderItem::getQuantity,
+              Integer::sum)));
+      inventoryHoldService.commit(orderId);
     }
   }
 
@@ -301,32 +323,4 @@ public class OrderServiceImpl implements OrderService {
         .last(orderResponses.isLast())
         .build();
   }
-
-  private void cancelXenditInvoice(Order order) {
-    try {
-      Invoice invoice = Invoice.expire(order.getXenditInvoiceId());
-
-      order.setXenditPaymentStatus(invoice.getStatus());
-      orderRepository.save(order);
-    } catch (XenditException e) {
-      log.error("error while request invoice cancellation for order with xendit id "
-          + order.getXenditInvoiceId());
-    }
-  }
-
-  // run each minutes
-  @Scheduled(cron = "0 * * * * *")
-  @Transactional
-  public void cancelUnpaidOrders() {
-    LocalDateTime cancelThreshold = LocalDateTime.now().minusDays(1);
-    List<Order> unpaidOrders = orderRepository.findByStatusAndOrderDateBefore(OrderStatus.PENDING,
-        cancelThreshold);
-
-    for (Order order : unpaidOrders) {
-      order.setStatus(OrderStatus.CANCELLED);
-      orderRepository.save(order);
-
-      cancelXenditInvoice(order);
-    }
-  }
 }
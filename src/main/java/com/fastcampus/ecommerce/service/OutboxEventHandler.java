@@ -0,0 +1,17 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.entity.OutboxEvent;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import java.util.Set;
+
+public interface OutboxEventHandler {
+
+  Set<OutboxEventType> eventTypes();
+
+  // called at least once per event, implementations must tolerate redelivery
+  void handle(OutboxEvent event);
+
+  // called once the relay stops retrying the event
+  default void onRetriesExhausted(OutboxEvent event) {
+  }
+}
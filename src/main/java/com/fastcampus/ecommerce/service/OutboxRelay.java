@@ -0,0 +1,166 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.entity.OutboxEvent;
+import com.fastcampus.ecommerce.model.OutboxEventStatus;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import com.fastcampus.ecommerce.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// every node runs the relay, SKIP LOCKED keeps them from claiming the same events
+@Service
+@Slf4j
+public class OutboxRelay {
+
+  private static final int MAX_ERROR_LENGTH = 1000;
+
+  private final OutboxEventRepository outboxEventRepository;
+  private final Map<OutboxEventType, OutboxEventHandler> handlers =
+      new EnumMap<>(OutboxEventType.class);
+  private final ExecutorService executorService;
+  private final MeterRegistry meterRegistry;
+  private final AtomicLong pendingEvents = new AtomicLong();
+  private final AtomicLong lagSeconds = new AtomicLong();
+
+  @Value("${outbox.relay.batch-size:50}")
+  private int batchSize;
+
+  @Value("${outbox.relay.lease:5m}")
+  private Duration lease;
+
+  @Value("${outbox.relay.max-attempts:10}")
+  private int maxAttempts;
+
+  @Value("${outbox.relay.initial-backoff:5s}")
+  private Duration initialBackoff;
+
+  @Value("${outbox.relay.max-backoff:30m}")
+  private Duration maxBackoff;
+
+  @Value("${outbox.retention:7d}")
+  private Duration retention;
+
+  public OutboxRelay(OutboxEventRepository outboxEventRepository,
+      List<OutboxEventHandler> outboxEventHandlers, MeterRegistry meterRegistry,
+      @Value("${outbox.relay.workers:8}") int workers) {
+    this.outboxEventRepository = outboxEventRepository;
+    this.meterRegistry = meterRegistry;
+    this.executorService = Executors.newFixedThreadPool(workers);
+    outboxEventHandlers.forEach(handler -> handler.eventTypes()
+        .forEach(eventType -> handlers.put(eventType, handler)));
+
+    Gauge.builder("outbox.events.pending", pendingEvents, AtomicLong::get)
+        .description("Outbox events waiting to be dispatched")
+        .register(meterRegistry);
+    Gauge.builder("outbox.lag", lagSeconds, AtomicLong::get)
+        .description("Age of the oldest pending outbox event")
+        .baseUnit("seconds")
+        .register(meterRegistry);
+  }
+
+  @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+  public void relay() {
+    List<OutboxEvent> events;
+    do {
+      LocalDateTime now = LocalDateTime.now();
+      events = outboxEventRepository.claimBatch(now, now.plus(lease), batchSize);
+      CompletableFuture.allOf(events.stream()
+              .map(event -> CompletableFuture.runAsync(() -> dispatch(event), executorService))
+              .toArray(CompletableFuture[]::new))
+          .join();
+    } while (events.size() == batchSize);
+  }
+
+  @Scheduled(fixedDelayString = "${outbox.metrics.interval-ms:15000}")
+  public void refreshLagMetrics() {
+    pendingEvents.set(outboxEventRepository.countPending());
+    lagSeconds.set(outboxEventRepository.findOldestPendingCreatedAt()
+        .map(createdAt -> Duration.between(createdAt, LocalDateTime.now()).toSeconds())
+        .orElse(0L));
+  }
+
+  // run each hour
+  @Scheduled(cron = "0 0 * * * *")
+  public void deleteProcessedEvents() {
+    int deleted = outboxEventRepository.deleteProcessedBefore(
+        LocalDateTime.now().minus(retention));
+    log.info("Deleted {} processed outbox events", deleted);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executorService.shutdown();
+  }
+
+  private void dispatch(OutboxEvent event) {
+    OutboxEventHandler handler = handlers.get(event.getEventType());
+    String eventType = event.getEventType().name();
+    Timer.Sample sample = Timer.start(meterRegistry);
+    try {
+      if (handler == null) {
+        throw new IllegalStateException("No outbox handler for " + eventType);
+      }
+      handler.handle(event);
+      outboxEventRepository.markProcessed(event.getId(), LocalDateTime.now());
+      sample.stop(meterRegistry.timer("outbox.events.dispatch", "type", eventType,
+          "outcome", "success"));
+      Counter.builder("outbox.events.processed").tag("type", eventType)
+          .register(meterRegistry).increment();
+    } catch (Exception ex) {
+      sample.stop(meterRegistry.timer("outbox.events.dispatch", "type", eventType,
+          "outcome", "failure"));
+      handleFailure(handler, event, ex);
+    }
+  }
+
+  private void handleFailure(OutboxEventHandler handler, OutboxEvent event, Exception ex) {
+    String error = ex.getMessage() == null ? ex.getClass().getName() : ex.getMessage();
+    if (error.length() > MAX_ERROR_LENGTH) {
+      error = error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    // attempts was already incremented when the event was claimed
+    if (event.getAttempts() >= maxAttempts || handler == null) {
+      log.error("Outbox event " + event.getId() + " of type " + event.getEventType()
+          + " failed permanently. error message: " + error);
+      outboxEventRepository.markAttemptFailed(event.getId(), OutboxEventStatus.FAILED.name(),
+          LocalDateTime.now(), error);
+      Counter.builder("outbox.events.failed").tag("type", event.getEventType().name())
+          .register(meterRegistry).increment();
+      if (handler != null) {
+        try {
+          handler.onRetriesExhausted(event);
+        } catch (Exception exhaustedEx) {
+          log.error("Error while giving up outbox event " + event.getId() + ". error message: "
+              + exhaustedEx.getMessage());
+        }
+      }
+      return;
+    }
+
+    long backoffMillis = Math.min(maxBackoff.toMillis(),
+        initialBackoff.toMillis() << Math.min(event.getAttempts() - 1, 20));
+    log.warn("Outbox event " + event.getId() + " of type " + event.getEventType()
+        + " failed, retrying in " + backoffMillis + " ms. error message: " + error);
+    outboxEventRepository.markAttemptFailed(event.getId(), OutboxEventStatus.PENDING.name(),
+        LocalDateTime.now().plus(Duration.ofMillis(backoffMillis)), error);
+    Counter.builder("outbox.events.retried").tag("type", event.getEventType().name())
+        .register(meterRegistry).increment();
+  }
+}
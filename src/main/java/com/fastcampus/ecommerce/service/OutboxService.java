@@ -0,0 +1,8 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.model.OutboxEventType;
+
+public interface OutboxService {
+
+  void publish(OutboxEventType eventType, Long aggregateId);
+}
@@ -0,0 +1,31 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.entity.OutboxEvent;
+import com.fastcampus.ecommerce.model.OutboxEventStatus;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import com.fastcampus.ecommerce.repository.OutboxEventRepository;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+public class OutboxServiceImpl implements
+    OutboxService {
+
+  private final OutboxEventRepository outboxEventRepository;
+
+  // the event must be committed together with the change that caused it
+  @Override
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void publish(OutboxEventType eventType, Long aggregateId) {
+    outboxEventRepository.save(OutboxEvent.builder()
+        .eventType(eventType)
+        .aggregateId(aggregateId)
+        .status(OutboxEventStatus.PENDING)
+        .nextAttemptAt(LocalDateTime.now())
+        .build());
+  }
+}
@@ -3,14 +3,20 @@ package com.fastcampus.ecommerce.service;
 import com.fastcampus.ecommerce.entity.Order;
 import com.fastcampus.ecommerce.model.PaymentNotification;
 import com.fastcampus.ecommerce.model.PaymentResponse;
+import java.util.Optional;
 
 public interface PaymentService {
 
   PaymentResponse create(Order order);
 
+  // an unpaid invoice created earlier for the order, invoices use the order id as external id
+  Optional<PaymentResponse> findPendingByOrder(Order order);
+
   PaymentResponse findByPaymentId(String paymentId);
 
   boolean verifyByPaymentId(String paymentId);
 
+  PaymentResponse expire(String paymentId);
+
   void handleNotification(PaymentNotification paymentNotification);
 }
@@ -0,0 +1,50 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.entity.Category;
+import com.fastcampus.ecommerce.model.CategoryResponse;
+import com.fastcampus.ecommerce.repository.ProductCategoryRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+// batch loader for product categories, callers hand over every product id they hold at once
+@Service
+@RequiredArgsConstructor
+public class ProductCategoryLoader {
+
+  private final ProductCategoryRepository productCategoryRepository;
+  private final CategoryDictionary categoryDictionary;
+
+  public Map<Long, List<Category>> load(Collection<Long> productIds) {
+    return load(productIds, categoryDictionary::get);
+  }
+
+  // product responses only need the shared category responses, nothing is copied per product
+  public Map<Long, List<CategoryResponse>> loadResponses(Collection<Long> productIds) {
+    return load(productIds, categoryDictionary::getResponse);
+  }
+
+  private <T> Map<Long, List<T>> load(Collection<Long> productIds,
+      Function<Long, Optional<T>> lookup) {
+    // products without categories still get an entry so callers never see null
+    Map<Long, List<T>> categoriesByProductId = new LinkedHashMap<>();
+    productIds.forEach(productId -> categoriesByProductId.put(productId, new ArrayList<>()));
+    if (categoriesByProductId.isEmpty()) {
+      return categoriesByProductId;
+    }
+
+    // only the links are read, the categories themselves come from the in-memory dictionary
+    for (Object[] row : productCategoryRepository.findCategoryIdsByProductIds(
+        categoriesByProductId.keySet())) {
+      lookup.apply((Long) row[1])
+          .ifPresent(categoriesByProductId.get((Long) row[0])::add);
+    }
+    return categoriesByProductId;
+  }
+}
@@ -1,6 +1,7 @@
 package com.fastcampus.ecommerce.service;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Refresh;
 import co.elastic.clients.elasticsearch.core.DeleteRequest;
 import co.elastic.clients.elasticsearch.core.IndexRequest;
 import co.elastic.clients.elasticsearch.core.UpdateRequest;
@@ -27,24 +28,30 @@ public class ProductIndexServiceImpl implements
   private final ElasticsearchClient elasticsearchClient;
   private final CategoryService categoryService;
   private final Retry elasticsearchIndexRetrier;
+  private final SearchIndexGeneration searchIndexGeneration;
+  private final ProductSuggestionIndex productSuggestionIndex;
 
   @Override
   @Async
   public void reindexProduct(Product product) {
+    productSuggestionIndex.changed(product.getProductId());
     List<Category> categoryList = categoryService.getProductCategories(product.getProductId());
     ProductDocument productDocument = ProductDocument.fromProductAndCategories(product,
         categoryList);
 
+    // runs async, so waiting for the refresh costs no request any latency
     IndexRequest<ProductDocument> request = IndexRequest.of(builder ->
         builder.index(INDEX_NAME)
             .id(String.valueOf(product.getProductId()))
-            .document(productDocument));
+            .document(productDocument)
+            .refresh(Refresh.WaitFor));
 
     try {
       elasticsearchIndexRetrier.executeCallable(() -> {
         elasticsearchClient.index(request);
         return null;
       });
+      searchIndexGeneration.bump();
     } catch (IOException ex) {
       log.error("Error while reindex product with id " + product.getProductId() + " error: "
           + ex.getMessage());
@@ -57,15 +64,18 @@ public class ProductIndexServiceImpl implements
   @Override
   @Async
   public void deleteProduct(Product product) {
+    productSuggestionIndex.changed(product.getProductId());
     DeleteRequest deleteRequest = DeleteRequest.of(builder ->
         builder.index(indexName())
-            .id(String.valueOf(product.getProductId())));
+            .id(String.valueOf(product.getProductId()))
+            .refresh(Refresh.WaitFor));
 
     try {
       elasticsearchIndexRetrier.executeCallable(() -> {
         elasticsearchClient.delete(deleteRequest);
         return null;
       });
+      searchIndexGeneration.bump();
     } catch (IOException ex) {
       log.error("Error while deleting product with id " + product.getProductId() + " error: "
           + ex.getMessage());
@@ -82,6 +92,12 @@ public class ProductIndexServiceImpl implements
 
   @Override
   public void reindexProductActivity(Long productId, ActivityType activityType, Long value) {
+    // counters only move the ranking, bumping the search generation on every view would leave
+    // nothing cached, so cached hits follow them within their ttl instead. views are not
+    // broadcast to the suggestion index either, the hourly rebuild picks them up
+    if (activityType == ActivityType.PURCHASE) {
+      productSuggestionIndex.changed(productId);
+    }
     final String field = (activityType == ActivityType.VIEW) ? "viewCount" : "purchaseCount";
 
     UpdateRequest<ProductDocument, Map<String, Object>> request = UpdateRequest.of(u ->
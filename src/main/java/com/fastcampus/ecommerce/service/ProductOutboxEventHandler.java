@@ -0,0 +1,36 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.entity.OutboxEvent;
+import com.fastcampus.ecommerce.entity.Product;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class ProductOutboxEventHandler implements
+    OutboxEventHandler {
+
+  private final ProductRepository productRepository;
+  private final ProductIndexService productIndexService;
+
+  @Override
+  public Set<OutboxEventType> eventTypes() {
+    return Set.of(OutboxEventType.PRODUCT_REINDEX, OutboxEventType.PRODUCT_INDEX_DELETION);
+  }
+
+  @Override
+  public void handle(OutboxEvent event) {
+    switch (event.getEventType()) {
+      // the latest row is indexed, so redelivered or reordered events converge
+      case PRODUCT_REINDEX -> productRepository.findById(event.getAggregateId())
+          .ifPresent(productIndexService::reindexProduct);
+      case PRODUCT_INDEX_DELETION -> productIndexService.deleteProduct(
+          Product.builder().productId(event.getAggregateId()).build());
+      default -> throw new IllegalArgumentException(
+          "Unsupported outbox event type " + event.getEventType());
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.fastcampus.ecommerce.service;
 
 import com.fastcampus.ecommerce.entity.Product;
+import com.fastcampus.ecommerce.model.CountMode;
 import com.fastcampus.ecommerce.model.PaginatedProductResponse;
 import com.fastcampus.ecommerce.model.ProductRequest;
 import com.fastcampus.ecommerce.model.ProductResponse;
@@ -8,6 +9,7 @@ import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 public interface ProductService {
 
@@ -17,8 +19,14 @@ public interface ProductService {
 
   Page<ProductResponse> findByNameAndPageable(String name, Pageable pageable);
 
+  PaginatedProductResponse findByCursor(String cursor, int size, Sort.Order sortOrder, String name,
+      CountMode countMode);
+
   ProductResponse findById(Long id);
 
+  // ids that have no product are skipped, the rest keep the order of the given ids
+  List<ProductResponse> findAllByIds(List<Long> ids);
+
   ProductResponse create(ProductRequest productRequest);
 
   ProductResponse update(Long id, ProductRequest productRequest);
@@ -1,86 +1,201 @@
 package com.fastcampus.ecommerce.service;
 
+import com.fastcampus.ecommerce.common.CursorUtil;
+import com.fastcampus.ecommerce.common.PageUtil;
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
 import com.fastcampus.ecommerce.common.errors.ResourceNotFoundException;
 import com.fastcampus.ecommerce.entity.Category;
 import com.fastcampus.ecommerce.entity.Product;
 import com.fastcampus.ecommerce.entity.ProductCategory;
 import com.fastcampus.ecommerce.entity.ProductCategory.ProductCategoryId;
 import com.fastcampus.ecommerce.model.CategoryResponse;
+import com.fastcampus.ecommerce.model.CountMode;
+import com.fastcampus.ecommerce.model.OutboxEventType;
 import com.fastcampus.ecommerce.model.PaginatedProductResponse;
 import com.fastcampus.ecommerce.model.ProductRequest;
 import com.fastcampus.ecommerce.model.ProductResponse;
-import com.fastcampus.ecommerce.repository.CategoryRepository;
+import com.fastcampus.ecommerce.model.ProductSortColumn;
 import com.fastcampus.ecommerce.repository.ProductCategoryRepository;
 import com.fastcampus.ecommerce.repository.ProductRepository;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @RequiredArgsConstructor
 public class ProductServiceImpl implements ProductService {
 
   private final ProductRepository productRepository;
-  private final CategoryRepository categoryRepository;
   private final ProductCategoryRepository productCategoryRepository;
 
   private final String PRODUCT_CACHE_KEY = "products:";
+  // kept out of the products: namespace so product invalidation and policies never touch it
+  private final String PRODUCT_COUNT_CACHE_KEY = "product-count";
+  private final Duration PRODUCT_COUNT_CACHE_TTL = Duration.ofMinutes(5);
   private final CacheService cacheService;
   private final RateLimitingService rateLimitingService;
-  private final ProductIndexService productIndexService;
+  private final OutboxService outboxService;
+  private final InventoryHoldService inventoryHoldService;
+  private final ProductCategoryLoader productCategoryLoader;
+  private final CategoryDictionary categoryDictionary;
+  private final ExistenceFilter existenceFilter;
 
   @Override
   public List<ProductResponse> findAll() {
-    return productRepository.findAll()
-        .stream().map(product -> {
-          List<CategoryResponse> productCategories = getProductCategories(product.getProductId());
-          return ProductResponse.fromProductAndCategories(product, productCategories);
-        })
+    List<Product> products = productRepository.findAll();
+    Map<Long, List<CategoryResponse>> productCategories = getProductCategories(products);
+    return products.stream()
+        .map(product -> ProductResponse.fromProductAndCategories(product,
+            productCategories.get(product.getProductId())))
         .toList();
   }
 
   @Override
   public Page<ProductResponse> findByPage(Pageable pageable) {
-    return rateLimitingService.executeWithRateLimit("product_listing",
-        () -> productRepository.findByPageable(pageable)
-            .map(product -> {
-              List<CategoryResponse> productCategories = getProductCategories(
-                  product.getProductId());
-              return ProductResponse.fromProductAndCategories(product, productCategories);
-            }));
+    return rateLimitingService.executeWithRateLimit("product_listing", () -> {
+      Page<Product> products = productRepository.findByPageable(pageable);
+      Map<Long, List<CategoryResponse>> productCategories = getProductCategories(
+          products.getContent());
+      return products.map(product -> ProductResponse.fromProductAndCategories(product,
+          productCategories.get(product.getProductId())));
+    });
   }
 
   @Override
   public Page<ProductResponse> findByNameAndPageable(String name, Pageable pageable) {
     name = "%" + name + "%";
     name = name.toLowerCase();
-    return productRepository.findByNamePageable(name, pageable)
-        .map(product -> {
-          List<CategoryResponse> productCategories = getProductCategories(product.getProductId());
-          return ProductResponse.fromProductAndCategories(product, productCategories);
-        });
+    Page<Product> products = productRepository.findByNamePageable(name, pageable);
+    Map<Long, List<CategoryResponse>> productCategories = getProductCategories(
+        products.getContent());
+    return products.map(product -> ProductResponse.fromProductAndCategories(product,
+        productCategories.get(product.getProductId())));
+  }
+
+  @Override
+  public PaginatedProductResponse findByCursor(String cursor, int requestedSize,
+      Sort.Order sortOrder, String name, CountMode countMode) {
+    if (requestedSize < 1) {
+      throw new BadRequestException("Page size must be at least 1");
+    }
+    int size = PageUtil.clampPageSize(requestedSize);
+
+    ProductSortColumn sortColumn = ProductSortColumn.fromColumn(sortOrder.getProperty());
+    boolean ascending = sortOrder.isAscending();
+    String direction = ascending ? "asc" : "desc";
+    String namePattern = name == null || name.isEmpty() ? null : ("%" + name + "%").toLowerCase();
+
+    Long afterProductId = null;
+    Object afterSortValue = null;
+    if (cursor != null && !cursor.isBlank()) {
+      // the cursor keeps the sort it was made for, it cannot continue a different ordering
+      String[] position = CursorUtil.decode(cursor, 4);
+      if (!position[0].equals(sortColumn.getColumn()) || !position[1].equals(direction)) {
+        throw new BadRequestException("Cursor does not match the requested sort");
+      }
+      try {
+        afterProductId = Long.valueOf(position[2]);
+        afterSortValue = sortColumn.parseCursorValue(position[3]);
+      } catch (DateTimeParseException | NumberFormatException ex) {
+        throw new BadRequestException("Invalid cursor: " + cursor);
+      }
+    }
+
+    // one extra row tells whether there is a next page without counting
+    Long productId = afterProductId;
+    Object sortValue = afterSortValue;
+    List<Product> products = rateLimitingService.executeWithRateLimit("product_listing",
+        () -> productRepository.findPageAfter(sortColumn, ascending, sortValue, productId,
+            namePattern, size + 1));
+
+    boolean last = products.size() <= size;
+    List<Product> page = last ? products : products.subList(0, size);
+    String nextCursor = null;
+    if (!last) {
+      Product lastProduct = page.get(page.size() - 1);
+      nextCursor = CursorUtil.encode(sortColumn.getColumn(), direction,
+          String.valueOf(lastProduct.getProductId()), sortColumn.cursorValue(lastProduct));
+    }
+
+    Map<Long, List<CategoryResponse>> productCategories = getProductCategories(page);
+    return PaginatedProductResponse.builder()
+        .data(page.stream()
+            .map(product -> ProductResponse.fromProductAndCategories(product,
+                productCategories.get(product.getProductId())))
+            .toList())
+        .pageSize(size)
+        .totalElements(countProducts(namePattern, countMode))
+        .estimatedTotal(countMode == CountMode.ESTIMATED && namePattern == null)
+        .last(last)
+        .nextCursor(nextCursor)
+        .build();
   }
 
   @Override
   public ProductResponse findById(Long productId) {
+    if (!existenceFilter.mightExist(ExistenceFilter.PRODUCTS, String.valueOf(productId))) {
+      throw new ResourceNotFoundException("Product not found with id: " + productId);
+    }
+
     String cacheKey = PRODUCT_CACHE_KEY + productId;
-    Optional<ProductResponse> cachedProduct = cacheService.get(cacheKey, ProductResponse.class);
-    if (cachedProduct.isPresent()) {
-      return cachedProduct.get();
+    // a popular product that was just evicted is loaded once, not once per concurrent request,
+    // and an id that does not exist is remembered as missing for a short while
+    ProductResponse product = cacheService.getOrLoad(cacheKey, ProductResponse.class, null,
+        () -> productRepository.findById(productId)
+            .map(existingProduct -> ProductResponse.fromProductAndCategories(existingProduct,
+                getProductCategories(productId)))
+            .orElse(null));
+    if (product == null) {
+      throw new ResourceNotFoundException("Product not found with id: " + productId);
     }
+    return product;
+  }
 
-    Product existingProduct = productRepository.findById(productId)
-        .orElseThrow(
-            () -> new ResourceNotFoundException("Product not found with id: " + productId));
-    List<CategoryResponse> productCategories = getProductCategories(productId);
-    ProductResponse productResponse = ProductResponse.fromProductAndCategories(existingProduct,
-        productCategories);
-    cacheService.put(cacheKey, productResponse);
-    return productResponse;
+  @Override
+  public List<ProductResponse> findAllByIds(List<Long> productIds) {
+    Map<Long, ProductResponse> productsById = new HashMap<>();
+    List<Long> possibleIds = productIds.stream()
+        .filter(productId -> existenceFilter.mightExist(ExistenceFilter.PRODUCTS,
+            String.valueOf(productId)))
+        .toList();
+    cacheService.getAll(possibleIds.stream().map(productId -> PRODUCT_CACHE_KEY + productId)
+            .toList(), ProductResponse.class)
+        .values()
+        .forEach(product -> productsById.put(product.getProductId(), product));
+
+    List<Long> missingIds = possibleIds.stream()
+        .filter(productId -> !productsById.containsKey(productId))
+        .distinct()
+        .toList();
+    if (!missingIds.isEmpty()) {
+      // every miss is read with one query and written back with one pipeline
+      List<Product> products = productRepository.findAllById(missingIds);
+      Map<Long, List<CategoryResponse>> productCategories = getProductCategories(products);
+      Map<String, ProductResponse> loadedProducts = new HashMap<>();
+      products.forEach(product -> {
+        ProductResponse productResponse = ProductResponse.fromProductAndCategories(product,
+            productCategories.get(product.getProductId()));
+        productsById.put(product.getProductId(), productResponse);
+        loadedProducts.put(PRODUCT_CACHE_KEY + product.getProductId(), productResponse);
+      });
+      cacheService.putAll(loadedProducts);
+    }
+
+    return productIds.stream()
+        .map(productsById::get)
+        .filter(Objects::nonNull)
+        .toList();
   }
 
   @Override
@@ -112,14 +227,19 @@ public class ProductServiceImpl implements ProductService {
     productCategoryRepository.saveAll(productCategories);
 
     List<CategoryResponse> categoryResponseList = categories.stream().map(
-            CategoryResponse::fromCategory)
+            categoryDictionary::toResponse)
         .toList();
 
-    String cacheKey = PRODUCT_CACHE_KEY + createdProduct.getProductId();
     ProductResponse productResponse = ProductResponse.fromProductAndCategories(createdProduct,
         categoryResponseList);
-    cacheService.put(cacheKey, productResponse);
-    productIndexService.reindexProduct(product);
+    // registering the id and evicting a tombstone left by an earlier lookup wait for the commit,
+    // so a rollback registers nothing and no lookup before the commit can write it back
+    Long productId = createdProduct.getProductId();
+    afterCommit(() -> {
+      existenceFilter.add(ExistenceFilter.PRODUCTS, String.valueOf(productId));
+      cacheService.evict(PRODUCT_CACHE_KEY + productId);
+    });
+    outboxService.publish(OutboxEventType.PRODUCT_REINDEX, createdProduct.getProductId());
     return productResponse;
   }
 
@@ -158,12 +278,11 @@ public class ProductServiceImpl implements ProductService {
     productCategoryRepository.saveAll(productCategories);
 
     List<CategoryResponse> categoryResponseList = categories.stream().map(
-            CategoryResponse::fromCategory)
+            categoryDictionary::toResponse)
         .toList();
 
-    String cacheKey = PRODUCT_CACHE_KEY + productId;
-    cacheService.evict(cacheKey);
-    productIndexService.reindexProduct(existingProduct);
+    evictAfterCommit(productId);
+    outboxService.publish(OutboxEventType.PRODUCT_REINDEX, productId);
     return ProductResponse.fromProductAndCategories(existingProduct, categoryResponseList);
   }
 
@@ -177,8 +296,9 @@ public class ProductServiceImpl implements ProductService {
         productId);
 
     productCategoryRepository.deleteAll(productCategories);
-    productIndexService.deleteProduct(existingProduct);
+    outboxService.publish(OutboxEventType.PRODUCT_INDEX_DELETION, productId);
     productRepository.delete(existingProduct);
+    evictAfterCommit(productId);
   }
 
   @Override
@@ -193,22 +313,67 @@ public class ProductServiceImpl implements ProductService {
         .build();
   }
 
+  private Long countProducts(String namePattern, CountMode countMode) {
+    if (countMode == CountMode.NONE) {
+      return null;
+    }
+    // planner statistics only describe the whole table
+    if (namePattern != null) {
+      return productRepository.countByNameLike(namePattern);
+    }
+    if (countMode == CountMode.EXACT) {
+      return productRepository.count();
+    }
+
+    long estimate = productRepository.estimateCount();
+    if (estimate >= 0) {
+      return estimate;
+    }
+    return cacheService.get(PRODUCT_COUNT_CACHE_KEY, Long.class)
+        .orElseGet(() -> {
+          long count = productRepository.count();
+          cacheService.put(PRODUCT_COUNT_CACHE_KEY, count, PRODUCT_COUNT_CACHE_TTL);
+          return count;
+        });
+  }
+
+  // evicted before the commit, a concurrent read or hold would load the old row back into the
+  // product cache or the stock key and keep it there until it expires or the next change
+  private void evictAfterCommit(Long productId) {
+    afterCommit(() -> {
+      cacheService.evict(PRODUCT_CACHE_KEY + productId);
+      inventoryHoldService.evictStock(productId);
+    });
+  }
+
+  private void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
   private List<Category> getCategoriesByIds(List<Long> categoryIds) {
     return categoryIds.stream()
-        .map(categoryId -> categoryRepository.findById(categoryId)
+        .map(categoryId -> categoryDictionary.get(categoryId)
             .orElseThrow(
                 () -> new ResourceNotFoundException("Category not found for id : " + categoryId)))
         .toList();
   }
 
   private List<CategoryResponse> getProductCategories(Long productId) {
-    List<ProductCategory> productCategories = productCategoryRepository.findCategoriesByProductId(
-        productId);
-    List<Long> categoryIds = productCategories.stream()
-        .map(productCategory -> productCategory.getId().getCategoryId())
-        .toList();
-    return categoryRepository.findAllById(categoryIds)
-        .stream().map(CategoryResponse::fromCategory)
-        .toList();
+    return productCategoryLoader.loadResponses(List.of(productId)).get(productId);
+  }
+
+  // categories of every product on a page come from one join query
+  private Map<Long, List<CategoryResponse>> getProductCategories(List<Product> products) {
+    return productCategoryLoader.loadResponses(
+        products.stream().map(Product::getProductId).toList());
   }
 }
@@ -0,0 +1,206 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.common.PrefixIndex;
+import com.fastcampus.ecommerce.common.PrefixIndex.Entry;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// product names weighted by views and purchases, kept in process so prefix suggestions never
+// leave the node. changed products are broadcast to every node and merged into a new index on a
+// short schedule, a full rebuild corrects whatever a lost broadcast missed and picks up view
+// counts, which are not broadcast. until the first build finishes the index is not ready and
+// suggestions go to elasticsearch
+@Service
+@Slf4j
+public class ProductSuggestionIndex implements MessageListener {
+
+  public static final String CHANGED_CHANNEL = "suggestions:changed";
+
+  private final ProductRepository productRepository;
+  private final RedisTemplate<String, String> redisTemplate;
+  private final int batchSize;
+  // products changed since the last merge, a merge reads their current row
+  private final Set<Long> changedIds = ConcurrentHashMap.newKeySet();
+  // the scan takes minutes on a large catalog, it runs here instead of holding a scheduler thread
+  private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(
+      runnable -> new Thread(runnable, "suggestion-index-rebuild"));
+  private final AtomicBoolean rebuilding = new AtomicBoolean();
+  // readers take the reference once, a merge or rebuild swaps in a new index
+  private volatile PrefixIndex index;
+  // products merged while a rebuild scans, set only during a rebuild and guarded by this
+  private Set<Long> mergedDuringRebuild;
+
+  public ProductSuggestionIndex(ProductRepository productRepository,
+      RedisTemplate<String, String> redisTemplate,
+      RedisMessageListenerContainer listenerContainer, MeterRegistry meterRegistry,
+      @Value("${suggestion.index.batch-size:10000}") int batchSize) {
+    this.productRepository = productRepository;
+    this.redisTemplate = redisTemplate;
+    this.batchSize = batchSize;
+    Gauge.builder("suggestion.index.entries", this,
+            suggestionIndex -> suggestionIndex.current().size())
+        .register(meterRegistry);
+    Gauge.builder("suggestion.index.bytes", this,
+            suggestionIndex -> suggestionIndex.current().sizeInBytes())
+        .register(meterRegistry);
+    listenerContainer.addMessageListener(this, new ChannelTopic(CHANGED_CHANNEL));
+  }
+
+  public boolean isReady() {
+    return index != null;
+  }
+
+  // the same rules as the completion suggester, leading spaces do not count and ascii letters
+  // match in any case
+  public List<String> suggest(String query, int limit) {
+    return current().topByPrefix(query.stripLeading(), limit);
+  }
+
+  // call after a product's name or purchases changed, or it was deleted
+  public void changed(Long productId) {
+    changedIds.add(productId);
+    try {
+      redisTemplate.convertAndSend(CHANGED_CHANNEL, String.valueOf(productId));
+    } catch (RuntimeException ex) {
+      log.warn("Error while broadcasting suggestion change. error message: {}",
+          ex.getMessage());
+    }
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    // a node's own broadcast arrives too, merging a product twice is harmless
+    try {
+      changedIds.add(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+    } catch (NumberFormatException ex) {
+      log.warn("Ignoring malformed suggestion change message");
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${suggestion.index.merge-interval-ms:5000}")
+  public synchronized void merge() {
+    PrefixIndex current = index;
+    if (current == null || changedIds.isEmpty()) {
+      return;
+    }
+    List<Long> productIds = new ArrayList<>();
+    for (Long productId : changedIds) {
+      changedIds.remove(productId);
+      productIds.add(productId);
+    }
+    Collections.sort(productIds);
+
+    try {
+      // deleted products have no row, so they only leave the index. a backlog is read in
+      // batches so the id list stays far below the bind parameter limit
+      List<Entry> entries = new ArrayList<>();
+      for (int from = 0; from < productIds.size(); from += batchSize) {
+        productRepository.findSuggestionRowsByIds(
+                productIds.subList(from, Math.min(from + batchSize, productIds.size())))
+            .forEach(row -> addEntry(entries, row));
+      }
+      index = current.withChanges(new HashSet<>(productIds), entries);
+      if (mergedDuringRebuild != null) {
+        mergedDuringRebuild.addAll(productIds);
+      }
+    } catch (RuntimeException ex) {
+      changedIds.addAll(productIds);
+      log.warn("Error while merging suggestion changes. error message: {}", ex.getMessage());
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${suggestion.index.rebuild-interval-ms:3600000}")
+  public void scheduleRebuild() {
+    if (!rebuilding.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      rebuildExecutor.execute(() -> {
+        try {
+          rebuild();
+        } finally {
+          rebuilding.set(false);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      rebuilding.set(false);
+    }
+  }
+
+  // merges keep running during the scan. what they merged may be older in the scan than in the
+  // index being replaced, so those products are queued again once the new index is in place
+  public void rebuild() {
+    synchronized (this) {
+      mergedDuringRebuild = new HashSet<>();
+    }
+    try {
+      List<Entry> entries = new ArrayList<>();
+      long afterId = 0;
+      List<Object[]> rows;
+      do {
+        rows = productRepository.findSuggestionRowsAfter(afterId, batchSize);
+        for (Object[] row : rows) {
+          addEntry(entries, row);
+          afterId = ((Number) row[0]).longValue();
+        }
+      } while (rows.size() == batchSize);
+      PrefixIndex next = PrefixIndex.build(entries);
+      synchronized (this) {
+        index = next;
+        changedIds.addAll(mergedDuringRebuild);
+      }
+      log.info("Rebuilt product suggestion index, {} names in {} bytes", next.size(),
+          next.sizeInBytes());
+    } catch (RuntimeException ex) {
+      log.warn("Error while rebuilding product suggestion index. error message: {}",
+          ex.getMessage());
+    } finally {
+      synchronized (this) {
+        mergedDuringRebuild = null;
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    rebuildExecutor.shutdownNow();
+  }
+
+  private PrefixIndex current() {
+    PrefixIndex current = index;
+    return current == null ? PrefixIndex.EMPTY : current;
+  }
+
+  // the weights follow the view and purchase factors of the search ranking
+  private static void addEntry(List<Entry> entries, Object[] row) {
+    if (row[1] == null) {
+      return;
+    }
+    long viewCount = ((Number) row[2]).longValue();
+    long purchaseCount = ((Number) row[3]).longValue();
+    entries.add(new Entry(((Number) row[0]).longValue(), (String) row[1],
+        viewCount + 2 * purchaseCount));
+  }
+}
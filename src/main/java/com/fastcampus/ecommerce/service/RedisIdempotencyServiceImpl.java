@@ -0,0 +1,178 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
+import com.fastcampus.ecommerce.common.errors.IdempotencyConflictException;
+import com.fastcampus.ecommerce.model.IdempotencyRecord;
+import com.fastcampus.ecommerce.model.IdempotencyStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RedisIdempotencyServiceImpl implements
+    IdempotencyService {
+
+  private static final String IDEMPOTENCY_KEY_PREFIX = "idempotency:";
+  private static final int MAX_KEY_LENGTH = 255;
+
+  // KEYS: record. ARGV: expected record, new record, ttl in millis. Only the request that
+  // wrote the in-flight marker may replace it
+  private static final RedisScript<Long> REPLACE_SCRIPT = RedisScript.of("""
+      if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+        return 0
+      end
+      redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+      return 1
+      """, Long.class);
+
+  // KEYS: record. ARGV: expected record
+  private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of("""
+      if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+        return 0
+      end
+      return redis.call('DEL', KEYS[1])
+      """, Long.class);
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final ObjectMapper objectMapper;
+
+  @Value("${idempotency.in-flight-ttl:1m}")
+  private Duration inFlightTtl;
+
+  @Value("${idempotency.response-ttl:24h}")
+  private Duration responseTtl;
+
+  @Value("${idempotency.wait-timeout:10s}")
+  private Duration waitTimeout;
+
+  @Value("${idempotency.poll-interval:50ms}")
+  private Duration pollInterval;
+
+  @Override
+  public <T> T execute(String scope, String idempotencyKey, Object request,
+      Class<T> responseType, Supplier<T> action) {
+    if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+      throw new BadRequestException(
+          "Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+    }
+
+    String key = IDEMPOTENCY_KEY_PREFIX + scope + ":" + idempotencyKey;
+    String requestHash = hash(request);
+    String marker = write(IdempotencyRecord.builder()
+        .status(IdempotencyStatus.IN_PROGRESS)
+        .requestHash(requestHash)
+        .token(UUID.randomUUID().toString())
+        .build());
+
+    long deadline = System.nanoTime() + waitTimeout.toNanos();
+    while (true) {
+      if (Boolean.TRUE.equals(
+          redisTemplate.opsForValue().setIfAbsent(key, marker, inFlightTtl))) {
+        return runAndStore(key, marker, requestHash, action);
+      }
+
+      Optional<IdempotencyRecord> existing = read(key);
+      if (existing.isEmpty()) {
+        // the first request failed and released the key, try to take it over
+        continue;
+      }
+      if (!existing.get().getRequestHash().equals(requestHash)) {
+        throw new BadRequestException(
+            "Idempotency-Key " + idempotencyKey + " was already used for a different request");
+      }
+      if (existing.get().getStatus() == IdempotencyStatus.COMPLETED) {
+        return read(existing.get().getResponse(), responseType);
+      }
+
+      // the first request is still running, wait for its response
+      if (System.nanoTime() >= deadline) {
+        throw new IdempotencyConflictException("Request with Idempotency-Key " + idempotencyKey
+            + " is still being processed");
+      }
+      sleep();
+    }
+  }
+
+  private <T> T runAndStore(String key, String marker, String requestHash, Supplier<T> action) {
+    T response;
+    try {
+      response = action.get();
+    } catch (RuntimeException ex) {
+      // failed requests are not stored so the client can retry with the same key
+      redisTemplate.execute(RELEASE_SCRIPT, List.of(key), marker);
+      throw ex;
+    }
+
+    try {
+      String completed = write(IdempotencyRecord.builder()
+          .status(IdempotencyStatus.COMPLETED)
+          .requestHash(requestHash)
+          .response(write(response))
+          .build());
+      Long replaced = redisTemplate.execute(REPLACE_SCRIPT, List.of(key), marker, completed,
+          String.valueOf(responseTtl.toMillis()));
+      if (replaced == null || replaced == 0) {
+        log.warn("In-flight marker {} expired before the response was stored", key);
+      }
+    } catch (RuntimeException ex) {
+      // the request already succeeded, a retry after this only waits for the marker to expire
+      log.warn("Error while storing idempotent response {}. error message: {}", key,
+          ex.getMessage());
+    }
+    return response;
+  }
+
+  private Optional<IdempotencyRecord> read(String key) {
+    String value = redisTemplate.opsForValue().get(key);
+    return value == null ? Optional.empty() : Optional.of(read(value, IdempotencyRecord.class));
+  }
+
+  private <T> T read(String value, Class<T> type) {
+    try {
+      return objectMapper.readValue(value, type);
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private String write(Object value) {
+    try {
+      return objectMapper.writeValueAsString(value);
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private String hash(Object request) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+    } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void sleep() {
+    try {
+      Thread.sleep(pollInterval.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IdempotencyConflictException("Interrupted while waiting for idempotent response");
+    }
+  }
+}
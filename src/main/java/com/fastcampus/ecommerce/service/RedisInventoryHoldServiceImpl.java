@@ -0,0 +1,510 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.common.errors.InsufficientInventoryException;
+import com.fastcampus.ecommerce.common.errors.InventoryException;
+import com.fastcampus.ecommerce.repository.InventoryHoldSyncRepository;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RedisInventoryHoldServiceImpl implements
+    InventoryHoldService {
+
+  private static final String STOCK_KEY_PREFIX = "inventory:stock:";
+  private static final String HOLD_KEY_PREFIX = "inventory:hold:";
+  private static final String HELD_KEY = "inventory:held";
+  private static final String HOLD_EXPIRY_KEY = "inventory:holds:expiry";
+  // holds taken out of the expiry set while the transaction that commits them is open
+  private static final String PINNED_KEY = "inventory:holds:pinned";
+  // committed quantities per product that are not deducted from product stock yet
+  private static final String PENDING_SYNC_KEY = "inventory:sync:pending";
+  private static final String COMMITTED_KEY = "inventory:sync:orders";
+  private static final String SYNC_LEASE_KEY = "inventory:sync:lease";
+  private static final Duration HOLD_KEY_GRACE = Duration.ofHours(1);
+  // a seed is one database read, it keeps the sync lease only for a short while
+  private static final Duration SEED_LEASE = Duration.ofSeconds(30);
+  private static final Duration SEED_POLL_INTERVAL = Duration.ofMillis(25);
+  private static final int BATCH_SIZE = 100;
+
+  // KEYS: hold, held, expiry, stock keys... ARGV: order id, expire at, hold ttl, product/qty pairs
+  private static final RedisScript<List> HOLD_SCRIPT = RedisScript.of("""
+      if redis.call('EXISTS', KEYS[1]) == 1 then
+        return {}
+      end
+      local short = {}
+      for i = 4, #KEYS do
+        local quantity = tonumber(ARGV[(i - 4) * 2 + 5])
+        local stock = tonumber(redis.call('GET', KEYS[i]))
+        if stock == nil or stock < quantity then
+          table.insert(short, ARGV[(i - 4) * 2 + 4])
+        end
+      end
+      if #short > 0 then
+        return short
+      end
+      for i = 4, #KEYS do
+        local productId = ARGV[(i - 4) * 2 + 4]
+        local quantity = tonumber(ARGV[(i - 4) * 2 + 5])
+        redis.call('DECRBY', KEYS[i], quantity)
+        redis.call('HINCRBY', KEYS[2], productId, quantity)
+        redis.call('HSET', KEYS[1], productId, quantity)
+      end
+      redis.call('EXPIRE', KEYS[1], ARGV[3])
+      redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1])
+      return {}
+      """, List.class);
+
+  // KEYS: hold, expiry, pinned. ARGV: order id. The expiry time is kept as the pinned score
+  private static final RedisScript<Long> PIN_SCRIPT = RedisScript.of("""
+      if redis.call('EXISTS', KEYS[1]) == 0 then
+        return 0
+      end
+      local expireAt = redis.call('ZSCORE', KEYS[2], ARGV[1])
+      if expireAt then
+        redis.call('ZREM', KEYS[2], ARGV[1])
+        redis.call('ZADD', KEYS[3], expireAt, ARGV[1])
+      end
+      return 1
+      """, Long.class);
+
+  // KEYS: hold, expiry, pinned. ARGV: order id
+  private static final RedisScript<Long> UNPIN_SCRIPT = RedisScript.of("""
+      local expireAt = redis.call('ZSCORE', KEYS[3], ARGV[1])
+      if not expireAt then
+        return 0
+      end
+      redis.call('ZREM', KEYS[3], ARGV[1])
+      if redis.call('EXISTS', KEYS[1]) == 1 then
+        redis.call('ZADD', KEYS[2], expireAt, ARGV[1])
+      end
+      return 1
+      """, Long.class);
+
+  // KEYS: hold, held, expiry, pending sync, committed, pinned. ARGV: order id. The committed hash
+  // keeps the quantities of every order until its deduction is synced to the database
+  private static final RedisScript<Long> COMMIT_SCRIPT = RedisScript.of("""
+      local entries = redis.call('HGETALL', KEYS[1])
+      local quantities = {}
+      for i = 1, #entries, 2 do
+        if redis.call('HINCRBY', KEYS[2], entries[i], -tonumber(entries[i + 1])) <= 0 then
+          redis.call('HDEL', KEYS[2], entries[i])
+        end
+        redis.call('HINCRBY', KEYS[4], entries[i], entries[i + 1])
+        table.insert(quantities, entries[i] .. ':' .. entries[i + 1])
+      end
+      if #entries > 0 then
+        redis.call('HSET', KEYS[5], ARGV[1], table.concat(quantities, ','))
+      end
+      redis.call('DEL', KEYS[1])
+      redis.call('ZREM', KEYS[3], ARGV[1])
+      redis.call('ZREM', KEYS[6], ARGV[1])
+      return #entries / 2
+      """, Long.class);
+
+  // KEYS: hold, held, expiry, pinned. ARGV: order id, stock key prefix
+  private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of("""
+      local entries = redis.call('HGETALL', KEYS[1])
+      for i = 1, #entries, 2 do
+        redis.call('INCRBY', ARGV[2] .. entries[i], entries[i + 1])
+        if redis.call('HINCRBY', KEYS[2], entries[i], -tonumber(entries[i + 1])) <= 0 then
+          redis.call('HDEL', KEYS[2], entries[i])
+        end
+      end
+      redis.call('DEL', KEYS[1])
+      redis.call('ZREM', KEYS[3], ARGV[1])
+      redis.call('ZREM', KEYS[4], ARGV[1])
+      return #entries / 2
+      """, Long.class);
+
+  // KEYS: held, expiry, pinned, hold keys... ARGV: stock key prefix, order ids in the order of
+  // the holds
+  private static final RedisScript<Long> RELEASE_ALL_SCRIPT = RedisScript.of("""
+      local released = 0
+      for i = 4, #KEYS do
+        local entries = redis.call('HGETALL', KEYS[i])
+        for j = 1, #entries, 2 do
+          redis.call('INCRBY', ARGV[1] .. entries[j], entries[j + 1])
+          if redis.call('HINCRBY', KEYS[1], entries[j], -tonumber(entries[j + 1])) <= 0 then
+            redis.call('HDEL', KEYS[1], entries[j])
+          end
+        end
+        if #entries > 0 then
+          released = released + 1
+        end
+        redis.call('DEL', KEYS[i])
+        redis.call('ZREM', KEYS[2], ARGV[i - 2])
+        redis.call('ZREM', KEYS[3], ARGV[i - 2])
+      end
+      return released
+      """, Long.class);
+
+  // KEYS: stock, held, pending sync. ARGV: product id, database stock
+  private static final RedisScript<Long> SEED_SCRIPT = RedisScript.of("""
+      if redis.call('EXISTS', KEYS[1]) == 1 then
+        return 0
+      end
+      local held = tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0')
+      local pending = tonumber(redis.call('HGET', KEYS[3], ARGV[1]) or '0')
+      redis.call('SET', KEYS[1], tonumber(ARGV[2]) - held - pending)
+      return 1
+      """, Long.class);
+
+  // KEYS: pending sync, committed. ARGV: order ids whose deduction is in the database
+  private static final RedisScript<Long> SYNCED_SCRIPT = RedisScript.of("""
+      local synced = 0
+      for i = 1, #ARGV do
+        local quantities = redis.call('HGET', KEYS[2], ARGV[i])
+        if quantities then
+          for productId, quantity in string.gmatch(quantities, '(%d+):(%d+)') do
+            if redis.call('HINCRBY', KEYS[1], productId, -tonumber(quantity)) <= 0 then
+              redis.call('HDEL', KEYS[1], productId)
+            end
+          end
+          redis.call('HDEL', KEYS[2], ARGV[i])
+          synced = synced + 1
+        end
+      end
+      return synced
+      """, Long.class);
+
+  // KEYS: lease. ARGV: lease token, lease in millis
+  private static final RedisScript<Long> RENEW_LEASE_SCRIPT = RedisScript.of("""
+      if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+        return 0
+      end
+      return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+      """, Long.class);
+
+  // KEYS: lease. ARGV: lease token
+  private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = RedisScript.of("""
+      if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+        return 0
+      end
+      return redis.call('DEL', KEYS[1])
+      """, Long.class);
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final ProductRepository productRepository;
+  private final InventoryService inventoryService;
+  private final InventoryHoldSyncRepository inventoryHoldSyncRepository;
+  private final TransactionTemplate transactionTemplate;
+
+  @Value("${inventory.hold.ttl:24h}")
+  private Duration holdTtl;
+
+  @Value("${inventory.hold.sync-lease:5m}")
+  private Duration syncLease;
+
+  @Value("${inventory.hold.sync-retention:7d}")
+  private Duration syncRetention;
+
+  @Value("${inventory.hold.seed-wait:5s}")
+  private Duration seedWait;
+
+  @Override
+  public void hold(Long orderId, Map<Long, Integer> productQuantities) {
+    TreeMap<Long, Integer> sortedQuantities = new TreeMap<>(productQuantities);
+    seedMissingStock(new ArrayList<>(sortedQuantities.keySet()));
+
+    List<String> keys = new ArrayList<>();
+    keys.add(holdKey(orderId));
+    keys.add(HELD_KEY);
+    keys.add(HOLD_EXPIRY_KEY);
+    List<String> args = new ArrayList<>();
+    args.add(String.valueOf(orderId));
+    args.add(String.valueOf(System.currentTimeMillis() + holdTtl.toMillis()));
+    args.add(String.valueOf(holdTtl.plus(HOLD_KEY_GRACE).toSeconds()));
+    sortedQuantities.forEach((productId, quantity) -> {
+      keys.add(STOCK_KEY_PREFIX + productId);
+      args.add(String.valueOf(productId));
+      args.add(String.valueOf(quantity));
+    });
+
+    List<?> shortProductIds = redisTemplate.execute(HOLD_SCRIPT, keys, args.toArray());
+    if (shortProductIds != null && !shortProductIds.isEmpty()) {
+      throw new InsufficientInventoryException(shortProductIds.stream()
+          .map(productId -> Long.valueOf(productId.toString()))
+          .toList());
+    }
+
+    // give the stock back if the order that owns this hold is never committed
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          if (status == STATUS_ROLLED_BACK) {
+            releaseHold(orderId);
+          }
+        }
+      });
+    }
+  }
+
+  // a transaction that rolls back after the ledger changed would leave redis and the database
+  // disagreeing for good, so inside a transaction the hold is only pinned against expiry and
+  // the commit waits for the transaction to commit
+  @Override
+  public boolean commit(Long orderId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return commitHold(orderId);
+    }
+
+    Long pinned = redisTemplate.execute(PIN_SCRIPT,
+        List.of(holdKey(orderId), HOLD_EXPIRY_KEY, PINNED_KEY), String.valueOf(orderId));
+    if (pinned == null || pinned == 0) {
+      return false;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        if (!commitHold(orderId)) {
+          log.error("Hold of order {} was gone when its transaction committed", orderId);
+        }
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        if (status != STATUS_COMMITTED) {
+          redisTemplate.execute(UNPIN_SCRIPT,
+              List.of(holdKey(orderId), HOLD_EXPIRY_KEY, PINNED_KEY), String.valueOf(orderId));
+        }
+      }
+    });
+    return true;
+  }
+
+  @Override
+  public void release(Long orderId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      releaseHold(orderId);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        releaseHold(orderId);
+      }
+    });
+  }
+
+  @Override
+  public void releaseAll(Collection<Long> orderIds) {
+    if (orderIds.isEmpty()) {
+      return;
+    }
+
+    List<String> keys = new ArrayList<>();
+    keys.add(HELD_KEY);
+    keys.add(HOLD_EXPIRY_KEY);
+    keys.add(PINNED_KEY);
+    List<String> args = new ArrayList<>();
+    args.add(STOCK_KEY_PREFIX);
+    orderIds.forEach(orderId -> {
+      keys.add(holdKey(orderId));
+      args.add(String.valueOf(orderId));
+    });
+    redisTemplate.execute(RELEASE_ALL_SCRIPT, keys, args.toArray());
+  }
+
+  // a seed that read the database before the change would otherwise write the old stock back
+  // after the delete, so the delete waits for seeds in flight to finish
+  @Override
+  public void evictStock(Long productId) {
+    String token = acquireSeedLease();
+    if (token == null) {
+      log.warn("Evicting stock of product {} while the inventory sync holds the lease",
+          productId);
+    }
+    try {
+      redisTemplate.delete(STOCK_KEY_PREFIX + productId);
+    } finally {
+      if (token != null) {
+        releaseSyncLease(token);
+      }
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${inventory.hold.expiry-check-interval-ms:30000}")
+  public void releaseExpiredHolds() {
+    Set<String> expiredOrderIds = redisTemplate.opsForZSet()
+        .rangeByScore(HOLD_EXPIRY_KEY, 0, System.currentTimeMillis(), 0, BATCH_SIZE);
+    if (expiredOrderIds == null || expiredOrderIds.isEmpty()) {
+      return;
+    }
+
+    releaseAll(expiredOrderIds.stream().map(Long::valueOf).toList());
+    log.info("Released {} expired inventory holds", expiredOrderIds.size());
+  }
+
+  // only the node holding the lease syncs, and the database marker of each order keeps a sync
+  // that is retried after a failed cleanup from deducting the same order again. seeds take the
+  // same lease, so the lease is renewed before each batch and a lost lease ends the run
+  @Scheduled(fixedDelayString = "${inventory.hold.sync-interval-ms:10000}")
+  public void syncCommittedHolds() {
+    String token = UUID.randomUUID().toString();
+    if (!Boolean.TRUE.equals(
+        redisTemplate.opsForValue().setIfAbsent(SYNC_LEASE_KEY, token, syncLease))) {
+      return;
+    }
+
+    try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash().scan(
+        COMMITTED_KEY, ScanOptions.scanOptions().count(BATCH_SIZE).build())) {
+      Map<Long, Map<Long, Integer>> batch = new HashMap<>();
+      while (cursor.hasNext()) {
+        Map.Entry<Object, Object> entry = cursor.next();
+        batch.put(Long.valueOf(entry.getKey().toString()),
+            parseQuantities(entry.getValue().toString()));
+        if (batch.size() >= BATCH_SIZE || !cursor.hasNext()) {
+          if (!renewSyncLease(token)) {
+            log.warn("Inventory sync lease was lost, stopping the sync");
+            return;
+          }
+          syncBatch(batch);
+          batch.clear();
+        }
+      }
+    } catch (Exception e) {
+      log.error("Error while syncing committed inventory holds. error message: {}",
+          e.getMessage());
+    } finally {
+      releaseSyncLease(token);
+    }
+  }
+
+  // run each hour, markers only need to outlive the redis entry of their order
+  @Scheduled(cron = "0 30 * * * *")
+  public void deleteSyncMarkers() {
+    int deleted = inventoryHoldSyncRepository.deleteSyncedBefore(
+        LocalDateTime.now().minus(syncRetention));
+    log.info("Deleted {} inventory hold sync markers", deleted);
+  }
+
+  private void syncBatch(Map<Long, Map<Long, Integer>> holds) {
+    transactionTemplate.executeWithoutResult(status -> {
+      Map<Long, Integer> quantities = new HashMap<>();
+      inventoryHoldSyncRepository.markSynced(holds.keySet()).forEach(orderId ->
+          holds.get(orderId).forEach((productId, quantity) ->
+              quantities.merge(productId, quantity, Integer::sum)));
+      inventoryService.deductQuantity(quantities);
+    });
+
+    // a failure here leaves the orders for the next run, which finds them already marked
+    redisTemplate.execute(SYNCED_SCRIPT, List.of(PENDING_SYNC_KEY, COMMITTED_KEY),
+        holds.keySet().stream().map(String::valueOf).toArray());
+  }
+
+  private Map<Long, Integer> parseQuantities(String quantities) {
+    Map<Long, Integer> productQuantities = new HashMap<>();
+    for (String entry : quantities.split(",")) {
+      String[] productQuantity = entry.split(":");
+      productQuantities.put(Long.valueOf(productQuantity[0]),
+          Integer.valueOf(productQuantity[1]));
+    }
+    return productQuantities;
+  }
+
+  private void seedMissingStock(List<Long> productIds) {
+    List<String> stockKeys = productIds.stream()
+        .map(productId -> STOCK_KEY_PREFIX + productId)
+        .toList();
+    List<String> stocks = redisTemplate.opsForValue().multiGet(stockKeys);
+
+    List<Long> missingProductIds = new ArrayList<>();
+    for (int i = 0; i < productIds.size(); i++) {
+      if (stocks == null || stocks.get(i) == null) {
+        missingProductIds.add(productIds.get(i));
+      }
+    }
+    if (missingProductIds.isEmpty()) {
+      return;
+    }
+
+    // the sync deducts the database stock first and clears the pending quantities after, a seed
+    // between the two would read one before and the other after the sync. seeds hold the sync
+    // lease so the database stock and the pending quantities describe the same synced orders
+    String token = acquireSeedLease();
+    if (token == null) {
+      throw new InventoryException("Stock is being synced, please try again");
+    }
+    try {
+      for (Object[] row : productRepository.findCurrentStockQuantities(missingProductIds)) {
+        Long productId = ((Number) row[0]).longValue();
+        redisTemplate.execute(SEED_SCRIPT,
+            List.of(STOCK_KEY_PREFIX + productId, HELD_KEY, PENDING_SYNC_KEY),
+            String.valueOf(productId), String.valueOf(((Number) row[1]).longValue()));
+      }
+    } finally {
+      releaseSyncLease(token);
+    }
+  }
+
+  // null when the sync kept the lease for longer than the seed wait
+  private String acquireSeedLease() {
+    String token = UUID.randomUUID().toString();
+    long deadline = System.nanoTime() + seedWait.toNanos();
+    while (!Boolean.TRUE.equals(
+        redisTemplate.opsForValue().setIfAbsent(SYNC_LEASE_KEY, token, SEED_LEASE))) {
+      if (System.nanoTime() >= deadline) {
+        return null;
+      }
+      try {
+        Thread.sleep(SEED_POLL_INTERVAL.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+    }
+    return token;
+  }
+
+  private boolean renewSyncLease(String token) {
+    Long renewed = redisTemplate.execute(RENEW_LEASE_SCRIPT, List.of(SYNC_LEASE_KEY), token,
+        String.valueOf(syncLease.toMillis()));
+    return renewed != null && renewed > 0;
+  }
+
+  private void releaseSyncLease(String token) {
+    redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(SYNC_LEASE_KEY), token);
+  }
+
+  private boolean commitHold(Long orderId) {
+    Long committed = redisTemplate.execute(COMMIT_SCRIPT,
+        List.of(holdKey(orderId), HELD_KEY, HOLD_EXPIRY_KEY, PENDING_SYNC_KEY, COMMITTED_KEY,
+            PINNED_KEY),
+        String.valueOf(orderId));
+    return committed != null && committed > 0;
+  }
+
+  private void releaseHold(Long orderId) {
+    redisTemplate.execute(RELEASE_SCRIPT,
+        List.of(holdKey(orderId), HELD_KEY, HOLD_EXPIRY_KEY, PINNED_KEY),
+        String.valueOf(orderId), STOCK_KEY_PREFIX);
+  }
+
+  private String holdKey(Long orderId) {
+    return HOLD_KEY_PREFIX + orderId;
+  }
+}
@@ -0,0 +1,255 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
+import com.fastcampus.ecommerce.common.errors.WaitingRoomException;
+import com.fastcampus.ecommerce.model.QueueTicketResponse;
+import com.fastcampus.ecommerce.model.QueueTicketStatus;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RedisWaitingRoomServiceImpl implements
+    WaitingRoomService {
+
+  private static final String PRODUCTS_KEY = "waiting-room:products";
+  private static final String SEQUENCE_KEY = "waiting-room:sequence";
+  private static final String QUEUE_KEY_PREFIX = "waiting-room:queue:";
+  private static final String BUCKET_KEY_PREFIX = "waiting-room:bucket:";
+  private static final String TICKET_KEY_PREFIX = "waiting-room:ticket:";
+  private static final String USER_TICKET_KEY_PREFIX = "waiting-room:user:";
+
+  // KEYS: products, user ticket, queue, sequence. ARGV: product id, user id, ticket ttl,
+  // ticket key prefix, new ticket id. Returns the ticket id, or nil without a waiting room
+  private static final RedisScript<String> JOIN_SCRIPT = RedisScript.of("""
+      if redis.call('SISMEMBER', KEYS[1], ARGV[1]) == 0 then
+        return false
+      end
+      local existing = redis.call('GET', KEYS[2])
+      if existing then
+        local status = redis.call('HGET', ARGV[4] .. existing, 'status')
+        if status and status ~= 'USED' then
+          return existing
+        end
+      end
+      local ticketKey = ARGV[4] .. ARGV[5]
+      redis.call('HSET', ticketKey, 'user_id', ARGV[2], 'product_id', ARGV[1], 'status', 'WAITING')
+      redis.call('EXPIRE', ticketKey, ARGV[3])
+      redis.call('ZADD', KEYS[3], redis.call('INCR', KEYS[4]), ARGV[5])
+      redis.call('SET', KEYS[2], ARGV[5], 'EX', ARGV[3])
+      return ARGV[5]
+      """, String.class);
+
+  // KEYS: queue, bucket. ARGV: now in millis, rate per second, burst, admission ttl,
+  // ticket key prefix. Tickets that expired while waiting do not take a token
+  private static final RedisScript<Long> DISPATCH_SCRIPT = RedisScript.of("""
+      local now = tonumber(ARGV[1])
+      local burst = tonumber(ARGV[3])
+      local bucket = redis.call('HMGET', KEYS[2], 'tokens', 'refilled_at')
+      local tokens = tonumber(bucket[1]) or burst
+      local refilledAt = tonumber(bucket[2]) or now
+      tokens = math.min(burst, tokens + (now - refilledAt) / 1000 * tonumber(ARGV[2]))
+      local admitted = 0
+      while tokens >= 1 do
+        local popped = redis.call('ZPOPMIN', KEYS[1])
+        if #popped == 0 then
+          break
+        end
+        local ticketKey = ARGV[5] .. popped[1]
+        if redis.call('HGET', ticketKey, 'status') == 'WAITING' then
+          redis.call('HSET', ticketKey, 'status', 'ADMITTED')
+          redis.call('EXPIRE', ticketKey, ARGV[4])
+          tokens = tokens - 1
+          admitted = admitted + 1
+        end
+      end
+      redis.call('HSET', KEYS[2], 'tokens', tostring(tokens), 'refilled_at', ARGV[1])
+      return admitted
+      """, Long.class);
+
+  // KEYS: products. ARGV: user id, ticket key prefix, product count, product ids..., ticket
+  // ids... Every gated product needs an admitted ticket of its own. Returns ADMITTED followed by
+  // the used ticket ids, or MISSING followed by the gated products no ticket admits
+  private static final RedisScript<List> ADMIT_SCRIPT = RedisScript.of("""
+      local productCount = tonumber(ARGV[3])
+      local gated = {}
+      local gatedIds = {}
+      for i = 4, 3 + productCount do
+        if gated[ARGV[i]] == nil and redis.call('SISMEMBER', KEYS[1], ARGV[i]) == 1 then
+          gated[ARGV[i]] = false
+          table.insert(gatedIds, ARGV[i])
+        end
+      end
+      for i = 4 + productCount, #ARGV do
+        local ticket = redis.call('HMGET', ARGV[2] .. ARGV[i], 'user_id', 'product_id', 'status')
+        if ticket[1] == ARGV[1] and ticket[3] == 'ADMITTED' and gated[ticket[2]] == false then
+          gated[ticket[2]] = ARGV[i]
+        end
+      end
+      local missing = {'MISSING'}
+      for _, productId in ipairs(gatedIds) do
+        if not gated[productId] then
+          table.insert(missing, productId)
+        end
+      end
+      if #missing > 1 then
+        return missing
+      end
+      local used = {'ADMITTED'}
+      for _, productId in ipairs(gatedIds) do
+        redis.call('HSET', ARGV[2] .. gated[productId], 'status', 'USED')
+        table.insert(used, gated[productId])
+      end
+      return used
+      """, List.class);
+
+  // KEYS: tickets... Only used tickets that have not expired are admitted again
+  private static final RedisScript<Long> RESTORE_SCRIPT = RedisScript.of("""
+      local restored = 0
+      for i = 1, #KEYS do
+        if redis.call('HGET', KEYS[i], 'status') == 'USED' then
+          redis.call('HSET', KEYS[i], 'status', 'ADMITTED')
+          restored = restored + 1
+        end
+      end
+      return restored
+      """, Long.class);
+
+  private final RedisTemplate<String, String> redisTemplate;
+
+  @Value("${waiting-room.admission-rate:20}")
+  private int admissionRate;
+
+  @Value("${waiting-room.admission-burst:20}")
+  private int admissionBurst;
+
+  @Value("${waiting-room.ticket-ttl:30m}")
+  private Duration ticketTtl;
+
+  @Value("${waiting-room.admission-ttl:5m}")
+  private Duration admissionTtl;
+
+  @Override
+  public void open(Long productId) {
+    redisTemplate.opsForSet().add(PRODUCTS_KEY, String.valueOf(productId));
+  }
+
+  @Override
+  public void close(Long productId) {
+    redisTemplate.opsForSet().remove(PRODUCTS_KEY, String.valueOf(productId));
+    // tickets still in the queue just expire, checkout is no longer gated for the product
+    redisTemplate.delete(List.of(QUEUE_KEY_PREFIX + productId, BUCKET_KEY_PREFIX + productId));
+  }
+
+  @Override
+  public QueueTicketResponse join(Long userId, Long productId) {
+    String ticketId = redisTemplate.execute(JOIN_SCRIPT,
+        List.of(PRODUCTS_KEY, USER_TICKET_KEY_PREFIX + productId + ":" + userId,
+            QUEUE_KEY_PREFIX + productId, SEQUENCE_KEY),
+        String.valueOf(productId), String.valueOf(userId),
+        String.valueOf(ticketTtl.toSeconds()), TICKET_KEY_PREFIX, UUID.randomUUID().toString());
+    if (ticketId == null) {
+      throw new BadRequestException("Product with id " + productId + " has no waiting room");
+    }
+
+    return findTicket(userId, ticketId)
+        .orElseThrow(() -> new WaitingRoomException("Queue ticket " + ticketId + " expired"));
+  }
+
+  @Override
+  public Optional<QueueTicketResponse> findTicket(Long userId, String ticketId) {
+    Map<Object, Object> ticket = redisTemplate.opsForHash().entries(TICKET_KEY_PREFIX + ticketId);
+    if (ticket.isEmpty() || !String.valueOf(userId).equals(ticket.get("user_id"))) {
+      return Optional.empty();
+    }
+
+    Long productId = Long.valueOf(ticket.get("product_id").toString());
+    QueueTicketStatus status = QueueTicketStatus.valueOf(ticket.get("status").toString());
+    long position = 0;
+    if (status == QueueTicketStatus.WAITING) {
+      Long rank = redisTemplate.opsForZSet().rank(QUEUE_KEY_PREFIX + productId, ticketId);
+      position = rank == null ? 0 : rank + 1;
+    }
+
+    return Optional.of(QueueTicketResponse.builder()
+        .ticketId(ticketId)
+        .productId(productId)
+        .status(status)
+        .position(position)
+        .retryAfterSeconds(status == QueueTicketStatus.WAITING
+            ? Math.max(1, (position + admissionRate - 1) / admissionRate)
+            : 0)
+        .build());
+  }
+
+  @Override
+  public boolean hasOpenRooms() {
+    Long size = redisTemplate.opsForSet().size(PRODUCTS_KEY);
+    return size != null && size > 0;
+  }
+
+  @Override
+  public List<String> admit(Long userId, Collection<String> ticketIds,
+      Collection<Long> productIds) {
+    List<String> args = new ArrayList<>();
+    args.add(String.valueOf(userId));
+    args.add(TICKET_KEY_PREFIX);
+    args.add(String.valueOf(productIds.size()));
+    productIds.forEach(productId -> args.add(String.valueOf(productId)));
+    args.addAll(ticketIds);
+
+    List<?> result = redisTemplate.execute(ADMIT_SCRIPT, List.of(PRODUCTS_KEY), args.toArray());
+    if (result == null || result.isEmpty()) {
+      throw new WaitingRoomException("Waiting room admission could not be checked, try again");
+    }
+    List<String> values = result.stream().map(Object::toString).toList();
+    if (values.get(0).equals("MISSING")) {
+      throw new WaitingRoomException("Products " + values.subList(1, values.size())
+          + " are sold through a waiting room, join the queue of each of them and check out"
+          + " with one admitted queue ticket per product");
+    }
+    return values.subList(1, values.size());
+  }
+
+  @Override
+  public void restoreTickets(Collection<String> ticketIds) {
+    if (!ticketIds.isEmpty()) {
+      redisTemplate.execute(RESTORE_SCRIPT, ticketIds.stream()
+          .map(ticketId -> TICKET_KEY_PREFIX + ticketId)
+          .toList());
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${waiting-room.dispatch-interval-ms:1000}")
+  public void dispatch() {
+    Set<String> productIds = redisTemplate.opsForSet().members(PRODUCTS_KEY);
+    if (productIds == null || productIds.isEmpty()) {
+      return;
+    }
+
+    for (String productId : productIds) {
+      Long admitted = redisTemplate.execute(DISPATCH_SCRIPT,
+          List.of(QUEUE_KEY_PREFIX + productId, BUCKET_KEY_PREFIX + productId),
+          String.valueOf(System.currentTimeMillis()), String.valueOf(admissionRate),
+          String.valueOf(admissionBurst), String.valueOf(admissionTtl.toSeconds()),
+          TICKET_KEY_PREFIX);
+      if (admitted != null && admitted > 0) {
+        log.info("Admitted {} queue tickets for product {}", admitted, productId);
+      }
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.fastcampus.ecommerce.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+// a counter shared by every node that each write to the product index bumps. cached search
+// results carry it in their key, so a write makes every older entry unreachable at once and
+// they expire on their own
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchIndexGeneration {
+
+  static final String GENERATION_KEY = "search:index:generation";
+
+  private final RedisTemplate<String, String> redisTemplate;
+
+  public long current() {
+    String generation = redisTemplate.opsForValue().get(GENERATION_KEY);
+    return generation == null ? 0 : Long.parseLong(generation);
+  }
+
+  // call once the write is searchable, a bump before the refresh lets a search cache the old
+  // results under the new generation
+  public void bump() {
+    try {
+      redisTemplate.opsForValue().increment(GENERATION_KEY);
+    } catch (RuntimeException ex) {
+      // cached results stay until their ttl
+      log.warn("Error while bumping search index generation. error message: {}",
+          ex.getMessage());
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.fastcampus.ecommerce.service;
 
 import com.fastcampus.ecommerce.model.ActivityType;
+import com.fastcampus.ecommerce.model.AutocompleteSuggestions;
 import com.fastcampus.ecommerce.model.ProductResponse;
 import com.fastcampus.ecommerce.model.ProductSearchRequest;
 import com.fastcampus.ecommerce.model.SearchResponse;
@@ -10,6 +11,9 @@ public interface SearchService {
 
   SearchResponse<ProductResponse> search(ProductSearchRequest searchRequest);
 
+  // without facets their aggregation is skipped and the response facets are null
+  SearchResponse<ProductResponse> search(ProductSearchRequest searchRequest, boolean withFacets);
+
   SearchResponse<ProductResponse> similarProducts(Long productId);
 
   SearchResponse<ProductResponse> userRecommendation(Long userId, ActivityType activityType);
@@ -20,5 +24,5 @@ public interface SearchService {
 
   List<String> getFuzzyAutocomplete(String query);
 
-  List<String> combinedAutocomplete(String query);
+  AutocompleteSuggestions combinedAutocomplete(String query);
 }
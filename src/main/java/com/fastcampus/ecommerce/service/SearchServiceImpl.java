@@ -1,5 +1,6 @@
 package com.fastcampus.ecommerce.service;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch._types.SortOrder;
@@ -18,23 +19,42 @@ import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch._types.query_dsl.RangeQuery;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.search.CompletionSuggestOption;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
 import co.elastic.clients.json.JsonData;
+import com.fastcampus.ecommerce.common.CursorUtil;
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
 import com.fastcampus.ecommerce.entity.UserActivity;
 import com.fastcampus.ecommerce.model.ActivityType;
+import com.fastcampus.ecommerce.model.AutocompleteSuggestions;
 import com.fastcampus.ecommerce.model.CategoryResponse;
 import com.fastcampus.ecommerce.model.ProductDocument;
 import com.fastcampus.ecommerce.model.ProductResponse;
 import com.fastcampus.ecommerce.model.ProductSearchRequest;
+import com.fastcampus.ecommerce.model.SearchHydrationMode;
 import com.fastcampus.ecommerce.model.SearchResponse;
 import com.fastcampus.ecommerce.model.SearchResponse.FacetEntry;
+import com.fastcampus.ecommerce.repository.ProductRepository;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -43,15 +63,44 @@ import org.springframework.stereotype.Service;
 public class SearchServiceImpl implements SearchService {
 
   private final ElasticsearchClient elasticsearchClient;
+  private final ElasticsearchAsyncClient elasticsearchAsyncClient;
   private final ProductIndexService productIndexService;
   private final ProductService productService;
   private final UserActivityService userActivityService;
+  private final ProductRepository productRepository;
 
   private final int SIMILAR_PRODUCT_COUNT = 10;
   private final int USER_RECOMMENDATION_LIMIT = 10;
+  // what ProductResponse is built from, the suggest fields and counters stay on the shards
+  private static final List<String> RESPONSE_SOURCE_FIELDS = List.of("id", "name",
+      "description", "price", "weight", "stockQuantity", "userId", "categories", "createdAt",
+      "updatedAt");
+
+  @Value("${search.hydration.mode:SOURCE}")
+  private SearchHydrationMode hydrationMode;
+
+  // one query for the page checks every hit against the database, stale hits are read through
+  // the product cache and deleted ones are dropped
+  @Value("${search.hydration.verify-freshness:true}")
+  private boolean verifyFreshness;
+
+  // how long a cursor stays valid after its last page was read
+  @Value("${search.cursor.keep-alive:1m}")
+  private String cursorKeepAlive;
+
+  // how long combined autocomplete waits for its strategies, whatever has not answered by then
+  // is left out
+  @Value("${search.autocomplete.budget:150ms}")
+  private Duration autocompleteBudget;
 
   @Override
   public SearchResponse<ProductResponse> search(ProductSearchRequest searchRequest) {
+    return search(searchRequest, true);
+  }
+
+  @Override
+  public SearchResponse<ProductResponse> search(ProductSearchRequest searchRequest,
+      boolean withFacets) {
     BoolQuery.Builder boolQuery = new BoolQuery.Builder();
 
     // full text search on name description
@@ -103,8 +152,8 @@ public class SearchServiceImpl implements SearchService {
             .scoreMode(FunctionScoreMode.Sum));
 
     SearchRequest.Builder requestBuilder = new SearchRequest.Builder()
-        .index(productIndexService.indexName())
-        .query(functionScoreQuery._toQuery());
+        .query(functionScoreQuery._toQuery())
+        .source(responseSource());
 
     // add sorting
     requestBuilder.sort(s ->
@@ -113,25 +162,33 @@ public class SearchServiceImpl implements SearchService {
                 .order(
                     "asc".equals(searchRequest.getSortOrder()) ? SortOrder.Asc : SortOrder.Desc)));
 
-    // add pagination
-    requestBuilder.from((searchRequest.getPage() - 1) * searchRequest.getSize())
-        .size(searchRequest.getSize());
+    boolean cursorMode = searchRequest.getCursor() != null;
+    boolean firstPage = !cursorMode || searchRequest.getCursor().isEmpty();
+    if (!cursorMode) {
+      // add pagination
+      requestBuilder.index(productIndexService.indexName())
+          .from((searchRequest.getPage() - 1) * searchRequest.getSize())
+          .size(searchRequest.getSize());
+    }
 
-    // aggregations
-    requestBuilder.aggregations("categories", a ->
-            a.nested(n ->
-                    n.path("categories"))
-                .aggregations("category_names", sa ->
-                    sa.terms(t ->
-                        t.field("categories.name.keyword"))))
-        .from(searchRequest.getPage() - 1);
+    // facets only change with the filters, later pages of a cursor skip them
+    if (withFacets && firstPage) {
+      requestBuilder.aggregations("categories", a ->
+          a.nested(n ->
+                  n.path("categories"))
+              .aggregations("category_names", sa ->
+                  sa.terms(t ->
+                      t.field("categories.name.keyword"))));
+    }
 
-    SearchRequest elasticRequest = requestBuilder.build();
     SearchResponse<ProductResponse> response;
     try {
-      co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument> results = elasticsearchClient.search(
-          elasticRequest, ProductDocument.class);
-      response = mapSearchResults(results);
+      if (!cursorMode) {
+        co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument> results =
+            elasticsearchClient.search(requestBuilder.build(), ProductDocument.class);
+        return mapSearchResults(results);
+      }
+      response = searchAfter(searchRequest, requestBuilder);
     } catch (IOException e) {
       log.error("Error while performing search. error message: {}", e.getMessage());
       throw new RuntimeException(e);
@@ -140,6 +197,64 @@ public class SearchServiceImpl implements SearchService {
     return response;
   }
 
+  // every page of a cursor reads the same point in time and seeks past the last hit of the
+  // previous one, so no shard sorts the skipped hits again and concurrent writes do not shift
+  // the pages
+  private SearchResponse<ProductResponse> searchAfter(ProductSearchRequest searchRequest,
+      SearchRequest.Builder requestBuilder) throws IOException {
+    String fingerprint = fingerprint(searchRequest);
+    String pitId;
+    if (searchRequest.getCursor().isEmpty()) {
+      pitId = elasticsearchClient.openPointInTime(o ->
+          o.index(productIndexService.indexName())
+              .keepAlive(t -> t.time(cursorKeepAlive))).id();
+    } else {
+      // fingerprint, point in time, id and sort value of the last hit
+      String[] position = CursorUtil.decode(searchRequest.getCursor(), 4);
+      if (!fingerprint.equals(position[0])) {
+        throw new BadRequestException("Cursor does not belong to this search");
+      }
+      pitId = position[1];
+      requestBuilder.searchAfter(position[3], position[2]);
+    }
+
+    // id breaks ties so hits with the same sort value keep one order across pages
+    requestBuilder.sort(s -> s.field(f -> f.field("id").order(SortOrder.Asc)))
+        .pit(p -> p.id(pitId).keepAlive(t -> t.time(cursorKeepAlive)))
+        .size(searchRequest.getSize());
+    co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument> results =
+        elasticsearchClient.search(requestBuilder.build(), ProductDocument.class);
+    SearchResponse<ProductResponse> response = mapSearchResults(results);
+
+    List<Hit<ProductDocument>> hits = results.hits().hits();
+    // the point in time id may change between pages, the latest one is carried on
+    String nextPitId = results.pitId() != null ? results.pitId() : pitId;
+    if (hits.isEmpty() || hits.size() < searchRequest.getSize()) {
+      closePointInTime(nextPitId);
+      return response;
+    }
+    List<String> lastSort = hits.get(hits.size() - 1).sort();
+    response.setNextCursor(CursorUtil.encode(fingerprint, nextPitId, lastSort.get(1),
+        lastSort.get(0)));
+    return response;
+  }
+
+  private void closePointInTime(String pitId) {
+    try {
+      elasticsearchClient.closePointInTime(c -> c.id(pitId));
+    } catch (IOException | RuntimeException ex) {
+      // it expires after the keep alive anyway
+      log.warn("Error while closing point in time. error message: {}", ex.getMessage());
+    }
+  }
+
+  // a cursor only continues the search it was issued for
+  private String fingerprint(ProductSearchRequest searchRequest) {
+    return Integer.toHexString(Objects.hash(searchRequest.getQuery(),
+        searchRequest.getCategory(), searchRequest.getMinPrice(), searchRequest.getMaxPrice(),
+        searchRequest.getSortBy(), searchRequest.getSortOrder(), searchRequest.getSize()));
+  }
+
   @Override
   public SearchResponse<ProductResponse> similarProducts(Long productId) {
     ProductResponse sourceProduct = productService.findById(productId);
@@ -194,6 +309,7 @@ public class SearchServiceImpl implements SearchService {
           s ->
               s.index(productIndexService.indexName())
                   .query(q -> q.functionScore(functionScoreQuery))
+                  .source(responseSource())
                   .size(SIMILAR_PRODUCT_COUNT)
           , ProductDocument.class);
 
@@ -227,28 +343,8 @@ public class SearchServiceImpl implements SearchService {
 
   @Override
   public List<String> getAutocomplete(String query) {
-    co.elastic.clients.elasticsearch.core.SearchResponse<Void> response;
-
     try {
-      response = elasticsearchClient.search(s ->
-              s.index(productIndexService.indexName())
-                  .suggest(su ->
-                      su.suggesters("name_suggest", fs ->
-                          fs.prefix(query)
-                              .completion(cs ->
-                                  cs.field("nameSuggest")
-                                      .skipDuplicates(true)
-                                      .size(3)
-                              )
-                      ))
-          , Void.class);
-
-      return response.suggest().get("name_suggest")
-          .stream()
-          .flatMap(s -> s.completion().options().stream())
-          .map(CompletionSuggestOption::text)
-          .toList();
-
+      return suggestions(elasticsearchClient.search(completionRequest(query), Void.class));
     } catch (IOException e) {
       log.error("Error during autocomplete. error message {}", e.getMessage());
       return List.of();
@@ -257,26 +353,8 @@ public class SearchServiceImpl implements SearchService {
 
   @Override
   public List<String> getNgramAutocomplete(String query) {
-    co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument> response;
-
     try {
-      response = elasticsearchClient.search(s ->
-              s.index(productIndexService.indexName())
-                  .query(q ->
-                      q.match(m ->
-                          m.field("nameNgram")
-                              .query(query)
-                              .analyzer("ngram_analyzer")
-                      )
-                  )
-                  .size(3)
-          , ProductDocument.class);
-
-      return response.hits().hits()
-          .stream()
-          .map(hit -> hit.source().getName())
-          .toList();
-
+      return hitNames(elasticsearchClient.search(ngramRequest(query), ProductDocument.class));
     } catch (IOException e) {
       log.error("Error during autocomplete. error message {}", e.getMessage());
       return List.of();
@@ -285,49 +363,124 @@ public class SearchServiceImpl implements SearchService {
 
   @Override
   public List<String> getFuzzyAutocomplete(String query) {
-    co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument> response;
-
     try {
-      response = elasticsearchClient.search(s ->
-              s.index(productIndexService.indexName())
-                  .query(q ->
-                      q.fuzzy(f ->
-                          f.field("name")
-                              .value(query)
-                              .fuzziness("AUTO")
-                      )
-                  )
-                  .size(3)
-          , ProductDocument.class);
-
-      return response.hits().hits()
-          .stream()
-          .map(hit -> hit.source().getName())
-          .toList();
-
+      return hitNames(elasticsearchClient.search(fuzzyRequest(query), ProductDocument.class));
     } catch (IOException e) {
       log.error("Error during autocomplete. error message {}", e.getMessage());
       return List.of();
     }
   }
 
+  // the three strategies are sent at once instead of one after another, and merged in the same
+  // order with the same rules. a strategy that misses the budget counts as empty like a failed
+  // one. fuzzy is sent even when it ends up unused, it costs a shard request but no latency
   @Override
-  public List<String> combinedAutocomplete(String query) {
-    List<String> results = new ArrayList<>();
-
-    results.addAll(getAutocomplete(query));
+  public AutocompleteSuggestions combinedAutocomplete(String query) {
+    long deadline = System.nanoTime() + autocompleteBudget.toNanos();
+    CompletableFuture<co.elastic.clients.elasticsearch.core.SearchResponse<Void>> completion =
+        elasticsearchAsyncClient.search(completionRequest(query), Void.class);
+    CompletableFuture<co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument>> ngram =
+        elasticsearchAsyncClient.search(ngramRequest(query), ProductDocument.class);
+    CompletableFuture<co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument>> fuzzy =
+        elasticsearchAsyncClient.search(fuzzyRequest(query), ProductDocument.class);
+
+    AtomicBoolean partial = new AtomicBoolean();
+    List<String> results = new ArrayList<>(
+        awaitWithin(completion, this::suggestions, deadline, partial));
 
     if (results.size() < 5) {
-      results.addAll(getNgramAutocomplete(query));
+      results.addAll(awaitWithin(ngram, this::hitNames, deadline, partial));
+    } else {
+      ngram.cancel(true);
     }
 
     if (results.size() < 5) {
-      results.addAll(getFuzzyAutocomplete(query));
+      results.addAll(awaitWithin(fuzzy, this::hitNames, deadline, partial));
+    } else {
+      fuzzy.cancel(true);
     }
 
-    return results.stream()
-        .distinct()
-        .limit(5)
+    return AutocompleteSuggestions.builder()
+        .suggestions(results.stream()
+            .distinct()
+            .limit(5)
+            .toList())
+        .partial(partial.get())
+        .build();
+  }
+
+  // cancelling the client future aborts its http request
+  private <T> List<String> awaitWithin(CompletableFuture<T> strategy,
+      Function<T, List<String>> extractor, long deadline, AtomicBoolean partial) {
+    try {
+      return extractor.apply(
+          strategy.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS));
+    } catch (TimeoutException e) {
+      strategy.cancel(true);
+      log.debug("Autocomplete strategy missed the {} budget", autocompleteBudget);
+    } catch (ExecutionException e) {
+      log.error("Error during autocomplete. error message {}", e.getCause().getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    partial.set(true);
+    return List.of();
+  }
+
+  private SearchRequest completionRequest(String query) {
+    return SearchRequest.of(s ->
+        s.index(productIndexService.indexName())
+            .suggest(su ->
+                su.suggesters("name_suggest", fs ->
+                    fs.prefix(query)
+                        .completion(cs ->
+                            cs.field("nameSuggest")
+                                .skipDuplicates(true)
+                                .size(3)
+                        )
+                )));
+  }
+
+  private SearchRequest ngramRequest(String query) {
+    return SearchRequest.of(s ->
+        s.index(productIndexService.indexName())
+            .query(q ->
+                q.match(m ->
+                    m.field("nameNgram")
+                        .query(query)
+                        .analyzer("ngram_analyzer")
+                )
+            )
+            .size(3));
+  }
+
+  private SearchRequest fuzzyRequest(String query) {
+    return SearchRequest.of(s ->
+        s.index(productIndexService.indexName())
+            .query(q ->
+                q.fuzzy(f ->
+                    f.field("name")
+                        .value(query)
+                        .fuzziness("AUTO")
+                )
+            )
+            .size(3));
+  }
+
+  private List<String> suggestions(
+      co.elastic.clients.elasticsearch.core.SearchResponse<Void> response) {
+    return response.suggest().get("name_suggest")
+        .stream()
+        .flatMap(s -> s.completion().options().stream())
+        .map(CompletionSuggestOption::text)
+        .toList();
+  }
+
+  private List<String> hitNames(
+      co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument> response) {
+    return response.hits().hits()
+        .stream()
+        .map(hit -> hit.source().getName())
         .toList();
   }
 
@@ -366,6 +519,7 @@ public class SearchServiceImpl implements SearchService {
       response = elasticsearchClient.search(s -> s
               .index(productIndexService.indexName())
               .query(q -> q.functionScore(functionScoreQuery))
+              .source(responseSource())
               .size(USER_RECOMMENDATION_LIMIT),
           ProductDocument.class
       );
@@ -386,15 +540,82 @@ public class SearchServiceImpl implements SearchService {
         .toList();
   }
 
+  private SourceConfig responseSource() {
+    if (hydrationMode == SearchHydrationMode.DATABASE) {
+      // only the hit ids are used
+      return SourceConfig.of(s -> s.fetch(false));
+    }
+    return SourceConfig.of(s -> s.filter(f -> f.includes(RESPONSE_SOURCE_FIELDS)));
+  }
+
+  private List<ProductResponse> hydrateFromSource(List<Hit<ProductDocument>> hits) {
+    Map<Long, ProductResponse> productsById = new LinkedHashMap<>();
+    hits.forEach(hit -> productsById.put(Long.parseLong(hit.id()),
+        hit.source() == null ? null : ProductResponse.fromProductDocument(hit.source())));
+    if (productsById.isEmpty()) {
+      return List.of();
+    }
+
+    List<Long> staleIds = new ArrayList<>();
+    if (verifyFreshness) {
+      Map<Long, Object[]> freshness = productRepository.findFreshnessByIds(productsById.keySet())
+          .stream()
+          .collect(Collectors.toMap(row -> (Long) row[0], Function.identity()));
+      productsById.replaceAll((productId, product) -> {
+        Object[] row = freshness.get(productId);
+        if (row == null) {
+          // deleted after it was indexed
+          return null;
+        }
+        if (product == null || isNewer((LocalDateTime) row[1], product.getUpdatedAt())) {
+          staleIds.add(productId);
+          return product;
+        }
+        // checkouts change stock without touching updated_at or the index
+        product.setStockQuantity(((Number) row[2]).intValue());
+        return product;
+      });
+    } else {
+      productsById.forEach((productId, product) -> {
+        if (product == null) {
+          staleIds.add(productId);
+        }
+      });
+    }
+
+    if (!staleIds.isEmpty()) {
+      Map<Long, ProductResponse> reloaded = productService.findAllByIds(staleIds)
+          .stream()
+          .collect(Collectors.toMap(ProductResponse::getProductId, Function.identity()));
+      staleIds.forEach(productId -> productsById.put(productId, reloaded.get(productId)));
+    }
+    return productsById.values().stream()
+        .filter(Objects::nonNull)
+        .toList();
+  }
+
+  // the index keeps milliseconds, postgres microseconds
+  private boolean isNewer(LocalDateTime storedAt, LocalDateTime indexedAt) {
+    return indexedAt == null
+        || (storedAt != null && storedAt.truncatedTo(ChronoUnit.MILLIS).isAfter(indexedAt));
+  }
+
   private SearchResponse<ProductResponse> mapSearchResults(
       co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument> results) {
-    List<ProductResponse> productResponses = results.hits().hits()
+    List<Hit<ProductDocument>> hits = results.hits().hits()
         .stream()
         .filter(productDocumentHit ->
             productDocumentHit != null && productDocumentHit.id() != null)
-        .map(productDocumentHit -> Long.parseLong(productDocumentHit.id()))
-        .map(productService::findById)
         .toList();
+    List<ProductResponse> productResponses;
+    if (hydrationMode == SearchHydrationMode.SOURCE) {
+      productResponses = hydrateFromSource(hits);
+    } else {
+      // one cache round trip for the whole page of hits instead of one per hit
+      productResponses = productService.findAllByIds(hits.stream()
+          .map(productDocumentHit -> Long.parseLong(productDocumentHit.id()))
+          .toList());
+    }
 
     SearchResponse<ProductResponse> response = new SearchResponse<>();
     response.setData(productResponses);
@@ -402,7 +623,9 @@ public class SearchServiceImpl implements SearchService {
       response.setTotalHits(results.hits().total().value());
     }
 
-    if (results.aggregations() != null) {
+    // the client hands back an empty map when no aggregation was requested, facets stay null
+    // so callers can tell them apart from a search that matched no category
+    if (!results.aggregations().isEmpty()) {
       Map<String, List<FacetEntry>> facets = new HashMap<>();
       var categoriesAgg = results.aggregations().get("categories");
       if (categoriesAgg != null && categoriesAgg.nested() != null) {
@@ -0,0 +1,13 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.entity.UserAddress;
+import com.fastcampus.ecommerce.model.ShippingQuoteRequest;
+import com.fastcampus.ecommerce.model.ShippingQuoteResponse;
+import java.util.Map;
+
+public interface ShippingQuoteService {
+
+  ShippingQuoteResponse quote(Map<Long, Integer> productQuantities, UserAddress shippingAddress);
+
+  ShippingQuoteResponse quoteCartItems(ShippingQuoteRequest shippingQuoteRequest);
+}
@@ -0,0 +1,152 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.common.errors.ForbiddenAccessException;
+import com.fastcampus.ecommerce.common.errors.ResourceNotFoundException;
+import com.fastcampus.ecommerce.entity.Cart;
+import com.fastcampus.ecommerce.entity.CartItem;
+import com.fastcampus.ecommerce.entity.Product;
+import com.fastcampus.ecommerce.entity.UserAddress;
+import com.fastcampus.ecommerce.model.ShippingQuoteRequest;
+import com.fastcampus.ecommerce.model.ShippingQuoteResponse;
+import com.fastcampus.ecommerce.model.ShippingQuoteResponse.Parcel;
+import com.fastcampus.ecommerce.model.ShippingRateRequest;
+import com.fastcampus.ecommerce.model.ShippingRateResponse;
+import com.fastcampus.ecommerce.repository.CartItemRepository;
+import com.fastcampus.ecommerce.repository.CartRepository;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import com.fastcampus.ecommerce.repository.UserAddressRepository;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+@Slf4j
+public class ShippingQuoteServiceImpl implements
+    ShippingQuoteService {
+
+  private final ProductRepository productRepository;
+  private final UserAddressRepository userAddressRepository;
+  private final CartRepository cartRepository;
+  private final CartItemRepository cartItemRepository;
+  private final ShippingService shippingService;
+  private final ExecutorService executorService;
+
+  @Value("${shipping.quote.timeout:5s}")
+  private Duration quoteTimeout;
+
+  public ShippingQuoteServiceImpl(ProductRepository productRepository,
+      UserAddressRepository userAddressRepository, CartRepository cartRepository,
+      CartItemRepository cartItemRepository, ShippingService shippingService,
+      @Value("${shipping.quote.workers:8}") int workers) {
+    this.productRepository = productRepository;
+    this.userAddressRepository = userAddressRepository;
+    this.cartRepository = cartRepository;
+    this.cartItemRepository = cartItemRepository;
+    this.shippingService = shippingService;
+    this.executorService = Executors.newFixedThreadPool(workers);
+  }
+
+  @Override
+  public ShippingQuoteResponse quote(Map<Long, Integer> productQuantities,
+      UserAddress shippingAddress) {
+    // one query for the products and one for the default address of every seller
+    List<Product> products = productRepository.findAllById(productQuantities.keySet());
+    Map<Long, UserAddress> sellerAddresses = userAddressRepository.findByUserIdInAndIsDefaultTrue(
+            products.stream().map(Product::getUserId).distinct().toList())
+        .stream()
+        .collect(Collectors.toMap(UserAddress::getUserId, Function.identity(),
+            (first, second) -> first));
+
+    // products without a seller address are shipped for free, same as before
+    Map<Long, List<Product>> productsBySeller = products.stream()
+        .filter(product -> sellerAddresses.containsKey(product.getUserId()))
+        .collect(Collectors.groupingBy(Product::getUserId, TreeMap::new, Collectors.toList()));
+
+    ShippingRateRequest.Address toAddress = ShippingRateRequest.fromUserAddress(shippingAddress);
+    List<CompletableFuture<Parcel>> parcelFutures = productsBySeller.entrySet().stream()
+        .map(entry -> {
+          BigDecimal totalWeight = entry.getValue().stream()
+              .map(product -> product.getWeight()
+                  .multiply(BigDecimal.valueOf(productQuantities.get(product.getProductId()))))
+              .reduce(BigDecimal.ZERO, BigDecimal::add);
+          ShippingRateRequest rateRequest = ShippingRateRequest.builder()
+              .totalWeightInGrams(totalWeight)
+              .fromAddress(ShippingRateRequest.fromUserAddress(
+                  sellerAddresses.get(entry.getKey())))
+              .toAddress(toAddress)
+              .build();
+
+          return CompletableFuture.supplyAsync(
+                  () -> shippingService.calculateShippingRate(rateRequest), executorService)
+              .orTimeout(quoteTimeout.toMillis(), TimeUnit.MILLISECONDS)
+              .thenApply(rateResponse -> toParcel(entry.getKey(), entry.getValue(), totalWeight,
+                  rateResponse));
+        })
+        .toList();
+
+    List<Parcel> parcels = parcelFutures.stream()
+        .map(CompletableFuture::join)
+        .toList();
+
+    return ShippingQuoteResponse.builder()
+        .parcels(parcels)
+        .totalShippingFee(parcels.stream()
+            .map(Parcel::getShippingFee)
+            .reduce(BigDecimal.ZERO, BigDecimal::add))
+        .build();
+  }
+
+  @Override
+  public ShippingQuoteResponse quoteCartItems(ShippingQuoteRequest shippingQuoteRequest) {
+    UserAddress shippingAddress = userAddressRepository.findById(
+            shippingQuoteRequest.getUserAddressId())
+        .orElseThrow(() -> new ResourceNotFoundException(
+            "Shipping address with id " + shippingQuoteRequest.getUserAddressId()
+                + " is not found"));
+    if (!shippingAddress.getUserId().equals(shippingQuoteRequest.getUserId())) {
+      throw new ForbiddenAccessException("Shipping address does not belong to the user");
+    }
+
+    Cart cart = cartRepository.findByUserId(shippingQuoteRequest.getUserId())
+        .orElseThrow(() -> new ResourceNotFoundException("Cart is not found"));
+    List<CartItem> selectedItems = cartItemRepository.findAllById(
+            shippingQuoteRequest.getSelectedCartItemIds()).stream()
+        .filter(cartItem -> cartItem.getCartId().equals(cart.getCartId()))
+        .toList();
+    if (selectedItems.isEmpty()) {
+      throw new ResourceNotFoundException("No cart items found for shipping quote");
+    }
+
+    return quote(selectedItems.stream()
+            .collect(Collectors.toMap(CartItem::getProductId, CartItem::getQuantity)),
+        shippingAddress);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executorService.shutdown();
+  }
+
+  private Parcel toParcel(Long sellerId, List<Product> products, BigDecimal totalWeight,
+      ShippingRateResponse rateResponse) {
+    return Parcel.builder()
+        .sellerId(sellerId)
+        .productIds(products.stream().map(Product::getProductId).sorted().toList())
+        .totalWeightInGrams(totalWeight)
+        .shippingFee(rateResponse.getShippingFee())
+        .estimatedDeliveryTime(rateResponse.getEstimatedDeliveryTime())
+        .build();
+  }
+}
@@ -0,0 +1,124 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.entity.Order;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import com.fastcampus.ecommerce.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// only the node holding the redis lease runs a cycle, the lease expires if that node dies
+@Service
+@Slf4j
+public class UnpaidOrderExpiryJob {
+
+  private static final String LEASE_KEY = "order-expiry:lease";
+
+  // KEYS: lease. ARGV: lease token
+  private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = RedisScript.of("""
+      if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+        return 0
+      end
+      return redis.call('DEL', KEYS[1])
+      """, Long.class);
+
+  // KEYS: lease. ARGV: lease token, lease in millis
+  private static final RedisScript<Long> RENEW_LEASE_SCRIPT = RedisScript.of("""
+      if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+        return 0
+      end
+      return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+      """, Long.class);
+
+  private final OrderRepository orderRepository;
+  private final InventoryHoldService inventoryHoldService;
+  private final OutboxService outboxService;
+  private final TransactionTemplate transactionTemplate;
+  private final RedisTemplate<String, String> redisTemplate;
+  private final Counter cancelledOrders;
+
+  @Value("${order.expiry.unpaid-after:24h}")
+  private Duration unpaidAfter;
+
+  @Value("${order.expiry.batch-size:200}")
+  private int batchSize;
+
+  @Value("${order.expiry.max-batches:50}")
+  private int maxBatches;
+
+  @Value("${order.expiry.lease:5m}")
+  private Duration lease;
+
+  public UnpaidOrderExpiryJob(OrderRepository orderRepository,
+      InventoryHoldService inventoryHoldService, OutboxService outboxService,
+      TransactionTemplate transactionTemplate, RedisTemplate<String, String> redisTemplate,
+      MeterRegistry meterRegistry) {
+    this.orderRepository = orderRepository;
+    this.inventoryHoldService = inventoryHoldService;
+    this.outboxService = outboxService;
+    this.transactionTemplate = transactionTemplate;
+    this.redisTemplate = redisTemplate;
+    this.cancelledOrders = Counter.builder("order.expiry.cancelled")
+        .description("Unpaid orders cancelled by the expiry job")
+        .register(meterRegistry);
+  }
+
+  // run each minutes
+  @Scheduled(cron = "0 * * * * *")
+  public void cancelUnpaidOrders() {
+    String token = UUID.randomUUID().toString();
+    if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LEASE_KEY, token, lease))) {
+      return;
+    }
+
+    try {
+      LocalDateTime cutoff = LocalDateTime.now().minus(unpaidAfter);
+      int batches = 0;
+      List<Order> cancelled;
+      do {
+        cancelled = cancelBatch(cutoff);
+        if (!cancelled.isEmpty()) {
+          cancelledOrders.increment(cancelled.size());
+          inventoryHoldService.releaseAll(cancelled.stream().map(Order::getOrderId).toList());
+        }
+        batches++;
+      } while (cancelled.size() == batchSize && batches < maxBatches && renewLease(token));
+    } finally {
+      redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(LEASE_KEY), token);
+    }
+  }
+
+  // the invoice expiries commit with the cancel, the outbox relay makes the xendit calls. orders
+  // without an invoice yet are expired by the relay once the invoice is created
+  private List<Order> cancelBatch(LocalDateTime cutoff) {
+    return transactionTemplate.execute(status -> {
+      List<Order> cancelled = orderRepository.cancelUnpaidOrdersBefore(cutoff, batchSize);
+      cancelled.stream()
+          .filter(order -> order.getXenditInvoiceId() != null)
+          .forEach(order ->
+              outboxService.publish(OutboxEventType.ORDER_INVOICE_EXPIRATION, order.getOrderId()));
+      return cancelled;
+    });
+  }
+
+  // a cycle longer than the lease would otherwise overlap with the next holder
+  private boolean renewLease(String token) {
+    Long renewed = redisTemplate.execute(RENEW_LEASE_SCRIPT, List.of(LEASE_KEY), token,
+        String.valueOf(lease.toMillis()));
+    if (renewed == null || renewed == 0) {
+      log.warn("Unpaid order expiry lease was lost, stopping the cycle");
+      return false;
+    }
+    return true;
+  }
+}
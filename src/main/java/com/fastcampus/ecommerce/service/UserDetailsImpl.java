@@ -8,7 +8,6 @@ import com.fastcampus.ecommerce.repository.RoleRepository;
 import com.fastcampus.ecommerce.repository.UserRepository;
 import com.fasterxml.jackson.core.type.TypeReference;
 import java.util.List;
-import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,40 +20,34 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class UserDetailsImpl implements UserDetailsService {
 
+  private static final TypeReference<List<Role>> ROLES_TYPE = new TypeReference<>() {
+  };
+
   private final String USER_CACHE_KEY = "cache:user:";
   private final String USER_ROLES_CACHE_KEY = "cache:user:roles:";
   private final UserRepository userRepository;
   private final RoleRepository roleRepository;
   private final CacheService cacheService;
+  private final ExistenceFilter existenceFilter;
 
   @Override
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-    String userCacheKey = USER_CACHE_KEY + username;
-    String rolesCacheKey = USER_ROLES_CACHE_KEY + username;
-
-    Optional<User> userOpt = cacheService.get(userCacheKey, User.class);
-    Optional<List<Role>> rolesOpt = cacheService.get(rolesCacheKey,
-        new TypeReference<List<Role>>() {
-        });
-
-    if (userOpt.isPresent() && rolesOpt.isPresent()) {
-      return UserInfo.builder()
-          .roles(rolesOpt.get())
-          .user(userOpt.get())
-          .build();
+    if (!existenceFilter.mightExist(ExistenceFilter.USERS, username)) {
+      throw new UserNotFoundException("User not found with username: " + username);
     }
 
-    User user = userRepository.findByKeyword(username)
-        .orElseThrow(() -> new UserNotFoundException("User not found with username: " + username));
-    List<Role> roles = roleRepository.findByUserId(user.getUserId());
+    // an unknown username is remembered as missing, so retrying it does not reach the database
+    User user = cacheService.getOrLoad(USER_CACHE_KEY + username, User.class, null,
+        () -> userRepository.findByKeyword(username).orElse(null));
+    if (user == null) {
+      throw new UserNotFoundException("User not found with username: " + username);
+    }
+    List<Role> roles = cacheService.getOrLoad(USER_ROLES_CACHE_KEY + username, ROLES_TYPE, null,
+        () -> roleRepository.findByUserId(user.getUserId()));
 
-    UserInfo userInfo = UserInfo.builder()
+    return UserInfo.builder()
         .roles(roles)
         .user(user)
         .build();
-    cacheService.put(userCacheKey, user);
-    cacheService.put(rolesCacheKey, roles);
-
-    return userInfo;
   }
 }
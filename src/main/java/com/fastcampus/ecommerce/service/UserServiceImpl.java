@@ -21,6 +21,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @RequiredArgsConstructor
@@ -34,6 +36,7 @@ public class UserServiceImpl implements UserService {
   private final String USER_CACHE_KEY = "cache:user:";
   private final String USER_ROLES_CACHE_KEY = "cache:user:roles:";
   private final CacheService cacheService;
+  private final ExistenceFilter existenceFilter;
 
   @Override
   @Transactional
@@ -57,6 +60,13 @@ public class UserServiceImpl implements UserService {
         .build();
 
     userRepository.save(user);
+    // a login attempt before the account existed may have left a tombstone
+    afterCommit(() -> {
+      existenceFilter.add(ExistenceFilter.USERS, user.getUsername());
+      existenceFilter.add(ExistenceFilter.USERS, user.getEmail());
+      cacheService.evict(USER_CACHE_KEY + user.getUsername());
+      cacheService.evict(USER_CACHE_KEY + user.getEmail());
+    });
 
     Role userRole = roleRepository.findByName("ROLE_USER")
         .orElseThrow(() -> new RoleNotFoundException("Default role not found"));
@@ -129,6 +139,13 @@ public class UserServiceImpl implements UserService {
     List<Role> roles = roleRepository.findByUserId(user.getUserId());
     cacheService.evict(userKey);
     cacheService.evict(roleKey);
+    cacheService.evict(USER_CACHE_KEY + user.getEmail());
+    String username = user.getUsername();
+    String email = user.getEmail();
+    afterCommit(() -> {
+      existenceFilter.add(ExistenceFilter.USERS, username);
+      existenceFilter.add(ExistenceFilter.USERS, email);
+    });
     return UserResponse.fromUserAndRoles(user, roles);
   }
 
@@ -152,4 +169,18 @@ public class UserServiceImpl implements UserService {
   public boolean existsByEmail(String email) {
     return userRepository.existsByEmail(email);
   }
+
+  // new login keys only pass the existence filter once the account row is visible
+  private void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
 }
@@ -0,0 +1,24 @@
+package com.fastcampus.ecommerce.service;
+
+import com.fastcampus.ecommerce.model.QueueTicketResponse;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface WaitingRoomService {
+
+  void open(Long productId);
+
+  void close(Long productId);
+
+  QueueTicketResponse join(Long userId, Long productId);
+
+  Optional<QueueTicketResponse> findTicket(Long userId, String ticketId);
+
+  boolean hasOpenRooms();
+
+  // uses one admitted ticket per product behind a waiting room and returns the used tickets
+  List<String> admit(Long userId, Collection<String> ticketIds, Collection<Long> productIds);
+
+  void restoreTickets(Collection<String> ticketIds);
+}
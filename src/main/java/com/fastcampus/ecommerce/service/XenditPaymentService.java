@@ -1,10 +1,12 @@
 package com.fastcampus.ecommerce.service;
 
+import com.fastcampus.ecommerce.common.errors.InsufficientInventoryException;
 import com.fastcampus.ecommerce.common.errors.ResourceNotFoundException;
 import com.fastcampus.ecommerce.entity.Order;
 import com.fastcampus.ecommerce.entity.OrderItem;
 import com.fastcampus.ecommerce.entity.User;
 import com.fastcampus.ecommerce.model.OrderStatus;
+import com.fastcampus.ecommerce.model.OutboxEventType;
 import com.fastcampus.ecommerce.model.PaymentNotification;
 import com.fastcampus.ecommerce.model.PaymentResponse;
 import com.fastcampus.ecommerce.repository.OrderItemRepository;
@@ -13,15 +15,19 @@ import com.fastcampus.ecommerce.repository.UserRepository;
 import com.xendit.exception.XenditException;
 import com.xendit.model.Invoice;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
+@ConditionalOnProperty(name = "payment.provider", havingValue = "xendit", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class XenditPaymentService implements
@@ -29,9 +35,9 @@ public class XenditPaymentService implements
 
   private final UserRepository userRepository;
   private final OrderRepository orderRepository;
-  private final EmailService emailService;
-  private final UserActivityService userActivityService;
   private final OrderItemRepository orderItemRepository;
+  private final InventoryHoldService inventoryHoldService;
+  private final OutboxService outboxService;
 
   @Override
   public PaymentResponse create(Order order) {
@@ -58,6 +64,27 @@ public class XenditPaymentService implements
     }
   }
 
+  @Override
+  public Optional<PaymentResponse> findPendingByOrder(Order order) {
+    Map<String, Object> params = new HashMap<>();
+    params.put("external_id", order.getOrderId().toString());
+
+    try {
+      return Arrays.stream(Invoice.getAll(params))
+          .filter(invoice -> "PENDING".equals(invoice.getStatus()))
+          .findFirst()
+          .map(invoice -> PaymentResponse.builder()
+              .xenditPaymentUrl(invoice.getInvoiceUrl())
+              .xenditExternalId(invoice.getExternalId())
+              .xenditInvoiceId(invoice.getId())
+              .amount(order.getTotalAmount())
+              .xenditInvoiceStatus(invoice.getStatus())
+              .build());
+    } catch (XenditException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   @Override
   public PaymentResponse findByPaymentId(String paymentId) {
     try {
@@ -85,32 +112,48 @@ public class XenditPaymentService implements
   }
 
   @Override
+  public PaymentResponse expire(String paymentId) {
+    try {
+      Invoice invoice = Invoice.expire(paymentId);
+      return PaymentResponse.builder()
+          .xenditPaymentUrl(invoice.getInvoiceUrl())
+          .xenditExternalId(invoice.getExternalId())
+          .xenditInvoiceId(invoice.getId())
+          .xenditInvoiceStatus(invoice.getStatus())
+          .build();
+    } catch (XenditException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  @Transactional
   public void handleNotification(PaymentNotification paymentNotification) {
     String invoiceId = paymentNotification.getId();
     String status = paymentNotification.getStatus();
 
-    Order order = orderRepository.findByXenditInvoiceId(invoiceId)
+    Order order = orderRepository.findByXenditInvoiceIdWithPessimisticLock(invoiceId)
         .orElseThrow(() -> new ResourceNotFoundException(
             "Order not found for xendit with invoice ID: " + invoiceId));
 
     order.setXenditPaymentStatus(status);
     switch (status) {
       case "PAID":
-        order.setStatus(OrderStatus.PAID);
-        emailService.notifySuccessfulPayment(order);
-        trackPurchasedOrder(order);
+        markPaid(order);
         break;
       case "EXPIRED":
         order.setStatus(OrderStatus.CANCELLED);
-        emailService.notifyUnsuccessfulPayment(order);
+        inventoryHoldService.release(order.getOrderId());
+        outboxService.publish(OutboxEventType.ORDER_PAYMENT_FAILED_EMAIL, order.getOrderId());
         break;
       case "FAILED":
         order.setStatus(OrderStatus.PAYMENT_FAILED);
-        emailService.notifyUnsuccessfulPayment(order);
+        inventoryHoldService.release(order.getOrderId());
+        outboxService.publish(OutboxEventType.ORDER_PAYMENT_FAILED_EMAIL, order.getOrderId());
         break;
       case "PENDING":
         order.setStatus(OrderStatus.PENDING);
-        emailService.notifyUnsuccessfulPayment(order);
+        outboxService.publish(OutboxEventType.ORDER_PAYMENT_FAILED_EMAIL, order.getOrderId());
         break;
       default:
     }
@@ -122,11 +165,44 @@ public class XenditPaymentService implements
     orderRepository.save(order);
   }
 
-  @Async
-  private void trackPurchasedOrder(Order order) {
-    List<OrderItem> orderItemList = orderItemRepository.findByOrderId(order.getOrderId());
-    orderItemList.forEach(orderItem -> {
-      userActivityService.trackPurchase(orderItem.getProductId(), order.getUserId());
-    });
+  // only a pending order becomes paid. a payment for an order that was cancelled meanwhile, or
+  // whose stock is gone after its hold expired, is left to be refunded by hand
+  private void markPaid(Order order) {
+    if (!order.getStatus().equals(OrderStatus.PENDING)) {
+      if (order.getStatus().equals(OrderStatus.CANCELLED)
+          || order.getStatus().equals(OrderStatus.PAYMENT_FAILED)) {
+        requireRefund(order);
+      }
+      // paid, shipped or refund required orders are redelivered notifications
+      return;
+    }
+
+    if (!inventoryHoldService.commit(order.getOrderId()) && !holdAgain(order)) {
+      requireRefund(order);
+      return;
+    }
+    order.setStatus(OrderStatus.PAID);
+    outboxService.publish(OutboxEventType.ORDER_PAYMENT_SUCCEEDED_EMAIL, order.getOrderId());
+    outboxService.publish(OutboxEventType.ORDER_PURCHASE_TRACKING, order.getOrderId());
+  }
+
+  // the hold expired before the payment arrived, take the stock again if it is still there
+  private boolean holdAgain(Order order) {
+    Map<Long, Integer> productQuantities = orderItemRepository.findByOrderId(order.getOrderId())
+        .stream()
+        .collect(Collectors.toMap(OrderItem::getProductId, OrderItem::getQuantity,
+            Integer::sum));
+    try {
+      inventoryHoldService.hold(order.getOrderId(), productQuantities);
+    } catch (InsufficientInventoryException ex) {
+      return false;
+    }
+    return inventoryHoldService.commit(order.getOrderId());
+  }
+
+  private void requireRefund(Order order) {
+    log.error("Order {} with status {} was paid but cannot be fulfilled, it needs a refund",
+        order.getOrderId(), order.getStatus());
+    order.setStatus(OrderStatus.REFUND_REQUIRED);
   }
 }
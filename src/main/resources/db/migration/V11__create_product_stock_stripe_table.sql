@@ -0,0 +1,11 @@
+-- 0 keeps the stock on the product row, N splits it across N stripes
+ALTER TABLE product
+ADD COLUMN stock_stripe_count INT NOT NULL DEFAULT 0;
+
+CREATE TABLE product_stock_stripe (
+    product_id BIGINT NOT NULL,
+    stripe_no INT NOT NULL,
+    stock_quantity INT NOT NULL,
+    PRIMARY KEY (product_id, stripe_no),
+    FOREIGN KEY (product_id) REFERENCES product(product_id)
+);
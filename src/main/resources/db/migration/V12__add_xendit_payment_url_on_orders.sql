@@ -0,0 +1,2 @@
+ALTER TABLE orders
+ADD COLUMN xendit_payment_url VARCHAR(255);
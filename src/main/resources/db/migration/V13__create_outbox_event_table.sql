@@ -0,0 +1,15 @@
+-- Create table for side effects written in the same transaction as the change
+CREATE TABLE outbox_event (
+    id BIGSERIAL PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP
+);
+
+CREATE INDEX idx_outbox_event_pending ON outbox_event(next_attempt_at, id) WHERE status = 'PENDING';
+CREATE INDEX idx_outbox_event_processed_at ON outbox_event(processed_at) WHERE status = 'PROCESSED';
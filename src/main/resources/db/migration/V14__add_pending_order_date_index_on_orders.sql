@@ -0,0 +1 @@
+CREATE INDEX idx_orders_pending_order_date ON orders (order_date) WHERE status = 'PENDING';
@@ -0,0 +1,2 @@
+CREATE INDEX idx_orders_user_id_order_date_order_id
+    ON orders (user_id, order_date DESC, order_id DESC);
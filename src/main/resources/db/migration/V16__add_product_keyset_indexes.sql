@@ -0,0 +1,3 @@
+CREATE INDEX idx_product_name_product_id ON product (name, product_id);
+CREATE INDEX idx_product_price_product_id ON product (price, product_id);
+CREATE INDEX idx_product_created_at_product_id ON product (created_at, product_id);
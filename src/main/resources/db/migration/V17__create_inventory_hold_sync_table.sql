@@ -0,0 +1,8 @@
+-- Orders whose committed inventory hold was deducted from product stock. The marker is written
+-- in the same transaction as the deduction, so a retried sync never deducts an order twice
+CREATE TABLE inventory_hold_sync (
+    order_id BIGINT PRIMARY KEY,
+    synced_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_inventory_hold_sync_synced_at ON inventory_hold_sync(synced_at);
@@ -0,0 +1,16 @@
+-- Checkouts reserve stock in the redis hold ledger, the stripes no longer take any contention.
+-- Striped stock is folded back into the product row before the stripes are dropped
+UPDATE product p
+SET stock_quantity = s.stock_quantity
+FROM (
+    SELECT product_id, SUM(stock_quantity) AS stock_quantity
+    FROM product_stock_stripe
+    GROUP BY product_id
+) s
+WHERE p.product_id = s.product_id
+AND p.stock_stripe_count > 0;
+
+DROP TABLE product_stock_stripe;
+
+ALTER TABLE product
+DROP COLUMN stock_stripe_count;
@@ -2,6 +2,7 @@ package com.fastcampus.ecommerce.controller;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -15,6 +16,8 @@ import com.fastcampus.ecommerce.model.CheckoutRequest;
 import com.fastcampus.ecommerce.model.OrderResponse;
 import com.fastcampus.ecommerce.model.OrderStatus;
 import com.fastcampus.ecommerce.model.UserInfo;
+import com.fastcampus.ecommerce.service.CheckoutService;
+import com.fastcampus.ecommerce.service.IdempotencyService;
 import com.fastcampus.ecommerce.service.OrderService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
@@ -45,6 +48,12 @@ class OrderControllerTest {
   @MockBean
   private OrderService orderService;
 
+  @MockBean
+  private CheckoutService checkoutService;
+
+  @MockBean
+  private IdempotencyService idempotencyService;
+
   private CheckoutRequest checkoutRequest;
   private OrderResponse orderResponse;
   private UserInfo userInfo;
@@ -91,7 +100,7 @@ class OrderControllerTest {
 
   @Test
   void testCheckout_whenRequestIsValid() throws Exception {
-    when(orderService.checkout(any(CheckoutRequest.class))).thenReturn(orderResponse);
+    when(checkoutService.checkout(any(CheckoutRequest.class))).thenReturn(orderResponse);
 
     mockMvc.perform(post("/orders/checkout")
             .contentType(MediaType.APPLICATION_JSON)
@@ -103,11 +112,24 @@ class OrderControllerTest {
         .andExpect(jsonPath("$.payment_url").value("http://payment.url"))
         .andExpect(jsonPath("$.order_id").value(1));
 
-    verify(orderService).checkout(argThat(request -> request.getUserId().equals(1L) &&
+    verify(checkoutService).checkout(argThat(request -> request.getUserId().equals(1L) &&
         request.getSelectedCartItemIds().equals(checkoutRequest.getSelectedCartItemIds())
         && request.getUserAddressId().equals(checkoutRequest.getUserAddressId())));
   }
 
+  @Test
+  void testCheckout_whenIdempotencyKeyIsSent() throws Exception {
+    when(idempotencyService.execute(eq("checkout:1"), eq("retry-key"),
+        any(CheckoutRequest.class), eq(OrderResponse.class), any())).thenReturn(orderResponse);
+
+    mockMvc.perform(post("/orders/checkout")
+            .header("Idempotency-Key", "retry-key")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(checkoutRequest)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.order_id").value(1));
+  }
+
   @Test
   void testCheckout_whenRequestIsInvalid() throws Exception {
     CheckoutRequest invalidRequest = new CheckoutRequest();
@@ -0,0 +1,126 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+// needs an indexed catalog, run with
+// -Dsearch.benchmark.host=localhost -Dtest=AutocompleteLatencyBenchmarkTest
+@ExtendWith(MockitoExtension.class)
+@EnabledIfSystemProperty(named = "search.benchmark.host", matches = ".+")
+@Slf4j
+class AutocompleteLatencyBenchmarkTest {
+
+  private static final List<String> PREFIXES = List.of("s", "sh", "sho", "shoe", "lap",
+      "lapt", "pho", "phon", "bag", "wat", "watc", "tshi", "jack", "kem", "sep");
+  private static final int ROUNDS = 50;
+
+  @Mock
+  private ProductIndexService productIndexService;
+  @Mock
+  private ProductService productService;
+  @Mock
+  private UserActivityService userActivityService;
+  @Mock
+  private ProductRepository productRepository;
+
+  private RestClient restClient;
+  private SearchServiceImpl searchService;
+
+  @BeforeEach
+  void setUp() {
+    restClient = RestClient.builder(new HttpHost(System.getProperty("search.benchmark.host"),
+        Integer.getInteger("search.benchmark.port", 9200))).build();
+    ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    RestClientTransport transport = new RestClientTransport(restClient,
+        new JacksonJsonpMapper(objectMapper));
+    searchService = new SearchServiceImpl(new ElasticsearchClient(transport),
+        new ElasticsearchAsyncClient(transport), productIndexService, productService,
+        userActivityService, productRepository);
+    // generous, so both paths return the same suggestions and only latency differs
+    ReflectionTestUtils.setField(searchService, "autocompleteBudget", Duration.ofSeconds(5));
+    when(productIndexService.indexName()).thenReturn("products");
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    restClient.close();
+  }
+
+  @Test
+  void testCombinedAutocomplete_ComparesLatencyOfSerialAndConcurrentStrategies() {
+    PREFIXES.forEach(prefix -> assertEquals(serialAutocomplete(prefix),
+        searchService.combinedAutocomplete(prefix).getSuggestions()));
+
+    long[] serialNanos = measure(this::serialAutocomplete);
+    long[] concurrentNanos = measure(prefix ->
+        searchService.combinedAutocomplete(prefix).getSuggestions());
+
+    log.info("Combined autocomplete serial p50 {} ms p99 {} ms, concurrent p50 {} ms p99 {} ms",
+        millis(serialNanos, 0.50), millis(serialNanos, 0.99), millis(concurrentNanos, 0.50),
+        millis(concurrentNanos, 0.99));
+  }
+
+  // the path before the strategies were sent at once
+  private List<String> serialAutocomplete(String query) {
+    List<String> results = new ArrayList<>(searchService.getAutocomplete(query));
+    if (results.size() < 5) {
+      results.addAll(searchService.getNgramAutocomplete(query));
+    }
+    if (results.size() < 5) {
+      results.addAll(searchService.getFuzzyAutocomplete(query));
+    }
+    return results.stream()
+        .distinct()
+        .limit(5)
+        .toList();
+  }
+
+  private long[] measure(Function<String, List<String>> autocomplete) {
+    // the first round warms the caches of both paths alike
+    PREFIXES.forEach(autocomplete::apply);
+    long[] nanos = new long[ROUNDS * PREFIXES.size()];
+    int sample = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      for (String prefix : PREFIXES) {
+        long start = System.nanoTime();
+        autocomplete.apply(prefix);
+        nanos[sample++] = System.nanoTime() - start;
+      }
+    }
+    Arrays.sort(nanos);
+    return nanos;
+  }
+
+  private double millis(long[] sortedNanos, double percentile) {
+    int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+    return sortedNanos[Math.max(index, 0)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
@@ -0,0 +1,398 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.common.errors.ResourceNotFoundException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class CacheServiceImplTest {
+
+  private static final int LOADERS = 8;
+
+  @Mock
+  private RedisTemplate<String, String> redisTemplate;
+  @Mock
+  private ValueOperations<String, String> valueOperations;
+  @Mock
+  private RedisTemplate<String, byte[]> cacheRedisTemplate;
+  @Mock
+  private ValueOperations<String, byte[]> cacheValueOperations;
+  @Mock
+  private RedisMessageListenerContainer listenerContainer;
+
+  private SimpleMeterRegistry meterRegistry;
+  private CacheServiceImpl cacheService;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    cacheService = cacheService(1024 * 1024);
+    ReflectionTestUtils.setField(cacheService, "lockTtl", Duration.ofSeconds(5));
+    ReflectionTestUtils.setField(cacheService, "lockWait", Duration.ofSeconds(2));
+    ReflectionTestUtils.setField(cacheService, "pollInterval", Duration.ofMillis(25));
+    ReflectionTestUtils.setField(cacheService, "staleGrace", Duration.ofMinutes(5));
+    ReflectionTestUtils.setField(cacheService, "negativeTtl", Duration.ofSeconds(30));
+    lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    lenient().when(cacheRedisTemplate.opsForValue()).thenReturn(cacheValueOperations);
+  }
+
+  @AfterEach
+  void tearDown() {
+    cacheService.shutdown();
+  }
+
+  @Test
+  void testGet_NamespacedKeyIsServedFromLocalTierAfterFirstRead() {
+    when(cacheValueOperations.get("products:1")).thenReturn(bytes("\"shoes\""));
+
+    assertEquals("shoes", cacheService.get("products:1", String.class).orElseThrow());
+    assertEquals("shoes", cacheService.get("products:1", String.class).orElseThrow());
+
+    verify(cacheValueOperations, times(1)).get("products:1");
+    assertEquals(1.0, requests("l1", "hit"));
+    assertEquals(1.0, requests("l2", "hit"));
+  }
+
+  @Test
+  void testGet_KeyOutsideNamespacesAlwaysGoesToRedis() {
+    when(cacheValueOperations.get("shipping:rate:1")).thenReturn(bytes("\"12500\""));
+
+    cacheService.get("shipping:rate:1", String.class);
+    cacheService.get("shipping:rate:1", String.class);
+
+    verify(cacheValueOperations, times(2)).get("shipping:rate:1");
+    assertEquals(0.0, requests("l1", "miss"));
+  }
+
+  @Test
+  void testOnMessage_InvalidationFromAnotherNodeDropsLocalCopy() {
+    cacheService.put("cache:user:alice", "alice");
+    String ownInvalidation = broadcastedInvalidation();
+
+    // a node ignores its own broadcast, the entry it just wrote stays local
+    cacheService.onMessage(message(ownInvalidation), null);
+    cacheService.get("cache:user:alice", String.class);
+    verify(cacheValueOperations, never()).get(anyString());
+
+    cacheService.onMessage(message("another-node|cache:user:alice"), null);
+    cacheService.get("cache:user:alice", String.class);
+    verify(cacheValueOperations).get("cache:user:alice");
+  }
+
+  @Test
+  void testEvict_DropsLocalCopyAndBroadcasts() {
+    cacheService.put("products:1", "shoes", Duration.ofMinutes(5));
+
+    cacheService.evict("products:1");
+    cacheService.get("products:1", String.class);
+
+    verify(cacheRedisTemplate).delete(List.of("products:1", "cache:stale:products:1"));
+    verify(redisTemplate, times(2)).convertAndSend(eq(CacheServiceImpl.INVALIDATION_CHANNEL),
+        anyString());
+    verify(cacheValueOperations).get("products:1");
+  }
+
+  @Test
+  void testPut_LocalTierStaysWithinItsByteBudget() throws Exception {
+    // room for two encoded values but not for three
+    cacheService = cacheService(2L * cacheValueFormat().encode("0123456789").length + 1);
+
+    cacheService.put("products:1", "0123456789");
+    cacheService.put("products:2", "0123456789");
+    cacheService.put("products:3", "0123456789");
+
+    cacheService.get("products:3", String.class);
+    cacheService.get("products:1", String.class);
+    verify(cacheValueOperations, never()).get("products:3");
+    verify(cacheValueOperations).get("products:1");
+  }
+
+  @Test
+  void testGetAll_ReadsLocalMissesWithOneMultiGet() {
+    cacheService.put("products:1", "shoes");
+    when(cacheValueOperations.multiGet(List.of("products:2", "products:3")))
+        .thenReturn(Arrays.asList(bytes("\"socks\""), null));
+
+    Map<String, String> values = cacheService.getAll(
+        List.of("products:1", "products:2", "products:3"), String.class);
+
+    assertEquals(Map.of("products:1", "shoes", "products:2", "socks"), values);
+    verify(cacheValueOperations, never()).get(anyString());
+    assertEquals(1.0, requests("l2", "miss"));
+    // the multi get hit is now local as well
+    cacheService.get("products:2", String.class);
+    verify(cacheValueOperations, never()).get("products:2");
+  }
+
+  @Test
+  void testPutAll_WritesEveryKeyInOnePipeline() {
+    cacheService.putAll(Map.of("products:1", "shoes", "products:2", "socks"));
+
+    verify(cacheRedisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+    assertEquals("socks", cacheService.get("products:2", String.class).orElseThrow());
+    verify(cacheValueOperations, never()).set(anyString(), any(byte[].class));
+  }
+
+  @Test
+  void testGetOrLoad_ConcurrentMissesOnOneNodeShareOneLoad() throws Exception {
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(true);
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(LOADERS);
+    List<Future<String>> results = new ArrayList<>();
+
+    for (int i = 0; i < LOADERS; i++) {
+      results.add(executor.submit(() -> cacheService.getOrLoad("products:1", String.class,
+          Duration.ofMinutes(5), () -> {
+            loads.incrementAndGet();
+            awaitQuietly(loading);
+            return "shoes";
+          })));
+    }
+    Thread.sleep(100);
+    loading.countDown();
+
+    for (Future<String> result : results) {
+      assertEquals("shoes", result.get(5, TimeUnit.SECONDS));
+    }
+    executor.shutdown();
+    assertEquals(1, loads.get());
+    verify(valueOperations, times(1)).setIfAbsent(eq("cache:lock:products:1"), anyString(),
+        any(Duration.class));
+  }
+
+  @Test
+  void testGetOrLoad_ServesStaleCopyWhileAnotherNodeReloads() {
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(false);
+    when(cacheValueOperations.get("cache:stale:product:suggestions:sho"))
+        .thenReturn(bytes("[\"shoes\"]"));
+
+    String suggestion = cacheService.getOrLoad("product:suggestions:sho", String[].class,
+        Duration.ofHours(1), () -> {
+          throw new AssertionError("only the lock holder loads");
+        })[0];
+
+    assertEquals("shoes", suggestion);
+    assertEquals(1.0, meterRegistry.get("cache.loads").tag("outcome", "stale").counter()
+        .count());
+  }
+
+  @Test
+  void testGetOrLoad_WaitsForLockHolderWhenNothingStale() {
+    ReflectionTestUtils.setField(cacheService, "lockWait", Duration.ofSeconds(1));
+    ReflectionTestUtils.setField(cacheService, "pollInterval", Duration.ofMillis(10));
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(false);
+    when(cacheValueOperations.get("products:1")).thenReturn(null, null, bytes("\"shoes\""));
+
+    String product = cacheService.getOrLoad("products:1", String.class, null, () -> {
+      throw new AssertionError("only the lock holder loads");
+    });
+
+    assertEquals("shoes", product);
+  }
+
+  @Test
+  void testGetOrLoad_LoaderErrorReachesCaller() {
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(true);
+
+    assertThrows(ResourceNotFoundException.class, () -> cacheService.getOrLoad("products:404",
+        String.class, null, () -> {
+          throw new ResourceNotFoundException("Product not found with id: 404");
+        }));
+    verify(cacheValueOperations, never()).set(anyString(), any(byte[].class));
+  }
+
+  @Test
+  void testGetOrLoad_MissingKeyLeavesTombstoneThatSkipsLoader() {
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(true);
+    AtomicInteger loads = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      assertNull(cacheService.getOrLoad("products:404", String.class, null, () -> {
+        loads.incrementAndGet();
+        return null;
+      }));
+    }
+
+    assertEquals(1, loads.get());
+    ArgumentCaptor<byte[]> tombstone = ArgumentCaptor.forClass(byte[].class);
+    verify(cacheValueOperations).set(eq("products:404"), tombstone.capture(),
+        eq(Duration.ofSeconds(30)));
+    assertTrue(cacheValueFormat().isTombstone(tombstone.getValue()));
+    assertTrue(cacheService.get("products:404", String.class).isEmpty());
+  }
+
+  @Test
+  void testGetOrLoad_RejectedValueIsReturnedButNeverCached() {
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(true);
+    AtomicInteger loads = new AtomicInteger();
+
+    for (int i = 0; i < 2; i++) {
+      String suggestion = cacheService.getOrLoad("products:partial", new TypeReference<String>() {
+          }, Duration.ofMinutes(5), () -> "partial-" + loads.incrementAndGet(),
+          value -> !value.startsWith("partial"));
+      assertEquals("partial-" + (i + 1), suggestion);
+    }
+
+    // every miss loads again, neither redis nor the local tier ever saw the value
+    assertEquals(2, loads.get());
+    verify(cacheRedisTemplate, never()).executePipelined(any(RedisCallback.class));
+    verify(cacheValueOperations, never()).set(anyString(), any(byte[].class));
+    assertEquals(2.0, meterRegistry.get("cache.loads").tag("outcome", "uncached").counter()
+        .count());
+  }
+
+  @Test
+  void testGetOrLoad_HitNearExpiryRefreshesInBackground() throws Exception {
+    long now = System.currentTimeMillis();
+    // a slow loader and an expiry one millisecond away make the early refresh certain
+    when(cacheValueOperations.get("products:1"))
+        .thenReturn(envelope(now, 60_000, now + 1, "old"));
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(true);
+    AtomicInteger loads = new AtomicInteger();
+
+    String product = cacheService.getOrLoad("products:1", String.class, null, () -> {
+      loads.incrementAndGet();
+      return "new";
+    });
+
+    assertEquals("old", product);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (loads.get() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, loads.get());
+    verify(cacheRedisTemplate, timeout(5000)).executePipelined(any(RedisCallback.class));
+    assertEquals(1.0, meterRegistry.get("cache.loads").tag("outcome", "early_refresh").counter()
+        .count());
+  }
+
+  @Test
+  void testGetOrLoad_HitFarFromExpiryIsServedAsIs() throws Exception {
+    long now = System.currentTimeMillis();
+    when(cacheValueOperations.get("products:1"))
+        .thenReturn(envelope(now, 5, now + Duration.ofMinutes(10).toMillis(), "shoes"));
+
+    String product = cacheService.getOrLoad("products:1", String.class, null, () -> {
+      throw new AssertionError("fresh entries are not reloaded");
+    });
+
+    assertEquals("shoes", product);
+    assertEquals("shoes", cacheService.get("products:1", String.class).orElseThrow());
+    verify(valueOperations, never()).setIfAbsent(anyString(), anyString(), any(Duration.class));
+  }
+
+  @Test
+  void testGet_ReadsJsonWrittenBeforeBinaryFormat() {
+    long now = System.currentTimeMillis();
+    when(cacheValueOperations.get("cache:user:alice")).thenReturn(bytes("\"alice\""));
+    when(cacheValueOperations.get("products:1")).thenReturn(bytes(
+        "\u0001" + now + "|5|" + (now + 60_000) + "|\"shoes\""));
+
+    assertEquals("alice", cacheService.get("cache:user:alice", String.class).orElseThrow());
+    assertEquals("shoes", cacheService.get("products:1", String.class).orElseThrow());
+  }
+
+  @Test
+  void testGet_ValueOfNewerFormatIsAMiss() {
+    when(cacheValueOperations.get("shipping:rate:1"))
+        .thenReturn(new byte[]{CacheValueFormat.VERSION + 1, 1, 0, '"', '"'});
+
+    assertTrue(cacheService.get("shipping:rate:1", String.class).isEmpty());
+  }
+
+  private static byte[] envelope(long writtenAt, long computeMillis, long expiresAt,
+      String value) throws IOException {
+    return cacheValueFormat().encode(value,
+        new CacheValueFormat.Envelope(writtenAt, computeMillis, expiresAt));
+  }
+
+  private static byte[] bytes(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static CacheValueFormat cacheValueFormat() {
+    return new CacheValueFormat(new ObjectMapper(), "smile", 1024, 1 << 20);
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private CacheServiceImpl cacheService(long maxBytes) {
+    return new CacheServiceImpl(redisTemplate, cacheRedisTemplate, cacheValueFormat(),
+        new ObjectMapper(), listenerContainer, meterRegistry, maxBytes, Duration.ofSeconds(30),
+        Duration.ofSeconds(30), Duration.ofMinutes(1), Duration.ofSeconds(30),
+        Duration.ofMinutes(10), 1.0, Duration.ofHours(1), 1.0);
+  }
+
+  private String broadcastedInvalidation() {
+    ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+    verify(redisTemplate).convertAndSend(
+        eq(CacheServiceImpl.INVALIDATION_CHANNEL), message.capture());
+    return (String) message.getValue();
+  }
+
+  private DefaultMessage message(String body) {
+    return new DefaultMessage(
+        CacheServiceImpl.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+        body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private double requests(String tier, String result) {
+    return meterRegistry.get("cache.requests").tag("tier", tier).tag("result", result)
+        .counter().count();
+  }
+}
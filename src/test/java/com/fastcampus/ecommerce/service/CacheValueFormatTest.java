@@ -0,0 +1,163 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fastcampus.ecommerce.model.CategoryResponse;
+import com.fastcampus.ecommerce.model.ProductResponse;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+@Slf4j
+class CacheValueFormatTest {
+
+  private static final int ROUNDS = 5_000;
+  private static final int MAX_RAW_BYTES = 1 << 20;
+
+  private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+  private final JavaType productType = objectMapper.constructType(ProductResponse.class);
+
+  @Test
+  void testEncode_RoundTripsWithEnvelope() throws Exception {
+    CacheValueFormat format = new CacheValueFormat(objectMapper, "smile", 1024, MAX_RAW_BYTES);
+    CacheValueFormat.Envelope envelope = new CacheValueFormat.Envelope(1_000, 25, 61_000);
+
+    byte[] stored = format.encode(product(1L), envelope);
+
+    assertEquals(product(1L), format.decode(stored, productType));
+    assertEquals(envelope, format.envelope(stored));
+    assertEquals(CacheValueFormat.Envelope.NONE, format.envelope(format.encode(product(1L))));
+  }
+
+  @Test
+  void testEncode_CompressesOnlyAboveThreshold() throws Exception {
+    CacheValueFormat format = new CacheValueFormat(objectMapper, "smile", 1024, MAX_RAW_BYTES);
+    List<ProductResponse> page = IntStream.rangeClosed(1, 50)
+        .mapToObj(this::product)
+        .toList();
+    JavaType pageType = objectMapper.getTypeFactory()
+        .constructCollectionType(List.class, ProductResponse.class);
+
+    byte[] small = format.encode(product(1L));
+    byte[] large = format.encode(page);
+
+    // flags byte follows version and codec id
+    assertEquals(0, small[2] & 1);
+    assertEquals(1, large[2] & 1);
+    assertEquals(page, format.decode(large, pageType));
+  }
+
+  @Test
+  void testDecode_ReadsEveryCodecWhateverIsWritten() throws Exception {
+    byte[] writtenAsJson = new CacheValueFormat(objectMapper, "json", 0, MAX_RAW_BYTES).encode(product(1L));
+
+    assertEquals(product(1L), new CacheValueFormat(objectMapper, "smile", 1024, MAX_RAW_BYTES)
+        .decode(writtenAsJson, productType));
+  }
+
+  @Test
+  void testDecode_ReadsValuesWrittenBeforeBinaryFormat() throws Exception {
+    CacheValueFormat format = new CacheValueFormat(objectMapper, "smile", 1024, MAX_RAW_BYTES);
+    String json = objectMapper.writeValueAsString(product(1L));
+
+    assertEquals(product(1L), format.decode(json.getBytes(StandardCharsets.UTF_8), productType));
+    byte[] legacyEnvelope = ("\u00011000|25|61000|" + json).getBytes(StandardCharsets.UTF_8);
+    assertEquals(product(1L), format.decode(legacyEnvelope, productType));
+    assertEquals(new CacheValueFormat.Envelope(1_000, 25, 61_000),
+        format.envelope(legacyEnvelope));
+  }
+
+  @Test
+  void testDecode_RejectsRawLengthAboveBound() throws Exception {
+    List<ProductResponse> page = IntStream.rangeClosed(1, 50)
+        .mapToObj(this::product)
+        .toList();
+    byte[] large = new CacheValueFormat(objectMapper, "smile", 1024, MAX_RAW_BYTES).encode(page);
+    JavaType pageType = objectMapper.getTypeFactory()
+        .constructCollectionType(List.class, ProductResponse.class);
+
+    assertThrows(IllegalStateException.class,
+        () -> new CacheValueFormat(objectMapper, "smile", 1024, 64).decode(large, pageType));
+  }
+
+  @Test
+  void testDecode_RejectsNewerFormatVersion() {
+    CacheValueFormat format = new CacheValueFormat(objectMapper, "smile", 1024, MAX_RAW_BYTES);
+
+    assertThrows(IllegalStateException.class, () -> format.decode(
+        new byte[]{CacheValueFormat.VERSION + 1, 2, 0}, productType));
+  }
+
+  @Test
+  void testEncode_SmileWithLz4IsSmallerThanJsonForAPageOfProducts() throws Exception {
+    List<ProductResponse> page = IntStream.rangeClosed(1, 20)
+        .mapToObj(this::product)
+        .toList();
+    JavaType pageType = objectMapper.getTypeFactory()
+        .constructCollectionType(List.class, ProductResponse.class);
+
+    Measurement json = measure("json", new CacheValueFormat(objectMapper, "json", 0, MAX_RAW_BYTES), page,
+        pageType);
+    Measurement smile = measure("smile", new CacheValueFormat(objectMapper, "smile", 0, MAX_RAW_BYTES), page,
+        pageType);
+    Measurement smileLz4 = measure("smile+lz4", new CacheValueFormat(objectMapper, "smile", 1024, MAX_RAW_BYTES),
+        page, pageType);
+
+    assertTrue(smile.bytes() < json.bytes());
+    assertTrue(smileLz4.bytes() < smile.bytes());
+  }
+
+  private Measurement measure(String name, CacheValueFormat format, Object value, JavaType type)
+      throws Exception {
+    // warm up so the timings below are of jit compiled code
+    for (int i = 0; i < ROUNDS; i++) {
+      format.decode(format.encode(value), type);
+    }
+
+    byte[] stored = format.encode(value);
+    long encodeStart = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      stored = format.encode(value);
+    }
+    long encodeNanos = System.nanoTime() - encodeStart;
+    long decodeStart = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      format.decode(stored, type);
+    }
+    long decodeNanos = System.nanoTime() - decodeStart;
+
+    log.info("{}: {} bytes, encode {} us, decode {} us", name, stored.length,
+        TimeUnit.NANOSECONDS.toMicros(encodeNanos / ROUNDS),
+        TimeUnit.NANOSECONDS.toMicros(decodeNanos / ROUNDS));
+    return new Measurement(stored.length, encodeNanos, decodeNanos);
+  }
+
+  private ProductResponse product(long productId) {
+    return ProductResponse.builder()
+        .productId(productId)
+        .name("Running Shoes " + productId)
+        .price(new BigDecimal("450000.00"))
+        .description("Lightweight running shoes with a breathable mesh upper and a cushioned"
+            + " midsole for daily training")
+        .stockQuantity(25)
+        .weight(new BigDecimal("850.00"))
+        .createdAt(LocalDateTime.of(2024, 1, 15, 10, 30))
+        .updatedAt(LocalDateTime.of(2024, 2, 1, 8, 0))
+        .userId(7L)
+        .categories(List.of(CategoryResponse.builder().categoryId(3L).name("Shoes").build()))
+        .build();
+  }
+
+  private record Measurement(int bytes, long encodeNanos, long decodeNanos) {
+
+  }
+}
@@ -0,0 +1,206 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.model.ProductResponse;
+import com.fastcampus.ecommerce.model.ProductSearchRequest;
+import com.fastcampus.ecommerce.model.SearchResponse;
+import com.fastcampus.ecommerce.model.SearchResponse.FacetEntry;
+import com.fastcampus.ecommerce.service.CachedSearchServiceImpl.CachedHits;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CachedSearchServiceImplTest {
+
+  private static final Duration HITS_TTL = Duration.ofSeconds(30);
+  private static final Duration FACETS_TTL = Duration.ofMinutes(10);
+  private static final Map<String, List<FacetEntry>> FACETS = Map.of("categories",
+      List.of(new FacetEntry("Shoes", 3L)));
+
+  @Mock
+  private SearchService searchService;
+  @Mock
+  private ProductService productService;
+  @Mock
+  private CacheService cacheService;
+  @Mock
+  private SearchIndexGeneration searchIndexGeneration;
+
+  private CachedSearchServiceImpl cachedSearchService;
+
+  @BeforeEach
+  void setUp() {
+    cachedSearchService = new CachedSearchServiceImpl(searchService, productService,
+        cacheService, searchIndexGeneration, new ObjectMapper(), HITS_TTL, FACETS_TTL, 5);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testSearch_MissSearchesOnceAndCachesHitsAndFacetsApart() {
+    when(searchIndexGeneration.current()).thenReturn(7L);
+    when(cacheService.get(anyString(), any(TypeReference.class))).thenReturn(Optional.empty());
+    loadOnMiss();
+    SearchResponse<ProductResponse> page = page(FACETS, 1L, 2L);
+    when(searchService.search(any(ProductSearchRequest.class), eq(true))).thenReturn(page);
+
+    SearchResponse<ProductResponse> response = cachedSearchService.search(searchRequest());
+
+    assertSame(page, response);
+    verify(productService, never()).findAllByIds(any());
+    ArgumentCaptor<String> hitsKey = ArgumentCaptor.forClass(String.class);
+    verify(cacheService).getOrLoad(hitsKey.capture(), eq(CachedHits.class), eq(HITS_TTL),
+        any());
+    assertTrue(hitsKey.getValue().startsWith("search:hits:7:"));
+    ArgumentCaptor<String> facetsKey = ArgumentCaptor.forClass(String.class);
+    verify(cacheService).put(facetsKey.capture(), eq(FACETS), eq(FACETS_TTL));
+    assertTrue(facetsKey.getValue().startsWith("search:facets:7:"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testSearch_HitReadsProductsThroughProductCache() {
+    when(searchIndexGeneration.current()).thenReturn(7L);
+    when(cacheService.get(anyString(), any(TypeReference.class))).thenReturn(Optional.of(FACETS));
+    when(cacheService.getOrLoad(anyString(), eq(CachedHits.class), eq(HITS_TTL), any()))
+        .thenReturn(new CachedHits(List.of(2L, 1L), 40));
+    when(productService.findAllByIds(List.of(2L, 1L))).thenReturn(List.of(
+        ProductResponse.builder().productId(2L).build(),
+        ProductResponse.builder().productId(1L).build()));
+
+    SearchResponse<ProductResponse> response = cachedSearchService.search(searchRequest());
+
+    assertEquals(2, response.getData().size());
+    assertEquals(40, response.getTotalHits());
+    assertEquals(FACETS, response.getFacets());
+    verifyNoInteractions(searchService);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testSearch_CachedFacetsSkipTheAggregation() {
+    when(searchIndexGeneration.current()).thenReturn(7L);
+    when(cacheService.get(anyString(), any(TypeReference.class))).thenReturn(Optional.of(FACETS));
+    loadOnMiss();
+    // a search without aggregations may still carry an empty facet map
+    when(searchService.search(any(ProductSearchRequest.class), eq(false)))
+        .thenReturn(page(Map.of(), 1L));
+
+    SearchResponse<ProductResponse> response = cachedSearchService.search(searchRequest());
+
+    assertEquals(FACETS, response.getFacets());
+    verify(searchService, never()).search(any(ProductSearchRequest.class), eq(true));
+    verify(cacheService, never()).put(anyString(), any(), any(Duration.class));
+  }
+
+  @Test
+  void testSearch_EquivalentRequestsShareOneKeyUntilGenerationMoves() {
+    when(searchIndexGeneration.current()).thenReturn(7L, 7L, 8L);
+    when(cacheService.getOrLoad(anyString(), eq(CachedHits.class), eq(HITS_TTL), any()))
+        .thenReturn(new CachedHits(List.of(), 0));
+
+    ProductSearchRequest messy = searchRequest();
+    messy.setQuery("  Running   SHOES ");
+    messy.setCategory("Shoes ");
+    messy.setSortOrder(null);
+    ProductSearchRequest other = searchRequest();
+    other.setSortOrder("asc");
+    cachedSearchService.search(searchRequest(), false);
+    cachedSearchService.search(messy, false);
+    cachedSearchService.search(searchRequest(), false);
+    cachedSearchService.search(other, false);
+
+    ArgumentCaptor<String> hitsKeys = ArgumentCaptor.forClass(String.class);
+    verify(cacheService, times(4)).getOrLoad(hitsKeys.capture(), eq(CachedHits.class),
+        eq(HITS_TTL), any());
+    List<String> keys = hitsKeys.getAllValues();
+    assertEquals(keys.get(0), keys.get(1));
+    assertEquals(keys.get(0).replace("search:hits:7:", "search:hits:8:"), keys.get(2));
+    assertNotEquals(keys.get(2), keys.get(3));
+  }
+
+  @Test
+  void testSearch_CursorAndDeepPagesBypassTheCache() {
+    ProductSearchRequest cursorRequest = searchRequest();
+    cursorRequest.setCursor("");
+    ProductSearchRequest deepRequest = searchRequest();
+    deepRequest.setPage(6);
+    when(searchService.search(any(ProductSearchRequest.class), anyBoolean()))
+        .thenReturn(page(null));
+
+    cachedSearchService.search(cursorRequest);
+    cachedSearchService.search(deepRequest);
+
+    verify(searchService).search(cursorRequest, true);
+    verify(searchService).search(deepRequest, true);
+    verifyNoInteractions(cacheService, searchIndexGeneration);
+  }
+
+  @Test
+  void testCanonicalize_NormalizesQueryAndDefaults() {
+    ProductSearchRequest searchRequest = new ProductSearchRequest();
+    searchRequest.setQuery("   ");
+    searchRequest.setSortBy(null);
+    searchRequest.setSortOrder("ASC");
+
+    ProductSearchRequest canonical = CachedSearchServiceImpl.canonicalize(searchRequest);
+
+    assertNull(canonical.getQuery());
+    assertNull(canonical.getCategory());
+    assertEquals("_score", canonical.getSortBy());
+    // the search sorts descending on anything but asc
+    assertEquals("desc", canonical.getSortOrder());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void loadOnMiss() {
+    when(cacheService.getOrLoad(anyString(), eq(CachedHits.class), eq(HITS_TTL), any()))
+        .thenAnswer(invocation -> ((Supplier<CachedHits>) invocation.getArgument(3)).get());
+  }
+
+  private ProductSearchRequest searchRequest() {
+    return ProductSearchRequest.builder()
+        .query("running shoes")
+        .category("Shoes")
+        .sortBy("_score")
+        .sortOrder("desc")
+        .page(1)
+        .size(20)
+        .build();
+  }
+
+  private SearchResponse<ProductResponse> page(Map<String, List<FacetEntry>> facets,
+      Long... productIds) {
+    SearchResponse<ProductResponse> response = new SearchResponse<>();
+    response.setData(List.of(productIds).stream()
+        .map(productId -> ProductResponse.builder().productId(productId).build())
+        .toList());
+    response.setTotalHits(productIds.length);
+    response.setFacets(facets);
+    return response;
+  }
+}
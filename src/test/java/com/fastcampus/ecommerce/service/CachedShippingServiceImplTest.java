@@ -0,0 +1,117 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.model.ShippingRateRequest;
+import com.fastcampus.ecommerce.model.ShippingRateResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+class CachedShippingServiceImplTest {
+
+  private static final long COURIER_LATENCY_MILLIS = 20;
+  private static final int ROUTES = 10;
+  private static final int QUOTES = 200;
+
+  @Mock
+  private ShippingService courierShippingService;
+  @Mock
+  private CacheService cacheService;
+
+  private SimpleMeterRegistry meterRegistry;
+  private CachedShippingServiceImpl cachedShippingService;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    cachedShippingService = new CachedShippingServiceImpl(courierShippingService, cacheService,
+        meterRegistry, 1000, 1000, Duration.ofHours(1));
+  }
+
+  @Test
+  void testCalculateShippingRate_SameRouteAndBucketIsQuotedOnce() {
+    when(cacheService.get(anyString(), eq(ShippingRateResponse.class)))
+        .thenReturn(Optional.empty());
+    ShippingRateResponse rate = ShippingRateResponse.builder()
+        .shippingFee(new BigDecimal("12500.00"))
+        .build();
+    when(courierShippingService.calculateShippingRate(any())).thenReturn(rate);
+
+    ShippingRateResponse first = cachedShippingService.calculateShippingRate(
+        rateRequest("10110", "40111", "1200"));
+    // 1200 and 1900 grams share the 2 kg bucket
+    ShippingRateResponse second = cachedShippingService.calculateShippingRate(
+        rateRequest("10110", "40111", "1900"));
+
+    assertSame(first, second);
+    verify(courierShippingService, times(1)).calculateShippingRate(
+        argThat(request ->
+            request.getTotalWeightInGrams().compareTo(new BigDecimal("2000")) == 0));
+    verify(cacheService).put(eq("shipping:rate:10110:40111:2"), eq(rate),
+        eq(Duration.ofHours(1)));
+    assertEquals(1.0, meterRegistry.get("shipping.rate.cache.requests")
+        .tag("result", "local_hit").counter().count());
+  }
+
+  @Test
+  void testCalculateShippingRate_CachedQuotesAreFasterThanCourier() {
+    when(cacheService.get(anyString(), eq(ShippingRateResponse.class)))
+        .thenReturn(Optional.empty());
+    when(courierShippingService.calculateShippingRate(any())).thenAnswer(invocation -> {
+      Thread.sleep(COURIER_LATENCY_MILLIS);
+      return ShippingRateResponse.builder().shippingFee(new BigDecimal("12500.00")).build();
+    });
+
+    long uncachedStart = System.nanoTime();
+    for (int i = 0; i < QUOTES; i++) {
+      courierShippingService.calculateShippingRate(
+          rateRequest("10110", "4011" + i % ROUTES, "500"));
+    }
+    long uncachedNanos = System.nanoTime() - uncachedStart;
+
+    long cachedStart = System.nanoTime();
+    for (int i = 0; i < QUOTES; i++) {
+      cachedShippingService.calculateShippingRate(
+          rateRequest("10110", "4011" + i % ROUTES, "500"));
+    }
+    long cachedNanos = System.nanoTime() - cachedStart;
+
+    log.info("Average quote latency without cache: {} us, with cache: {} us",
+        TimeUnit.NANOSECONDS.toMicros(uncachedNanos / QUOTES),
+        TimeUnit.NANOSECONDS.toMicros(cachedNanos / QUOTES));
+    assertTrue(cachedNanos < uncachedNanos);
+    // the courier is only asked once per route, every other quote is a local hit
+    verify(courierShippingService, times(QUOTES + ROUTES)).calculateShippingRate(any());
+    assertEquals(QUOTES - ROUTES, meterRegistry.get("shipping.rate.cache.requests")
+        .tag("result", "local_hit").counter().count());
+  }
+
+  private ShippingRateRequest rateRequest(String fromPostalCode, String toPostalCode,
+      String weight) {
+    return ShippingRateRequest.builder()
+        .fromAddress(ShippingRateRequest.Address.builder().postalCode(fromPostalCode).build())
+        .toAddress(ShippingRateRequest.Address.builder().postalCode(toPostalCode).build())
+        .totalWeightInGrams(new BigDecimal(weight))
+        .build();
+  }
+}
@@ -0,0 +1,134 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.entity.Category;
+import com.fastcampus.ecommerce.repository.CategoryRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryDictionaryTest {
+
+  @Mock
+  private CategoryRepository categoryRepository;
+  @Mock
+  private RedisTemplate<String, String> redisTemplate;
+  @Mock
+  private RedisMessageListenerContainer listenerContainer;
+
+  private CategoryDictionary categoryDictionary;
+
+  @BeforeEach
+  void setUp() {
+    categoryDictionary = new CategoryDictionary(categoryRepository, redisTemplate,
+        listenerContainer, Duration.ofSeconds(30));
+  }
+
+  @Test
+  void testGet_ServesEveryLookupFromOneLoad() {
+    when(categoryRepository.findAll()).thenReturn(List.of(category(1L, "shoes")));
+
+    Category first = categoryDictionary.get(1L).orElseThrow();
+    Category second = categoryDictionary.get(1L).orElseThrow();
+
+    assertEquals(first, second);
+    assertEquals(categoryDictionary.toResponse(first), categoryDictionary.toResponse(second));
+    verify(categoryRepository, times(1)).findAll();
+    verify(categoryRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  void testGet_ChangingReturnedCategoryLeavesSnapshotAlone() {
+    when(categoryRepository.findAll()).thenReturn(List.of(category(1L, "shoes")));
+
+    categoryDictionary.get(1L).orElseThrow().setName("changed");
+
+    assertEquals("shoes", categoryDictionary.get(1L).orElseThrow().getName());
+    assertEquals("shoes", categoryDictionary.toResponse(category(1L, "changed")).getName());
+  }
+
+  @Test
+  void testGetResponse_SharesOneResponsePerSnapshot() {
+    when(categoryRepository.findAll()).thenReturn(List.of(category(1L, "shoes")));
+
+    assertSame(categoryDictionary.getResponse(1L).orElseThrow(),
+        categoryDictionary.getResponse(1L).orElseThrow());
+    assertSame(categoryDictionary.getResponse(1L).orElseThrow(),
+        categoryDictionary.toResponse(category(1L, "shoes")));
+  }
+
+  @Test
+  void testGet_UnknownCategoryOnlyReloadsWhenItExists() {
+    when(categoryRepository.findAll()).thenReturn(List.of(category(1L, "shoes")))
+        .thenReturn(List.of(category(1L, "shoes"), category(2L, "sale")));
+    when(categoryRepository.findById(99L)).thenReturn(Optional.empty());
+    when(categoryRepository.findById(2L)).thenReturn(Optional.of(category(2L, "sale")));
+
+    assertTrue(categoryDictionary.get(99L).isEmpty());
+    verify(categoryRepository, times(1)).findAll();
+
+    // created on another node before its broadcast arrived
+    assertEquals("sale", categoryDictionary.get(2L).orElseThrow().getName());
+    verify(categoryRepository, times(2)).findAll();
+    assertEquals("sale", categoryDictionary.get(2L).orElseThrow().getName());
+    verify(categoryRepository, times(1)).findById(2L);
+  }
+
+  @Test
+  void testGet_MissingCategoryIsRememberedUntilNextRefresh() {
+    when(categoryRepository.findAll()).thenReturn(List.of(category(1L, "shoes")));
+    when(categoryRepository.findById(99L)).thenReturn(Optional.empty());
+
+    assertTrue(categoryDictionary.get(99L).isEmpty());
+    assertTrue(categoryDictionary.get(99L).isEmpty());
+    verify(categoryRepository, times(1)).findById(99L);
+
+    // a refresh may bring the category in, so the miss is forgotten
+    categoryDictionary.onMessage(null, null);
+    assertTrue(categoryDictionary.get(99L).isEmpty());
+    verify(categoryRepository, times(2)).findById(99L);
+  }
+
+  @Test
+  void testOnMessage_SwapsInNewSnapshot() {
+    when(categoryRepository.findAll()).thenReturn(List.of(category(1L, "shoes")))
+        .thenReturn(List.of(category(1L, "sneakers")));
+    assertEquals("shoes", categoryDictionary.get(1L).orElseThrow().getName());
+
+    categoryDictionary.onMessage(null, null);
+
+    assertEquals("sneakers", categoryDictionary.get(1L).orElseThrow().getName());
+  }
+
+  @Test
+  void testPublishChange_RefreshesLocallyAndBroadcasts() {
+    when(categoryRepository.findAll()).thenReturn(List.of(category(1L, "shoes")));
+
+    categoryDictionary.publishChange();
+
+    verify(redisTemplate).convertAndSend(any(), any());
+    assertEquals("shoes", categoryDictionary.get(1L).orElseThrow().getName());
+    verify(categoryRepository, times(1)).findAll();
+  }
+
+  private Category category(Long categoryId, String name) {
+    return Category.builder().categoryId(categoryId).name(name).build();
+  }
+}
@@ -0,0 +1,89 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
+import com.fastcampus.ecommerce.entity.Category;
+import com.fastcampus.ecommerce.model.CategoryRequest;
+import com.fastcampus.ecommerce.repository.CategoryRepository;
+import com.fastcampus.ecommerce.repository.ProductCategoryRepository;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryServiceImplTest {
+
+  @Mock
+  private ProductCategoryLoader productCategoryLoader;
+  @Mock
+  private CategoryRepository categoryRepository;
+  @Mock
+  private ProductCategoryRepository productCategoryRepository;
+  @Mock
+  private CategoryDictionary categoryDictionary;
+
+  @InjectMocks
+  private CategoryServiceImpl categoryService;
+
+  @BeforeEach
+  void setUp() {
+    TransactionSynchronizationManager.initSynchronization();
+  }
+
+  @AfterEach
+  void tearDown() {
+    TransactionSynchronizationManager.clearSynchronization();
+  }
+
+  @Test
+  void testCreate_PublishesChangeOnlyAfterCommit() {
+    when(categoryRepository.save(any(Category.class))).thenAnswer(invocation -> {
+      Category category = invocation.getArgument(0);
+      category.setCategoryId(1L);
+      return category;
+    });
+
+    categoryService.create(CategoryRequest.builder().name("shoes").build());
+
+    verify(categoryDictionary, never()).publishChange();
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(TransactionSynchronization::afterCommit);
+    verify(categoryDictionary).publishChange();
+  }
+
+  @Test
+  void testUpdate_PublishesRenameAfterCommit() {
+    when(categoryRepository.findById(1L)).thenReturn(Optional.of(
+        Category.builder().categoryId(1L).name("shoes").build()));
+
+    categoryService.update(1L, CategoryRequest.builder().name("sneakers").build());
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(TransactionSynchronization::afterCommit);
+
+    verify(categoryDictionary).publishChange();
+  }
+
+  @Test
+  void testDelete_RejectsCategoryThatStillHasProducts() {
+    when(categoryRepository.findById(1L)).thenReturn(Optional.of(
+        Category.builder().categoryId(1L).name("shoes").build()));
+    when(productCategoryRepository.existsByIdCategoryId(1L)).thenReturn(true);
+
+    assertThrows(BadRequestException.class, () -> categoryService.delete(1L));
+
+    verify(categoryRepository, never()).delete(any());
+    verify(categoryDictionary, never()).publishChange();
+  }
+}
@@ -0,0 +1,82 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.common.errors.InsufficientInventoryException;
+import com.fastcampus.ecommerce.common.errors.WaitingRoomException;
+import com.fastcampus.ecommerce.model.CheckoutRequest;
+import com.fastcampus.ecommerce.repository.CartItemRepository;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutServiceImplTest {
+
+  @Mock
+  private CartItemRepository cartItemRepository;
+  @Mock
+  private WaitingRoomService waitingRoomService;
+  @Mock
+  private OrderService orderService;
+
+  @InjectMocks
+  private CheckoutServiceImpl checkoutService;
+
+  private CheckoutRequest checkoutRequest;
+
+  @BeforeEach
+  void setUp() {
+    checkoutRequest = CheckoutRequest.builder()
+        .userId(1L)
+        .selectedCartItemIds(List.of(10L))
+        .userAddressId(1L)
+        .queueTicketIds(List.of("ticket-1"))
+        .build();
+  }
+
+  @Test
+  void testCheckout_WithoutOpenRoomsSkipsAdmission() {
+    checkoutService.checkout(checkoutRequest);
+
+    verifyNoInteractions(cartItemRepository);
+    verify(waitingRoomService, never()).admit(any(), any(), any());
+    verify(orderService).checkout(checkoutRequest);
+  }
+
+  @Test
+  void testCheckout_RejectedBeforeTheOrderTransaction() {
+    when(waitingRoomService.hasOpenRooms()).thenReturn(true);
+    when(cartItemRepository.findProductIdsByCartItemIds(List.of(10L))).thenReturn(List.of(7L));
+    when(waitingRoomService.admit(1L, List.of("ticket-1"), List.of(7L)))
+        .thenThrow(new WaitingRoomException("rejected"));
+
+    assertThrows(WaitingRoomException.class, () -> checkoutService.checkout(checkoutRequest));
+
+    verifyNoInteractions(orderService);
+  }
+
+  @Test
+  void testCheckout_FailedCheckoutRestoresTicket() {
+    when(waitingRoomService.hasOpenRooms()).thenReturn(true);
+    when(cartItemRepository.findProductIdsByCartItemIds(List.of(10L))).thenReturn(List.of(7L));
+    when(waitingRoomService.admit(1L, List.of("ticket-1"), List.of(7L)))
+        .thenReturn(List.of("ticket-1"));
+    when(orderService.checkout(checkoutRequest))
+        .thenThrow(new InsufficientInventoryException(List.of(7L)));
+
+    assertThrows(InsufficientInventoryException.class,
+        () -> checkoutService.checkout(checkoutRequest));
+
+    verify(waitingRoomService).restoreTickets(List.of("ticket-1"));
+  }
+}
@@ -0,0 +1,152 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import com.fastcampus.ecommerce.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@ExtendWith(MockitoExtension.class)
+class ExistenceFilterTest {
+
+  private static final int BATCH_SIZE = 1000;
+  private static final long PRODUCTS = 2500;
+
+  @Mock
+  private ProductRepository productRepository;
+  @Mock
+  private UserRepository userRepository;
+  @Mock
+  private RedisTemplate<String, String> redisTemplate;
+  @Mock
+  private ZSetOperations<String, String> zSetOperations;
+  @Mock
+  private RedisMessageListenerContainer listenerContainer;
+
+  private SimpleMeterRegistry meterRegistry;
+  private ExistenceFilter existenceFilter;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+    existenceFilter = new ExistenceFilter(productRepository, userRepository, redisTemplate,
+        listenerContainer, meterRegistry, 0.01, BATCH_SIZE, 600000);
+  }
+
+  @Test
+  void testMightExist_EveryKeyPassesUntilFirstBuild() {
+    assertTrue(existenceFilter.mightExist(ExistenceFilter.PRODUCTS, "404"));
+    assertTrue(existenceFilter.mightExist(ExistenceFilter.USERS, "nobody"));
+  }
+
+  @Test
+  void testRebuild_RejectsMostIdsThatDoNotExist() {
+    // every odd id was deleted
+    when(productRepository.count()).thenReturn(PRODUCTS);
+    when(productRepository.findProductIdsAfter(anyLong(), eq(BATCH_SIZE))).thenAnswer(
+        invocation -> {
+          long afterId = invocation.getArgument(0);
+          return LongStream.rangeClosed(afterId / 2 + 1, Math.min(afterId / 2 + BATCH_SIZE,
+                  PRODUCTS))
+              .map(index -> 2 * index)
+              .boxed()
+              .toList();
+        });
+    when(userRepository.count()).thenReturn(1L);
+    when(userRepository.findLoginKeysAfter(0, BATCH_SIZE))
+        .thenReturn(List.<Object[]>of(new Object[]{1L, "alice", "alice@example.com"}));
+
+    existenceFilter.rebuild();
+
+    // no false negatives
+    assertTrue(LongStream.rangeClosed(1, PRODUCTS).allMatch(index ->
+        existenceFilter.mightExist(ExistenceFilter.PRODUCTS, String.valueOf(2 * index))));
+    assertTrue(existenceFilter.mightExist(ExistenceFilter.USERS, "alice"));
+    assertTrue(existenceFilter.mightExist(ExistenceFilter.USERS, "alice@example.com"));
+    assertFalse(existenceFilter.mightExist(ExistenceFilter.USERS, "mallory"));
+
+    long falsePositives = LongStream.rangeClosed(1, PRODUCTS)
+        .filter(index ->
+            existenceFilter.mightExist(ExistenceFilter.PRODUCTS, String.valueOf(2 * index - 1)))
+        .count();
+    assertTrue(falsePositives < 50, "false positives: " + falsePositives);
+    assertEquals(PRODUCTS - falsePositives, meterRegistry.get("cache.existence.rejected")
+        .tag("namespace", ExistenceFilter.PRODUCTS).counter().count());
+  }
+
+  @Test
+  void testMightExist_IdsAboveLastBuildGoToTheDatabase() {
+    when(productRepository.count()).thenReturn(1L);
+    when(productRepository.findProductIdsAfter(0, BATCH_SIZE)).thenReturn(List.of(10L));
+    when(userRepository.findLoginKeysAfter(0, BATCH_SIZE)).thenReturn(List.of());
+
+    existenceFilter.rebuild();
+
+    // created after the build and its broadcast has not arrived yet
+    assertTrue(existenceFilter.mightExist(ExistenceFilter.PRODUCTS, "11"));
+    assertFalse(existenceFilter.mightExist(ExistenceFilter.PRODUCTS, "9"));
+  }
+
+  @Test
+  void testAdd_NewKeyPassesOnEveryNode() {
+    when(productRepository.count()).thenReturn(1L);
+    when(productRepository.findProductIdsAfter(0, BATCH_SIZE)).thenReturn(List.of(10L));
+    when(userRepository.findLoginKeysAfter(0, BATCH_SIZE)).thenReturn(List.of());
+    existenceFilter.rebuild();
+    assertFalse(existenceFilter.mightExist(ExistenceFilter.PRODUCTS, "1"));
+
+    existenceFilter.add(ExistenceFilter.PRODUCTS, "1");
+    // another node's broadcast
+    existenceFilter.onMessage(new DefaultMessage(
+        ExistenceFilter.ADDED_CHANNEL.getBytes(StandardCharsets.UTF_8),
+        "product|2".getBytes(StandardCharsets.UTF_8)), null);
+
+    assertTrue(existenceFilter.mightExist(ExistenceFilter.PRODUCTS, "1"));
+    assertTrue(existenceFilter.mightExist(ExistenceFilter.PRODUCTS, "2"));
+    verify(redisTemplate).convertAndSend(ExistenceFilter.ADDED_CHANNEL, "product|1");
+  }
+
+  @Test
+  void testMightExist_UserWhoseBroadcastWasLostStillPasses() {
+    when(productRepository.findProductIdsAfter(0, BATCH_SIZE)).thenReturn(List.of());
+    when(userRepository.count()).thenReturn(1L);
+    when(userRepository.findLoginKeysAfter(0, BATCH_SIZE))
+        .thenReturn(List.<Object[]>of(new Object[]{1L, "alice", "alice@example.com"}));
+    existenceFilter.rebuild();
+
+    // registered on another node after the build, its broadcast never arrived
+    when(zSetOperations.score("existence:recent:user", "bob")).thenReturn(1.0);
+
+    assertTrue(existenceFilter.mightExist(ExistenceFilter.USERS, "bob"));
+    assertFalse(existenceFilter.mightExist(ExistenceFilter.USERS, "mallory"));
+  }
+
+  @Test
+  void testAdd_UserKeyIsRecordedForNodesThatMissTheBroadcast() {
+    existenceFilter.add(ExistenceFilter.USERS, "bob");
+
+    verify(zSetOperations).add(eq("existence:recent:user"), eq("bob"), anyDouble());
+    verify(redisTemplate).convertAndSend(ExistenceFilter.ADDED_CHANNEL, "user|bob");
+  }
+}
@@ -0,0 +1,121 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fastcampus.ecommerce.common.errors.InsufficientInventoryException;
+import com.fastcampus.ecommerce.entity.Product;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+@Slf4j
+class InventoryServiceImplConcurrencyTest {
+
+  private static final int THREADS = 16;
+  private static final int CHECKOUTS = 300;
+  private static final int HOT_PRODUCT_STOCK = 100;
+  private static final int REGULAR_PRODUCT_STOCK = 1000;
+
+  @Autowired
+  private InventoryService inventoryService;
+
+  @Autowired
+  private ProductRepository productRepository;
+
+  private Product hotProduct;
+  private Product regularProduct;
+
+  @BeforeEach
+  void setUp() {
+    hotProduct = productRepository.save(Product.builder()
+        .name("flash sale product")
+        .price(new BigDecimal("100.00"))
+        .stockQuantity(HOT_PRODUCT_STOCK)
+        .weight(new BigDecimal("500"))
+        .build());
+    regularProduct = productRepository.save(Product.builder()
+        .name("regular product")
+        .price(new BigDecimal("50.00"))
+        .stockQuantity(REGULAR_PRODUCT_STOCK)
+        .weight(new BigDecimal("500"))
+        .build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    productRepository.deleteAllById(
+        List.of(hotProduct.getProductId(), regularProduct.getProductId()));
+  }
+
+  @Test
+  void testDecreaseQuantity_ConcurrentCheckoutsNeverOversell() throws Exception {
+    AtomicInteger reserved = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> futures = new ArrayList<>();
+
+    for (int i = 0; i < CHECKOUTS; i++) {
+      // alternate insertion order so unordered locking would deadlock
+      Map<Long, Integer> cart = new LinkedHashMap<>();
+      if (i % 2 == 0) {
+        cart.put(hotProduct.getProductId(), 1);
+        cart.put(regularProduct.getProductId(), 1);
+      } else {
+        cart.put(regularProduct.getProductId(), 1);
+        cart.put(hotProduct.getProductId(), 1);
+      }
+
+      futures.add(executor.submit(() -> {
+        start.await();
+        try {
+          inventoryService.decreaseQuantity(cart);
+          reserved.incrementAndGet();
+        } catch (InsufficientInventoryException ex) {
+          assertEquals(List.of(hotProduct.getProductId()), ex.getProductIds());
+          rejected.incrementAndGet();
+        }
+        return null;
+      }));
+    }
+
+    long startTime = System.nanoTime();
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long elapsedNanos = System.nanoTime() - startTime;
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    double throughput = CHECKOUTS / (elapsedNanos / 1_000_000_000.0);
+    log.info("Processed {} checkouts with {} threads in {} ms ({} checkouts/s)", CHECKOUTS,
+        THREADS, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), String.format("%.1f", throughput));
+
+    assertEquals(HOT_PRODUCT_STOCK, reserved.get());
+    assertEquals(CHECKOUTS - HOT_PRODUCT_STOCK, rejected.get());
+    assertEquals(0, productRepository.findById(hotProduct.getProductId()).orElseThrow()
+        .getStockQuantity());
+    // rejected carts must not keep the regular product reserved
+    assertEquals(REGULAR_PRODUCT_STOCK - HOT_PRODUCT_STOCK,
+        productRepository.findById(regularProduct.getProductId()).orElseThrow()
+            .getStockQuantity());
+  }
+}
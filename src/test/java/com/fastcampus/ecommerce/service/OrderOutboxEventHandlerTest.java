@@ -0,0 +1,69 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.entity.Order;
+import com.fastcampus.ecommerce.entity.OutboxEvent;
+import com.fastcampus.ecommerce.model.OrderStatus;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import com.fastcampus.ecommerce.model.PaymentResponse;
+import com.fastcampus.ecommerce.repository.OrderRepository;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class OrderOutboxEventHandlerTest {
+
+  @Mock
+  private OrderService orderService;
+  @Mock
+  private OrderRepository orderRepository;
+  @Mock
+  private PaymentService paymentService;
+
+  @InjectMocks
+  private OrderOutboxEventHandler handler;
+
+  private final OutboxEvent invoiceCreation = OutboxEvent.builder()
+      .eventType(OutboxEventType.ORDER_INVOICE_CREATION)
+      .aggregateId(1L)
+      .build();
+
+  @Test
+  void testHandle_InvoiceCreationCreatesInvoiceOnce() {
+    Order order = pendingOrder();
+    PaymentResponse invoice = PaymentResponse.builder().xenditInvoiceId("invoice-1").build();
+    when(paymentService.findPendingByOrder(order)).thenReturn(Optional.empty());
+    when(paymentService.create(order)).thenReturn(invoice);
+    when(orderService.applyPayment(1L, invoice)).thenReturn(true);
+
+    handler.handle(invoiceCreation);
+
+    verify(paymentService, never()).expire(any());
+  }
+
+  @Test
+  void testHandle_RetriedInvoiceCreationAttachesTheInvoiceLeftBehind() {
+    Order order = pendingOrder();
+    PaymentResponse invoice = PaymentResponse.builder().xenditInvoiceId("invoice-1").build();
+    when(paymentService.findPendingByOrder(order)).thenReturn(Optional.of(invoice));
+    when(orderService.applyPayment(1L, invoice)).thenReturn(true);
+
+    handler.handle(invoiceCreation);
+
+    verify(paymentService, never()).create(any());
+  }
+
+  private Order pendingOrder() {
+    Order order = Order.builder().orderId(1L).status(OrderStatus.PENDING).build();
+    when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+    return order;
+  }
+}
@@ -1,16 +1,22 @@
 package com.fastcampus.ecommerce.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.fastcampus.ecommerce.common.PageUtil;
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
 import com.fastcampus.ecommerce.common.errors.ResourceNotFoundException;
 import com.fastcampus.ecommerce.entity.CartItem;
 import com.fastcampus.ecommerce.entity.Order;
@@ -20,14 +26,17 @@ import com.fastcampus.ecommerce.entity.UserAddress;
 import com.fastcampus.ecommerce.model.CheckoutRequest;
 import com.fastcampus.ecommerce.model.OrderResponse;
 import com.fastcampus.ecommerce.model.OrderStatus;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import com.fastcampus.ecommerce.model.PaginatedOrderResponse;
 import com.fastcampus.ecommerce.model.PaymentResponse;
-import com.fastcampus.ecommerce.model.ShippingRateResponse;
+import com.fastcampus.ecommerce.model.ShippingQuoteResponse;
 import com.fastcampus.ecommerce.repository.CartItemRepository;
 import com.fastcampus.ecommerce.repository.OrderItemRepository;
 import com.fastcampus.ecommerce.repository.OrderRepository;
 import com.fastcampus.ecommerce.repository.ProductRepository;
 import com.fastcampus.ecommerce.repository.UserAddressRepository;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -54,11 +63,11 @@ class OrderServiceImplTest {
   @Mock
   private ProductRepository productRepository;
   @Mock
-  private ShippingService shippingService;
+  private ShippingQuoteService shippingQuoteService;
   @Mock
-  private PaymentService paymentService;
+  private InventoryHoldService inventoryHoldService;
   @Mock
-  private InventoryService inventoryService;
+  private OutboxService outboxService;
 
   @InjectMocks
   private OrderServiceImpl orderService;
@@ -125,21 +134,10 @@ class OrderServiceImplTest {
     // Arrange
     when(cartItemRepository.findAllById(anyList())).thenReturn(cartItems);
     when(userAddressRepository.findById(anyLong())).thenReturn(Optional.of(userAddress));
-    when(inventoryService.checkAndLockInventory(anyMap())).thenReturn(true);
     when(orderRepository.save(any(Order.class))).thenAnswer(i -> i.getArguments()[0]);
-    when(productRepository.findById(anyLong())).thenReturn(Optional.of(product));
-    when(userAddressRepository.findByUserIdAndIsDefaultTrue(anyLong())).thenReturn(
-        Optional.of(sellerAddress));
-
-    ShippingRateResponse shippingRateResponse = new ShippingRateResponse();
-    shippingRateResponse.setShippingFee(new BigDecimal("10.00"));
-    when(shippingService.calculateShippingRate(any())).thenReturn(shippingRateResponse);
-
-    PaymentResponse paymentResponse = new PaymentResponse();
-    paymentResponse.setXenditInvoiceId("payment123");
-    paymentResponse.setXenditInvoiceStatus("PENDING");
-    paymentResponse.setXenditPaymentUrl("http://payment.url");
-    when(paymentService.create(any())).thenReturn(paymentResponse);
+    when(shippingQuoteService.quote(anyMap(), any())).thenReturn(ShippingQuoteResponse.builder()
+        .totalShippingFee(new BigDecimal("10.00"))
+        .build());
 
     // Act
     OrderResponse result = orderService.checkout(checkoutRequest);
@@ -147,37 +145,99 @@ class OrderServiceImplTest {
     // Assert
     assertNotNull(result);
     assertEquals(OrderStatus.PENDING, result.getStatus());
-    assertEquals("payment123", result.getXenditInvoiceId());
-    assertEquals("http://payment.url", result.getPaymentUrl());
+    assertNull(result.getXenditInvoiceId());
+    assertNull(result.getPaymentUrl());
 
     verify(cartItemRepository).findAllById(checkoutRequest.getSelectedCartItemIds());
     verify(userAddressRepository).findById(checkoutRequest.getUserAddressId());
-    verify(inventoryService).checkAndLockInventory(anyMap());
-    verify(orderRepository, times(3)).save(any(Order.class));
+    verify(inventoryHoldService).hold(any(), anyMap());
+    verify(orderRepository, times(2)).save(any(Order.class));
     verify(orderItemRepository).saveAll(anyList());
     verify(cartItemRepository).deleteAll(cartItems);
-    verify(shippingService, times(2)).calculateShippingRate(
-        any());  // Verify called twice for two cart items
-    verify(paymentService).create(any());
-    verify(inventoryService).decreaseQuantity(anyMap());
-    verify(userAddressRepository, times(2)).findByUserIdAndIsDefaultTrue(
-        anyLong());  // Verify called twice for two products
+    verify(shippingQuoteService).quote(anyMap(), any());
+    // the invoice is created by the outbox relay after the checkout transaction commits
+    verify(outboxService).publish(OutboxEventType.ORDER_INVOICE_CREATION, result.getOrderId());
   }
 
-}
-
-
-
-
+  @Test
+  void testApplyPayment_WhenOrderIsPending() {
+    Order order = Order.builder().orderId(1L).status(OrderStatus.PENDING).build();
+    when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
 
+    PaymentResponse paymentResponse = new PaymentResponse();
+    paymentResponse.setXenditInvoiceId("payment123");
+    paymentResponse.setXenditInvoiceStatus("PENDING");
+    paymentResponse.setXenditPaymentUrl("http://payment.url");
 
+    assertTrue(orderService.applyPayment(1L, paymentResponse));
+    assertEquals("payment123", order.getXenditInvoiceId());
+    assertEquals("http://payment.url", order.getXenditPaymentUrl());
+    verify(orderRepository).save(order);
+  }
 
+  @Test
+  void testApplyPayment_WhenOrderIsCancelled() {
+    Order order = Order.builder().orderId(1L).status(OrderStatus.CANCELLED).build();
+    when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
 
+    assertFalse(orderService.applyPayment(1L, new PaymentResponse()));
+    verify(orderRepository, never()).save(any(Order.class));
+  }
 
+  @Test
+  void testFailPayment_ReleasesInventoryHold() {
+    Order order = Order.builder().orderId(1L).status(OrderStatus.PENDING).build();
+    when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
 
+    orderService.failPayment(1L);
 
+    assertEquals(OrderStatus.PAYMENT_FAILED, order.getStatus());
+    verify(orderRepository).save(order);
+    verify(inventoryHoldService).release(1L);
+  }
 
+  @Test
+  void testFindOrdersByUserIdAndCursor_ReturnsCursorOfLastRow() {
+    LocalDateTime orderDate = LocalDateTime.of(2024, 5, 1, 10, 0);
+    when(orderRepository.findFirstPageByUserId(1L, 3)).thenReturn(List.of(
+        Order.builder().orderId(30L).orderDate(orderDate.plusHours(2)).build(),
+        Order.builder().orderId(20L).orderDate(orderDate.plusHours(1)).build(),
+        Order.builder().orderId(10L).orderDate(orderDate).build()));
+
+    PaginatedOrderResponse firstPage = orderService.findOrdersByUserIdAndCursor(1L, "", 2, false);
+
+    assertEquals(2, firstPage.getData().size());
+    assertFalse(firstPage.isLast());
+    assertNull(firstPage.getTotalElements());
+    verify(orderRepository, never()).countByUserId(anyLong());
+
+    when(orderRepository.findPageByUserIdAfter(1L, orderDate.plusHours(1), 20L, 3))
+        .thenReturn(List.of(Order.builder().orderId(10L).orderDate(orderDate).build()));
+    when(orderRepository.countByUserId(1L)).thenReturn(3L);
+
+    PaginatedOrderResponse secondPage = orderService.findOrdersByUserIdAndCursor(1L,
+        firstPage.getNextCursor(), 2, true);
+
+    assertEquals(1, secondPage.getData().size());
+    assertTrue(secondPage.isLast());
+    assertNull(secondPage.getNextCursor());
+    assertEquals(3L, secondPage.getTotalElements());
+  }
 
+  @Test
+  void testFindOrdersByUserIdAndCursor_RejectsInvalidCursor() {
+    assertThrows(BadRequestException.class,
+        () -> orderService.findOrdersByUserIdAndCursor(1L, "not-a-cursor", 10, false));
+  }
 
+  @Test
+  void testFindOrdersByUserIdAndCursor_ClampsPageSize() {
+    when(orderRepository.findFirstPageByUserId(1L, PageUtil.MAX_PAGE_SIZE + 1))
+        .thenReturn(Collections.emptyList());
 
+    PaginatedOrderResponse page = orderService.findOrdersByUserIdAndCursor(1L, "", 100000,
+        false);
 
+    assertEquals(PageUtil.MAX_PAGE_SIZE, page.getPageSize());
+  }
+}
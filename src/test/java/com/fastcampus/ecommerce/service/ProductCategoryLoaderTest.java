@@ -0,0 +1,99 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fastcampus.ecommerce.entity.Category;
+import com.fastcampus.ecommerce.entity.Product;
+import com.fastcampus.ecommerce.entity.ProductCategory;
+import com.fastcampus.ecommerce.entity.ProductCategory.ProductCategoryId;
+import com.fastcampus.ecommerce.model.CountMode;
+import com.fastcampus.ecommerce.model.PaginatedProductResponse;
+import com.fastcampus.ecommerce.repository.CategoryRepository;
+import com.fastcampus.ecommerce.repository.ProductCategoryRepository;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ProductCategoryLoaderTest {
+
+  private static final int PRODUCTS = 20;
+  private static final String PRODUCT_NAME = "category loader product";
+
+  @Autowired
+  private ProductService productService;
+
+  @Autowired
+  private ProductRepository productRepository;
+
+  @Autowired
+  private CategoryRepository categoryRepository;
+
+  @Autowired
+  private ProductCategoryRepository productCategoryRepository;
+
+  @Autowired
+  private CategoryDictionary categoryDictionary;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private final List<Product> products = new ArrayList<>();
+  private final List<Category> categories = new ArrayList<>();
+  private final List<ProductCategory> productCategories = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    categories.add(categoryRepository.save(Category.builder().name("loader shoes").build()));
+    categories.add(categoryRepository.save(Category.builder().name("loader sale").build()));
+    categoryDictionary.publishChange();
+    for (int i = 0; i < PRODUCTS; i++) {
+      Product product = productRepository.save(Product.builder()
+          .name(PRODUCT_NAME + " " + i)
+          .price(new BigDecimal("100.00"))
+          .stockQuantity(10)
+          .weight(new BigDecimal("500"))
+          .build());
+      products.add(product);
+      for (Category category : categories) {
+        ProductCategoryId id = new ProductCategoryId();
+        id.setProductId(product.getProductId());
+        id.setCategoryId(category.getCategoryId());
+        productCategories.add(productCategoryRepository.save(
+            ProductCategory.builder().id(id).build()));
+      }
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    productCategoryRepository.deleteAll(productCategories);
+    productRepository.deleteAll(products);
+    categoryRepository.deleteAll(categories);
+    categoryDictionary.publishChange();
+  }
+
+  @Test
+  void testFindByCursor_LoadsCategoriesOfWholePageInOneStatement() {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    PaginatedProductResponse page = productService.findByCursor("", PRODUCTS,
+        Sort.Order.asc("product_id"), PRODUCT_NAME, CountMode.NONE);
+
+    assertEquals(PRODUCTS, page.getData().size());
+    page.getData().forEach(product -> assertEquals(2, product.getCategories().size()));
+    // one statement for the page and one for its category links, categories come from memory
+    assertEquals(2, statistics.getPrepareStatementCount());
+  }
+}
@@ -0,0 +1,182 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.common.PageUtil;
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
+import com.fastcampus.ecommerce.common.errors.ResourceNotFoundException;
+import com.fastcampus.ecommerce.entity.Product;
+import com.fastcampus.ecommerce.model.CountMode;
+import com.fastcampus.ecommerce.model.PaginatedProductResponse;
+import com.fastcampus.ecommerce.model.ProductResponse;
+import com.fastcampus.ecommerce.model.ProductSortColumn;
+import com.fastcampus.ecommerce.repository.ProductCategoryRepository;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+
+@ExtendWith(MockitoExtension.class)
+class ProductServiceImplTest {
+
+  @Mock
+  private ProductRepository productRepository;
+  @Mock
+  private ProductCategoryRepository productCategoryRepository;
+  @Mock
+  private CacheService cacheService;
+  @Mock
+  private RateLimitingService rateLimitingService;
+  @Mock
+  private OutboxService outboxService;
+  @Mock
+  private InventoryHoldService inventoryHoldService;
+  @Mock
+  private ProductCategoryLoader productCategoryLoader;
+  @Mock
+  private CategoryDictionary categoryDictionary;
+  @Mock
+  private ExistenceFilter existenceFilter;
+
+  @InjectMocks
+  private ProductServiceImpl productService;
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(rateLimitingService.executeWithRateLimit(eq("product_listing"), any()))
+        .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+    lenient().when(existenceFilter.mightExist(eq(ExistenceFilter.PRODUCTS), any()))
+        .thenReturn(true);
+  }
+
+  @Test
+  void testFindByCursor_SeeksPastLastRowOfPreviousPage() {
+    when(productRepository.findPageAfter(ProductSortColumn.PRICE, true, null, null, null, 3))
+        .thenReturn(List.of(product(1L, "10000"), product(2L, "15000"), product(3L, "15000")));
+
+    PaginatedProductResponse firstPage = productService.findByCursor("", 2,
+        Sort.Order.asc("price"), null, CountMode.ESTIMATED);
+
+    assertEquals(2, firstPage.getData().size());
+    assertFalse(firstPage.isLast());
+    assertTrue(firstPage.isEstimatedTotal());
+
+    when(productRepository.findPageAfter(ProductSortColumn.PRICE, true, new BigDecimal("15000"),
+        2L, null, 3)).thenReturn(List.of(product(3L, "15000")));
+
+    PaginatedProductResponse secondPage = productService.findByCursor(firstPage.getNextCursor(),
+        2, Sort.Order.asc("price"), null, CountMode.NONE);
+
+    assertEquals(3L, secondPage.getData().get(0).getProductId());
+    assertTrue(secondPage.isLast());
+    assertNull(secondPage.getNextCursor());
+    assertNull(secondPage.getTotalElements());
+  }
+
+  @Test
+  void testFindByCursor_EstimatedCountUsesPlannerStatistics() {
+    when(productRepository.findPageAfter(ProductSortColumn.PRODUCT_ID, true, null, null, null,
+        11)).thenReturn(List.of());
+    when(productRepository.estimateCount()).thenReturn(1_000_000L);
+
+    PaginatedProductResponse response = productService.findByCursor("", 10,
+        Sort.Order.asc("product_id"), null, CountMode.ESTIMATED);
+
+    assertEquals(1_000_000L, response.getTotalElements());
+    verify(productRepository, never()).count();
+    verify(cacheService, never()).get(any(), eq(Long.class));
+  }
+
+  @Test
+  void testFindByCursor_ClampsPageSize() {
+    when(productRepository.findPageAfter(ProductSortColumn.PRODUCT_ID, true, null, null, null,
+        PageUtil.MAX_PAGE_SIZE + 1)).thenReturn(List.of());
+
+    PaginatedProductResponse response = productService.findByCursor("", 100000,
+        Sort.Order.asc("product_id"), null, CountMode.NONE);
+
+    assertEquals(PageUtil.MAX_PAGE_SIZE, response.getPageSize());
+  }
+
+  @Test
+  void testFindByCursor_RejectsCursorOfAnotherSort() {
+    when(productRepository.findPageAfter(ProductSortColumn.PRICE, true, null, null, null, 2))
+        .thenReturn(List.of(product(1L, "10000"), product(2L, "15000")));
+    String priceCursor = productService.findByCursor("", 1, Sort.Order.asc("price"), null,
+        CountMode.NONE).getNextCursor();
+
+    assertThrows(BadRequestException.class, () -> productService.findByCursor(priceCursor, 1,
+        Sort.Order.desc("price"), null, CountMode.NONE));
+    verify(productRepository, never()).findPageAfter(any(), eq(false), any(), anyLong(), any(),
+        eq(2));
+  }
+
+  @Test
+  void testFindAllByIds_LoadsMissesInOneQueryAndWritesThemBack() {
+    ProductResponse cachedProduct = ProductResponse.builder().productId(2L).build();
+    when(cacheService.getAll(List.of("products:3", "products:2", "products:1", "products:9"),
+        ProductResponse.class)).thenReturn(Map.of("products:2", cachedProduct));
+    when(productRepository.findAllById(List.of(3L, 1L, 9L)))
+        .thenReturn(List.of(product(1L, "10000"), product(3L, "30000")));
+    when(productCategoryLoader.loadResponses(any())).thenReturn(Map.of());
+
+    List<ProductResponse> products = productService.findAllByIds(List.of(3L, 2L, 1L, 9L));
+
+    // hit order is kept and the product that no longer exists is skipped
+    assertEquals(List.of(3L, 2L, 1L), products.stream().map(ProductResponse::getProductId)
+        .toList());
+    verify(cacheService).putAll(argThat((Map<String, ProductResponse> written) ->
+        written.keySet().equals(Set.of("products:1", "products:3"))));
+    verify(productRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  void testFindById_IdRejectedByExistenceFilterNeverReachesCache() {
+    when(existenceFilter.mightExist(ExistenceFilter.PRODUCTS, "404")).thenReturn(false);
+
+    assertThrows(ResourceNotFoundException.class, () -> productService.findById(404L));
+    verify(cacheService, never()).getOrLoad(anyString(), eq(ProductResponse.class), any(),
+        any());
+  }
+
+  @Test
+  void testFindById_MissingProductIsLoadedAsNull() {
+    when(cacheService.getOrLoad(eq("products:404"), eq(ProductResponse.class), any(), any()))
+        .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(3)).get());
+    when(productRepository.findById(404L)).thenReturn(Optional.empty());
+
+    // the null from the loader is what the cache keeps as a tombstone
+    assertThrows(ResourceNotFoundException.class, () -> productService.findById(404L));
+  }
+
+  private Product product(Long productId, String price) {
+    return Product.builder()
+        .productId(productId)
+        .name("Product " + productId)
+        .price(new BigDecimal(price))
+        .build();
+  }
+}
@@ -0,0 +1,109 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fastcampus.ecommerce.common.PrefixIndex;
+import com.fastcampus.ecommerce.common.PrefixIndex.Entry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+// a million generated product names, run with -Dsuggestion.benchmark=true
+// -Dtest=ProductSuggestionIndexBenchmarkTest
+@EnabledIfSystemProperty(named = "suggestion.benchmark", matches = "true")
+@Slf4j
+class ProductSuggestionIndexBenchmarkTest {
+
+  private static final int PRODUCTS = 1_000_000;
+  private static final int LOOKUPS = 2_000_000;
+  private static final int CHANGES = 1_000;
+  private static final List<String> BRANDS = List.of("Nike", "Adidas", "Puma", "Samsung",
+      "Apple", "Xiaomi", "Uniqlo", "Eiger", "Polytron", "Cosrx", "Wardah", "Indomie");
+  private static final List<String> PRODUCT_TYPES = List.of("Running Shoes", "Sneakers",
+      "T-Shirt", "Hoodie", "Backpack", "Smartphone", "Charger", "Headphones", "Serum",
+      "Moisturizer", "Lipstick", "Noodles", "Rice Cooker", "Blender", "Water Bottle");
+
+  @Test
+  void testSuggest_MillionProductsFootprintAndThroughput() throws Exception {
+    Random random = new Random(42);
+    List<Entry> entries = new ArrayList<>(PRODUCTS);
+    for (long productId = 1; productId <= PRODUCTS; productId++) {
+      entries.add(new Entry(productId, name(random, productId), random.nextInt(10_000)));
+    }
+    List<String> prefixes = entries.stream()
+        .limit(10_000)
+        .map(entry -> entry.text().substring(0, 1 + random.nextInt(
+            Math.min(entry.text().length(), 8))))
+        .toList();
+
+    long buildStart = System.nanoTime();
+    PrefixIndex index = PrefixIndex.build(entries);
+    long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStart);
+    log.info("Built {} names in {} ms, {} MB retained", index.size(), buildMillis,
+        index.sizeInBytes() >> 20);
+
+    // warm up, then one thread and every core
+    for (int i = 0; i < LOOKUPS / 10; i++) {
+      index.topByPrefix(prefixes.get(i % prefixes.size()), 5);
+    }
+    long singleStart = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; i++) {
+      index.topByPrefix(prefixes.get(i % prefixes.size()), 5);
+    }
+    long singleNanos = System.nanoTime() - singleStart;
+
+    int threads = Runtime.getRuntime().availableProcessors();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    long parallelStart = System.nanoTime();
+    List<Future<?>> lookups = new ArrayList<>();
+    for (int thread = 0; thread < threads; thread++) {
+      int offset = thread;
+      lookups.add(executor.submit(() -> {
+        for (int i = 0; i < LOOKUPS; i++) {
+          index.topByPrefix(prefixes.get((i + offset) % prefixes.size()), 5);
+        }
+      }));
+    }
+    for (Future<?> lookup : lookups) {
+      lookup.get();
+    }
+    long parallelNanos = System.nanoTime() - parallelStart;
+    executor.shutdown();
+
+    log.info("One thread: {} lookups/s, {} ns per lookup. {} threads: {} lookups/s",
+        LOOKUPS * 1_000_000_000L / singleNanos, singleNanos / LOOKUPS, threads,
+        (long) threads * LOOKUPS * 1_000_000_000L / parallelNanos);
+
+    Set<Long> changedIds = LongStream.rangeClosed(1, CHANGES)
+        .map(i -> 1 + random.nextInt(PRODUCTS))
+        .boxed()
+        .collect(Collectors.toSet());
+    List<Entry> changed = changedIds.stream()
+        .map(productId -> new Entry(productId, name(random, productId), 20_000))
+        .toList();
+    long mergeStart = System.nanoTime();
+    PrefixIndex merged = index.withChanges(changedIds, changed);
+    log.info("Merged {} changed products in {} ms", changedIds.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mergeStart));
+
+    assertEquals(PRODUCTS, merged.size());
+    assertTrue(merged.topByPrefix(changed.get(0).text(), 1).contains(changed.get(0).text()));
+  }
+
+  private String name(Random random, long productId) {
+    return BRANDS.get(random.nextInt(BRANDS.size())) + " "
+        + PRODUCT_TYPES.get(random.nextInt(PRODUCT_TYPES.size())) + " "
+        + Long.toString(productId, 36).toUpperCase();
+  }
+}
@@ -0,0 +1,142 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSuggestionIndexTest {
+
+  private static final int BATCH_SIZE = 2;
+
+  @Mock
+  private ProductRepository productRepository;
+  @Mock
+  private RedisTemplate<String, String> redisTemplate;
+  @Mock
+  private RedisMessageListenerContainer listenerContainer;
+
+  private ProductSuggestionIndex suggestionIndex;
+
+  @BeforeEach
+  void setUp() {
+    suggestionIndex = new ProductSuggestionIndex(productRepository, redisTemplate,
+        listenerContainer, new SimpleMeterRegistry(), BATCH_SIZE);
+  }
+
+  @AfterEach
+  void tearDown() {
+    suggestionIndex.shutdown();
+  }
+
+  @Test
+  void testSuggest_NotReadyUntilFirstBuild() {
+    assertFalse(suggestionIndex.isReady());
+    assertEquals(List.of(), suggestionIndex.suggest("sho", 3));
+  }
+
+  @Test
+  void testRebuild_SuggestsHeaviestNamesStartingWithPrefix() {
+    build(
+        row(1L, "Shoe Rack", 10, 0),
+        row(2L, "Running Shoes", 500, 50),
+        row(3L, "Shoes Cleaner", 40, 5),
+        row(4L, "shoes cleaner", 40, 5),
+        row(5L, "Shoelace", 2, 100),
+        row(6L, "Shoes Cleaner", 1, 0));
+
+    assertTrue(suggestionIndex.isReady());
+    // purchases count twice, the same name is suggested once
+    assertEquals(List.of("Shoelace", "Shoes Cleaner", "shoes cleaner"),
+        suggestionIndex.suggest("  SHO", 3));
+    assertEquals(List.of("Shoes Cleaner", "shoes cleaner"),
+        suggestionIndex.suggest("shoes", 5));
+    assertEquals(List.of(), suggestionIndex.suggest("shoex", 5));
+  }
+
+  @Test
+  void testMerge_AppliesChangesFromEveryNode() {
+    build(
+        row(1L, "Shoe Rack", 10, 0),
+        row(2L, "Shoelace", 2, 100),
+        row(3L, "Sandal", 5, 0));
+
+    // renamed here, deleted on another node, and a new product with more views
+    suggestionIndex.changed(1L);
+    suggestionIndex.onMessage(new DefaultMessage(
+        ProductSuggestionIndex.CHANGED_CHANNEL.getBytes(StandardCharsets.UTF_8),
+        "2".getBytes(StandardCharsets.UTF_8)), null);
+    suggestionIndex.changed(7L);
+    // the backlog is read in batches of the configured size
+    when(productRepository.findSuggestionRowsByIds(List.of(1L, 2L))).thenReturn(
+        List.<Object[]>of(row(1L, "Wall Shelf", 10, 0)));
+    when(productRepository.findSuggestionRowsByIds(List.of(7L))).thenReturn(List.<Object[]>of(
+        row(7L, "Shoe Box", 300, 0)));
+
+    suggestionIndex.merge();
+
+    assertEquals(List.of("Shoe Box"), suggestionIndex.suggest("sho", 3));
+    assertEquals(List.of("Wall Shelf"), suggestionIndex.suggest("wall", 3));
+    assertEquals(List.of("Sandal"), suggestionIndex.suggest("san", 3));
+    verify(redisTemplate).convertAndSend(ProductSuggestionIndex.CHANGED_CHANNEL, "1");
+  }
+
+  @Test
+  void testRebuild_QueuesProductsMergedDuringTheScanAgain() {
+    build(row(1L, "Shoe Rack", 10, 0));
+    suggestionIndex.changed(1L);
+    when(productRepository.findSuggestionRowsByIds(List.of(1L))).thenReturn(List.<Object[]>of(
+        row(1L, "Wall Shelf", 10, 0)));
+    // the scan read the old name before the rename was merged
+    when(productRepository.findSuggestionRowsAfter(anyLong(), eq(BATCH_SIZE))).thenAnswer(
+        invocation -> {
+          if ((Long) invocation.getArgument(0) > 0) {
+            return List.of();
+          }
+          suggestionIndex.merge();
+          return List.<Object[]>of(row(1L, "Shoe Rack", 10, 0));
+        });
+
+    suggestionIndex.rebuild();
+    assertEquals(List.of("Shoe Rack"), suggestionIndex.suggest("sho", 3));
+    suggestionIndex.merge();
+
+    assertEquals(List.of(), suggestionIndex.suggest("sho", 3));
+    assertEquals(List.of("Wall Shelf"), suggestionIndex.suggest("wall", 3));
+  }
+
+  private void build(Object[]... rows) {
+    List<Object[]> allRows = List.of(rows);
+    when(productRepository.findSuggestionRowsAfter(anyLong(), eq(BATCH_SIZE))).thenAnswer(
+        invocation -> {
+          long afterId = invocation.getArgument(0);
+          return allRows.stream()
+              .filter(row -> (Long) row[0] > afterId)
+              .limit(BATCH_SIZE)
+              .toList();
+        });
+    suggestionIndex.rebuild();
+  }
+
+  private Object[] row(Long productId, String name, long viewCount, long purchaseCount) {
+    return new Object[]{productId, name, viewCount, purchaseCount};
+  }
+}
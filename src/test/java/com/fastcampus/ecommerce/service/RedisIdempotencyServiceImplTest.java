@@ -0,0 +1,154 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
+import com.fastcampus.ecommerce.common.errors.InventoryException;
+import com.fastcampus.ecommerce.model.CheckoutRequest;
+import com.fastcampus.ecommerce.model.IdempotencyRecord;
+import com.fastcampus.ecommerce.model.IdempotencyStatus;
+import com.fastcampus.ecommerce.model.OrderResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class RedisIdempotencyServiceImplTest {
+
+  private static final String KEY = "idempotency:checkout:1:retry-key";
+
+  @Mock
+  private RedisTemplate<String, String> redisTemplate;
+  @Mock
+  private ValueOperations<String, String> valueOperations;
+  @Mock
+  private Supplier<OrderResponse> checkout;
+
+  private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+  private RedisIdempotencyServiceImpl idempotencyService;
+  private CheckoutRequest checkoutRequest;
+
+  @BeforeEach
+  void setUp() {
+    idempotencyService = new RedisIdempotencyServiceImpl(redisTemplate, objectMapper);
+    ReflectionTestUtils.setField(idempotencyService, "inFlightTtl", Duration.ofMinutes(1));
+    ReflectionTestUtils.setField(idempotencyService, "responseTtl", Duration.ofHours(24));
+    ReflectionTestUtils.setField(idempotencyService, "waitTimeout", Duration.ofSeconds(1));
+    ReflectionTestUtils.setField(idempotencyService, "pollInterval", Duration.ofMillis(10));
+    when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+    checkoutRequest = CheckoutRequest.builder()
+        .userId(1L)
+        .selectedCartItemIds(List.of(1L, 2L))
+        .userAddressId(1L)
+        .build();
+  }
+
+  @Test
+  void testExecute_FirstRequestRunsCheckoutAndStoresResponse() {
+    when(valueOperations.setIfAbsent(eq(KEY), anyString(), eq(Duration.ofMinutes(1))))
+        .thenReturn(true);
+    OrderResponse orderResponse = OrderResponse.builder().orderId(10L).build();
+    when(checkout.get()).thenReturn(orderResponse);
+
+    OrderResponse response = idempotencyService.execute("checkout:1", "retry-key",
+        checkoutRequest, OrderResponse.class, checkout);
+
+    assertEquals(orderResponse, response);
+    verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(KEY)), anyString(),
+        anyString(), eq(String.valueOf(Duration.ofHours(24).toMillis())));
+  }
+
+  @Test
+  void testExecute_RetryGetsStoredResponseWithoutCheckout() throws Exception {
+    when(valueOperations.setIfAbsent(eq(KEY), anyString(), eq(Duration.ofMinutes(1))))
+        .thenReturn(false);
+    when(valueOperations.get(KEY)).thenReturn(objectMapper.writeValueAsString(
+        IdempotencyRecord.builder()
+            .status(IdempotencyStatus.COMPLETED)
+            .requestHash(hash(checkoutRequest))
+            .response(objectMapper.writeValueAsString(
+                OrderResponse.builder().orderId(10L).build()))
+            .build()));
+
+    OrderResponse response = idempotencyService.execute("checkout:1", "retry-key",
+        checkoutRequest, OrderResponse.class, checkout);
+
+    assertEquals(10L, response.getOrderId());
+    verify(checkout, never()).get();
+  }
+
+  @Test
+  void testExecute_ConcurrentDuplicateWaitsForFirstResponse() throws Exception {
+    when(valueOperations.setIfAbsent(eq(KEY), anyString(), eq(Duration.ofMinutes(1))))
+        .thenReturn(false);
+    IdempotencyRecord inFlight = IdempotencyRecord.builder()
+        .status(IdempotencyStatus.IN_PROGRESS)
+        .requestHash(hash(checkoutRequest))
+        .token("first")
+        .build();
+    IdempotencyRecord completed = IdempotencyRecord.builder()
+        .status(IdempotencyStatus.COMPLETED)
+        .requestHash(hash(checkoutRequest))
+        .response(objectMapper.writeValueAsString(OrderResponse.builder().orderId(10L).build()))
+        .build();
+    when(valueOperations.get(KEY)).thenReturn(objectMapper.writeValueAsString(inFlight),
+        objectMapper.writeValueAsString(completed));
+
+    OrderResponse response = idempotencyService.execute("checkout:1", "retry-key",
+        checkoutRequest, OrderResponse.class, checkout);
+
+    assertEquals(10L, response.getOrderId());
+    verify(checkout, never()).get();
+  }
+
+  @Test
+  void testExecute_KeyReusedForDifferentRequest() throws Exception {
+    when(valueOperations.setIfAbsent(eq(KEY), anyString(), eq(Duration.ofMinutes(1))))
+        .thenReturn(false);
+    when(valueOperations.get(KEY)).thenReturn(objectMapper.writeValueAsString(
+        IdempotencyRecord.builder()
+            .status(IdempotencyStatus.COMPLETED)
+            .requestHash("another-request")
+            .build()));
+
+    assertThrows(BadRequestException.class, () -> idempotencyService.execute("checkout:1",
+        "retry-key", checkoutRequest, OrderResponse.class, checkout));
+    verify(checkout, never()).get();
+  }
+
+  @Test
+  void testExecute_FailedCheckoutReleasesKey() {
+    when(valueOperations.setIfAbsent(eq(KEY), anyString(), eq(Duration.ofMinutes(1))))
+        .thenReturn(true);
+    when(checkout.get()).thenThrow(new InventoryException("Insufficient inventory"));
+
+    assertThrows(InventoryException.class, () -> idempotencyService.execute("checkout:1",
+        "retry-key", checkoutRequest, OrderResponse.class, checkout));
+    verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(KEY)), anyString());
+  }
+
+  private String hash(Object request) throws Exception {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+  }
+}
@@ -0,0 +1,117 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fastcampus.ecommerce.model.ProductSearchRequest;
+import com.fastcampus.ecommerce.model.SearchHydrationMode;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+// needs an index of at least PAGE * PAGE_SIZE products, run with
+// -Dsearch.benchmark.host=localhost -Dtest=SearchPaginationBenchmarkTest
+@ExtendWith(MockitoExtension.class)
+@EnabledIfSystemProperty(named = "search.benchmark.host", matches = ".+")
+@Slf4j
+class SearchPaginationBenchmarkTest {
+
+  private static final int PAGE = 500;
+  private static final int PAGE_SIZE = 20;
+  private static final int ROUNDS = 20;
+
+  @Mock
+  private ProductIndexService productIndexService;
+  @Mock
+  private ProductService productService;
+  @Mock
+  private UserActivityService userActivityService;
+  @Mock
+  private ProductRepository productRepository;
+
+  private RestClient restClient;
+  private SearchServiceImpl searchService;
+
+  @BeforeEach
+  void setUp() {
+    restClient = RestClient.builder(new HttpHost(System.getProperty("search.benchmark.host"),
+        Integer.getInteger("search.benchmark.port", 9200))).build();
+    ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    ElasticsearchClient elasticsearchClient = new ElasticsearchClient(
+        new RestClientTransport(restClient, new JacksonJsonpMapper(objectMapper)));
+    searchService = new SearchServiceImpl(elasticsearchClient,
+        new ElasticsearchAsyncClient(elasticsearchClient._transport()), productIndexService,
+        productService, userActivityService, productRepository);
+    ReflectionTestUtils.setField(searchService, "hydrationMode", SearchHydrationMode.SOURCE);
+    ReflectionTestUtils.setField(searchService, "verifyFreshness", false);
+    ReflectionTestUtils.setField(searchService, "cursorKeepAlive", "5m");
+    when(productIndexService.indexName()).thenReturn("products");
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    restClient.close();
+  }
+
+  @Test
+  void testSearch_ComparesPageLatencyOfOffsetAndCursor() {
+    // walk the cursor to the page before the measured one
+    String cursor = "";
+    for (int page = 1; page < PAGE; page++) {
+      cursor = searchService.search(cursorRequest(cursor)).getNextCursor();
+    }
+    String pageCursor = cursor;
+
+    long offsetNanos = measure(() -> searchService.search(offsetRequest()));
+    long cursorNanos = measure(() -> searchService.search(cursorRequest(pageCursor)));
+
+    log.info("Page {} latency with from/size: {} ms, with search_after: {} ms", PAGE,
+        TimeUnit.NANOSECONDS.toMillis(offsetNanos), TimeUnit.NANOSECONDS.toMillis(cursorNanos));
+    assertEquals(PAGE_SIZE, searchService.search(cursorRequest(pageCursor)).getData().size());
+  }
+
+  private long measure(Runnable search) {
+    // the first rounds warm the caches of both modes alike
+    for (int i = 0; i < ROUNDS; i++) {
+      search.run();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      search.run();
+    }
+    return (System.nanoTime() - start) / ROUNDS;
+  }
+
+  private ProductSearchRequest offsetRequest() {
+    return ProductSearchRequest.builder()
+        .sortBy("_score")
+        .page(PAGE)
+        .size(PAGE_SIZE)
+        .build();
+  }
+
+  private ProductSearchRequest cursorRequest(String cursor) {
+    ProductSearchRequest searchRequest = offsetRequest();
+    searchRequest.setCursor(cursor);
+    return searchRequest;
+  }
+}
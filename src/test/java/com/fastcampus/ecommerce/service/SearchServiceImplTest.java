@@ -0,0 +1,283 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.search.CompletionSuggestOption;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.Suggestion;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import com.fastcampus.ecommerce.common.CursorUtil;
+import com.fastcampus.ecommerce.common.errors.BadRequestException;
+import com.fastcampus.ecommerce.model.AutocompleteSuggestions;
+import com.fastcampus.ecommerce.model.ProductDocument;
+import com.fastcampus.ecommerce.model.ProductResponse;
+import com.fastcampus.ecommerce.model.ProductSearchRequest;
+import com.fastcampus.ecommerce.model.SearchHydrationMode;
+import com.fastcampus.ecommerce.model.SearchResponse;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class SearchServiceImplTest {
+
+  private static final LocalDateTime INDEXED_AT = LocalDateTime.of(2024, 3, 1, 10, 0, 0,
+      123_000_000);
+
+  @Mock
+  private ElasticsearchClient elasticsearchClient;
+  @Mock
+  private ElasticsearchAsyncClient elasticsearchAsyncClient;
+  @Mock
+  private ProductIndexService productIndexService;
+  @Mock
+  private ProductService productService;
+  @Mock
+  private UserActivityService userActivityService;
+  @Mock
+  private ProductRepository productRepository;
+
+  @InjectMocks
+  private SearchServiceImpl searchService;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(searchService, "hydrationMode", SearchHydrationMode.SOURCE);
+    ReflectionTestUtils.setField(searchService, "verifyFreshness", true);
+    ReflectionTestUtils.setField(searchService, "autocompleteBudget", Duration.ofMillis(50));
+    lenient().when(productIndexService.indexName()).thenReturn("products");
+  }
+
+  @Test
+  void testSearch_BuildsResultsFromSourceAndReloadsOnlyStaleHits() throws Exception {
+    when(elasticsearchClient.search(any(SearchRequest.class), eq(ProductDocument.class)))
+        .thenReturn(searchResponse(document(1L), document(2L), document(3L)));
+    when(productRepository.findFreshnessByIds(any())).thenReturn(List.of(
+        // postgres keeps microseconds the index does not, still the indexed version
+        new Object[]{1L, INDEXED_AT.plusNanos(456_000), 3},
+        new Object[]{2L, INDEXED_AT.plusMinutes(5), 10}));
+    when(productService.findAllByIds(List.of(2L))).thenReturn(List.of(
+        ProductResponse.builder().productId(2L).name("Renamed").build()));
+
+    SearchResponse<ProductResponse> response = searchService.search(searchRequest());
+
+    // product 3 was deleted after it was indexed
+    assertEquals(List.of(1L, 2L), response.getData().stream()
+        .map(ProductResponse::getProductId)
+        .toList());
+    assertEquals("Product 1", response.getData().get(0).getName());
+    assertEquals(3, response.getData().get(0).getStockQuantity());
+    assertEquals("Shoes", response.getData().get(0).getCategories().get(0).getName());
+    assertEquals("Renamed", response.getData().get(1).getName());
+    verify(productService, never()).findById(any());
+
+    ArgumentCaptor<SearchRequest> request = ArgumentCaptor.forClass(SearchRequest.class);
+    verify(elasticsearchClient).search(request.capture(), eq(ProductDocument.class));
+    List<String> includes = request.getValue().source().filter().includes();
+    assertFalse(includes.contains("nameNgram"));
+    assertTrue(includes.contains("updatedAt"));
+  }
+
+  @Test
+  void testSearch_DatabaseModeReadsHitsThroughProductCache() throws Exception {
+    ReflectionTestUtils.setField(searchService, "hydrationMode", SearchHydrationMode.DATABASE);
+    when(elasticsearchClient.search(any(SearchRequest.class), eq(ProductDocument.class)))
+        .thenReturn(searchResponse(document(1L), document(2L)));
+    when(productService.findAllByIds(List.of(1L, 2L))).thenReturn(List.of(
+        ProductResponse.builder().productId(1L).build(),
+        ProductResponse.builder().productId(2L).build()));
+
+    assertEquals(2, searchService.search(searchRequest()).getData().size());
+    verify(productRepository, never()).findFreshnessByIds(any());
+  }
+
+  @Test
+  void testSearch_WithoutFacetsLeavesFacetsUnset() throws Exception {
+    when(elasticsearchClient.search(any(SearchRequest.class), eq(ProductDocument.class)))
+        .thenReturn(searchResponse(document(1L)));
+    when(productRepository.findFreshnessByIds(any())).thenReturn(List.of(
+        new Object[]{1L, INDEXED_AT, 3}));
+
+    SearchResponse<ProductResponse> response = searchService.search(searchRequest(), false);
+
+    assertNull(response.getFacets());
+    ArgumentCaptor<SearchRequest> request = ArgumentCaptor.forClass(SearchRequest.class);
+    verify(elasticsearchClient).search(request.capture(), eq(ProductDocument.class));
+    assertTrue(request.getValue().aggregations().isEmpty());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testSearch_CursorSeeksPastLastHitOfPreviousPage() throws Exception {
+    ReflectionTestUtils.setField(searchService, "verifyFreshness", false);
+    ReflectionTestUtils.setField(searchService, "cursorKeepAlive", "1m");
+    when(elasticsearchClient.openPointInTime(any(Function.class)))
+        .thenReturn(OpenPointInTimeResponse.of(o -> o.id("pit-1")));
+    when(elasticsearchClient.search(any(SearchRequest.class), eq(ProductDocument.class)))
+        .thenReturn(searchResponse("pit-2", hit(document(7L), "3.5"), hit(document(4L), "2.0")))
+        .thenReturn(searchResponse("pit-2", hit(document(9L), "1.0")));
+
+    ProductSearchRequest firstRequest = searchRequest(2);
+    firstRequest.setCursor("");
+    SearchResponse<ProductResponse> firstPage = searchService.search(firstRequest);
+    ProductSearchRequest secondRequest = searchRequest(2);
+    secondRequest.setCursor(firstPage.getNextCursor());
+    SearchResponse<ProductResponse> secondPage = searchService.search(secondRequest);
+
+    assertEquals(2, firstPage.getData().size());
+    assertEquals(9L, secondPage.getData().get(0).getProductId());
+    assertNull(secondPage.getNextCursor());
+    ArgumentCaptor<SearchRequest> requests = ArgumentCaptor.forClass(SearchRequest.class);
+    verify(elasticsearchClient, times(2)).search(requests.capture(), eq(ProductDocument.class));
+    SearchRequest first = requests.getAllValues().get(0);
+    SearchRequest second = requests.getAllValues().get(1);
+    // the point in time replaces the index, and the id tiebreaker follows the requested sort
+    assertTrue(first.index().isEmpty());
+    assertEquals("pit-1", first.pit().id());
+    assertEquals(List.of("_score", "id"), first.sort().stream()
+        .map(sort -> sort.field().field())
+        .toList());
+    assertEquals("pit-2", second.pit().id());
+    assertEquals(List.of("2.0", "4"), second.searchAfter());
+    assertTrue(second.aggregations().isEmpty());
+    verify(elasticsearchClient).closePointInTime(any(Function.class));
+  }
+
+  @Test
+  void testSearch_RejectsCursorOfAnotherSearch() {
+    ProductSearchRequest searchRequest = searchRequest(2);
+    searchRequest.setCursor(CursorUtil.encode("other-search", "pit-1", "4", "2.0"));
+
+    assertThrows(BadRequestException.class, () -> searchService.search(searchRequest));
+  }
+
+  @Test
+  void testCombinedAutocomplete_MergesConcurrentStrategiesInPriorityOrder() {
+    when(elasticsearchAsyncClient.search(any(SearchRequest.class), eq(Void.class)))
+        .thenReturn(CompletableFuture.completedFuture(suggestResponse("Product 1")));
+    when(elasticsearchAsyncClient.search(any(SearchRequest.class), eq(ProductDocument.class)))
+        .thenReturn(CompletableFuture.completedFuture(searchResponse(document(1L),
+            document(2L))))
+        .thenReturn(CompletableFuture.completedFuture(searchResponse(document(2L),
+            document(3L))));
+
+    AutocompleteSuggestions suggestions = searchService.combinedAutocomplete("prod");
+
+    assertEquals(List.of("Product 1", "Product 2", "Product 3"),
+        suggestions.getSuggestions());
+    assertFalse(suggestions.isPartial());
+    // every strategy went out before the first answer was read
+    verify(elasticsearchAsyncClient, times(2)).search(any(SearchRequest.class),
+        eq(ProductDocument.class));
+  }
+
+  @Test
+  void testCombinedAutocomplete_CutsOffStrategySlowerThanBudget() {
+    CompletableFuture<co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument>>
+        fuzzy = new CompletableFuture<>();
+    when(elasticsearchAsyncClient.search(any(SearchRequest.class), eq(Void.class)))
+        .thenReturn(CompletableFuture.completedFuture(suggestResponse("Product 1")));
+    when(elasticsearchAsyncClient.search(any(SearchRequest.class), eq(ProductDocument.class)))
+        .thenReturn(CompletableFuture.completedFuture(searchResponse(document(2L))))
+        .thenReturn(fuzzy);
+
+    long start = System.nanoTime();
+    AutocompleteSuggestions suggestions = searchService.combinedAutocomplete("prod");
+
+    assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+    assertEquals(List.of("Product 1", "Product 2"), suggestions.getSuggestions());
+    assertTrue(suggestions.isPartial());
+    assertTrue(fuzzy.isCancelled());
+  }
+
+  private ProductSearchRequest searchRequest() {
+    return searchRequest(20);
+  }
+
+  private ProductSearchRequest searchRequest(int size) {
+    return ProductSearchRequest.builder()
+        .query("shoes")
+        .sortBy("_score")
+        .page(1)
+        .size(size)
+        .build();
+  }
+
+  private co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument> searchResponse(
+      ProductDocument... documents) {
+    return searchResponse(null, Arrays.stream(documents)
+        .map(document -> hit(document, "1.0"))
+        .toArray(Hit[]::new));
+  }
+
+  @SafeVarargs
+  private co.elastic.clients.elasticsearch.core.SearchResponse<ProductDocument> searchResponse(
+      String pitId, Hit<ProductDocument>... hits) {
+    return co.elastic.clients.elasticsearch.core.SearchResponse.of(r -> r.took(1)
+        .timedOut(false)
+        .pitId(pitId)
+        .shards(s -> s.total(1).successful(1).failed(0))
+        .hits(h -> h.hits(List.of(hits))
+            .total(t -> t.value(hits.length).relation(TotalHitsRelation.Eq))));
+  }
+
+  private co.elastic.clients.elasticsearch.core.SearchResponse<Void> suggestResponse(
+      String... texts) {
+    List<CompletionSuggestOption<Void>> options = Arrays.stream(texts)
+        .map(text -> CompletionSuggestOption.<Void>of(o -> o.text(text)))
+        .toList();
+    return co.elastic.clients.elasticsearch.core.SearchResponse.<Void>of(r -> r.took(1)
+        .timedOut(false)
+        .shards(s -> s.total(1).successful(1).failed(0))
+        .hits(h -> h.hits(List.of()))
+        .suggest("name_suggest", List.of(Suggestion.<Void>of(s ->
+            s.completion(c -> c.text("prod").offset(0).length(4).options(options))))));
+  }
+
+  // sorted by score, then id
+  private Hit<ProductDocument> hit(ProductDocument document, String score) {
+    return Hit.of(h -> h.index("products")
+        .id(document.getId())
+        .source(document)
+        .sort(score, document.getId()));
+  }
+
+  private ProductDocument document(Long productId) {
+    return ProductDocument.builder()
+        .id(String.valueOf(productId))
+        .name("Product " + productId)
+        .price(new BigDecimal("10000"))
+        .stockQuantity(5)
+        .categories(List.of(new ProductDocument.CategoryInfo(1L, "Shoes")))
+        .updatedAt(INDEXED_AT)
+        .build();
+  }
+}
@@ -0,0 +1,113 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.entity.Product;
+import com.fastcampus.ecommerce.entity.UserAddress;
+import com.fastcampus.ecommerce.model.ShippingQuoteResponse;
+import com.fastcampus.ecommerce.model.ShippingRateRequest;
+import com.fastcampus.ecommerce.model.ShippingRateResponse;
+import com.fastcampus.ecommerce.repository.CartItemRepository;
+import com.fastcampus.ecommerce.repository.CartRepository;
+import com.fastcampus.ecommerce.repository.ProductRepository;
+import com.fastcampus.ecommerce.repository.UserAddressRepository;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class ShippingQuoteServiceImplTest {
+
+  @Mock
+  private ProductRepository productRepository;
+  @Mock
+  private UserAddressRepository userAddressRepository;
+  @Mock
+  private CartRepository cartRepository;
+  @Mock
+  private CartItemRepository cartItemRepository;
+  @Mock
+  private ShippingService shippingService;
+
+  private ShippingQuoteServiceImpl shippingQuoteService;
+  private UserAddress shippingAddress;
+
+  @BeforeEach
+  void setUp() {
+    shippingQuoteService = new ShippingQuoteServiceImpl(productRepository, userAddressRepository,
+        cartRepository, cartItemRepository, shippingService, 2);
+    ReflectionTestUtils.setField(shippingQuoteService, "quoteTimeout", Duration.ofSeconds(5));
+
+    shippingAddress = new UserAddress();
+    shippingAddress.setUserAddressId(1L);
+    shippingAddress.setUserId(100L);
+  }
+
+  @AfterEach
+  void tearDown() {
+    shippingQuoteService.shutdown();
+  }
+
+  @Test
+  void testQuote_GroupsItemsPerSellerWithBulkLookups() {
+    Product firstSellerProduct = product(1L, 10L, "500");
+    Product secondFirstSellerProduct = product(2L, 10L, "250");
+    Product secondSellerProduct = product(3L, 20L, "1000");
+    Product sellerWithoutAddressProduct = product(4L, 30L, "100");
+    when(productRepository.findAllById(anyCollection())).thenReturn(List.of(firstSellerProduct,
+        secondFirstSellerProduct, secondSellerProduct, sellerWithoutAddressProduct));
+    when(userAddressRepository.findByUserIdInAndIsDefaultTrue(anyCollection())).thenReturn(
+        List.of(sellerAddress(10L), sellerAddress(20L)));
+    when(shippingService.calculateShippingRate(any())).thenAnswer(invocation -> {
+      ShippingRateRequest request = invocation.getArgument(0);
+      return ShippingRateResponse.builder()
+          .shippingFee(request.getTotalWeightInGrams())
+          .estimatedDeliveryTime("3 - 5 hari kerja")
+          .build();
+    });
+
+    ShippingQuoteResponse response = shippingQuoteService.quote(
+        Map.of(1L, 2, 2L, 1, 3L, 1, 4L, 1), shippingAddress);
+
+    assertEquals(2, response.getParcels().size());
+    assertEquals(10L, response.getParcels().get(0).getSellerId());
+    assertEquals(List.of(1L, 2L), response.getParcels().get(0).getProductIds());
+    assertEquals(0, new BigDecimal("1250").compareTo(
+        response.getParcels().get(0).getTotalWeightInGrams()));
+    assertEquals(20L, response.getParcels().get(1).getSellerId());
+    assertEquals(0, new BigDecimal("2250").compareTo(response.getTotalShippingFee()));
+
+    verify(productRepository).findAllById(anyCollection());
+    verify(userAddressRepository).findByUserIdInAndIsDefaultTrue(anyCollection());
+    // one rate call per seller parcel instead of one per item
+    verify(shippingService, times(2)).calculateShippingRate(any());
+  }
+
+  private Product product(Long productId, Long sellerId, String weight) {
+    Product product = new Product();
+    product.setProductId(productId);
+    product.setUserId(sellerId);
+    product.setWeight(new BigDecimal(weight));
+    return product;
+  }
+
+  private UserAddress sellerAddress(Long sellerId) {
+    UserAddress userAddress = new UserAddress();
+    userAddress.setUserAddressId(sellerId * 10);
+    userAddress.setUserId(sellerId);
+    return userAddress;
+  }
+}
@@ -0,0 +1,125 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.entity.Order;
+import com.fastcampus.ecommerce.model.OrderStatus;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import com.fastcampus.ecommerce.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class UnpaidOrderExpiryJobTest {
+
+  @Mock
+  private OrderRepository orderRepository;
+  @Mock
+  private InventoryHoldService inventoryHoldService;
+  @Mock
+  private OutboxService outboxService;
+  @Mock
+  private TransactionTemplate transactionTemplate;
+  @Mock
+  private RedisTemplate<String, String> redisTemplate;
+  @Mock
+  private ValueOperations<String, String> valueOperations;
+
+  private UnpaidOrderExpiryJob unpaidOrderExpiryJob;
+
+  @BeforeEach
+  void setUp() {
+    unpaidOrderExpiryJob = new UnpaidOrderExpiryJob(orderRepository, inventoryHoldService,
+        outboxService, transactionTemplate, redisTemplate, new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(unpaidOrderExpiryJob, "unpaidAfter", Duration.ofHours(24));
+    ReflectionTestUtils.setField(unpaidOrderExpiryJob, "batchSize", 2);
+    ReflectionTestUtils.setField(unpaidOrderExpiryJob, "maxBatches", 10);
+    ReflectionTestUtils.setField(unpaidOrderExpiryJob, "lease", Duration.ofMinutes(5));
+    when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+  }
+
+  @Test
+  void testCancelUnpaidOrders_SkipsCycleWhenAnotherNodeHoldsLease() {
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(false);
+
+    unpaidOrderExpiryJob.cancelUnpaidOrders();
+
+    verify(orderRepository, never()).cancelUnpaidOrdersBefore(any(), anyInt());
+  }
+
+  @Test
+  void testCancelUnpaidOrders_CancelsInPagesAndRestoresStockInBulk() {
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(true);
+    when(orderRepository.cancelUnpaidOrdersBefore(any(), eq(2)))
+        .thenReturn(List.of(cancelledOrder(1L, "inv-1"), cancelledOrder(2L, null)))
+        .thenReturn(List.of(cancelledOrder(3L, "inv-3")));
+    when(redisTemplate.execute(any(RedisScript.class), eq(List.of("order-expiry:lease")),
+        anyString(), anyString())).thenReturn(1L);
+    runInTransaction();
+
+    unpaidOrderExpiryJob.cancelUnpaidOrders();
+
+    // a short page ends the cycle
+    verify(orderRepository, times(2)).cancelUnpaidOrdersBefore(any(), eq(2));
+    verify(inventoryHoldService).releaseAll(List.of(1L, 2L));
+    verify(inventoryHoldService).releaseAll(List.of(3L));
+    // xendit is only called by the outbox relay, after the cancel committed
+    verify(outboxService).publish(OutboxEventType.ORDER_INVOICE_EXPIRATION, 1L);
+    verify(outboxService).publish(OutboxEventType.ORDER_INVOICE_EXPIRATION, 3L);
+    verify(outboxService, never()).publish(OutboxEventType.ORDER_INVOICE_EXPIRATION, 2L);
+    verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("order-expiry:lease")),
+        anyString());
+  }
+
+  @Test
+  void testCancelUnpaidOrders_StopsWhenLeaseIsLost() {
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(true);
+    when(orderRepository.cancelUnpaidOrdersBefore(any(), eq(2)))
+        .thenReturn(List.of(cancelledOrder(1L, null), cancelledOrder(2L, null)));
+    when(redisTemplate.execute(any(RedisScript.class), eq(List.of("order-expiry:lease")),
+        anyString(), anyString())).thenReturn(0L);
+    runInTransaction();
+
+    unpaidOrderExpiryJob.cancelUnpaidOrders();
+
+    verify(orderRepository, times(1)).cancelUnpaidOrdersBefore(any(), eq(2));
+    verify(inventoryHoldService).releaseAll(List.of(1L, 2L));
+  }
+
+  private void runInTransaction() {
+    when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+      TransactionCallback<?> action = invocation.getArgument(0);
+      return action.doInTransaction(null);
+    });
+  }
+
+  private Order cancelledOrder(Long orderId, String xenditInvoiceId) {
+    return Order.builder()
+        .orderId(orderId)
+        .status(OrderStatus.CANCELLED)
+        .xenditInvoiceId(xenditInvoiceId)
+        .build();
+  }
+}
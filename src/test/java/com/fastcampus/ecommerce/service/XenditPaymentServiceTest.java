@@ -0,0 +1,123 @@
+package com.fastcampus.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fastcampus.ecommerce.common.errors.InsufficientInventoryException;
+import com.fastcampus.ecommerce.entity.Order;
+import com.fastcampus.ecommerce.entity.OrderItem;
+import com.fastcampus.ecommerce.model.OrderStatus;
+import com.fastcampus.ecommerce.model.OutboxEventType;
+import com.fastcampus.ecommerce.model.PaymentNotification;
+import com.fastcampus.ecommerce.repository.OrderItemRepository;
+import com.fastcampus.ecommerce.repository.OrderRepository;
+import com.fastcampus.ecommerce.repository.UserRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class XenditPaymentServiceTest {
+
+  @Mock
+  private UserRepository userRepository;
+  @Mock
+  private OrderRepository orderRepository;
+  @Mock
+  private OrderItemRepository orderItemRepository;
+  @Mock
+  private InventoryHoldService inventoryHoldService;
+  @Mock
+  private OutboxService outboxService;
+
+  @InjectMocks
+  private XenditPaymentService paymentService;
+
+  private PaymentNotification paidNotification;
+
+  @BeforeEach
+  void setUp() {
+    paidNotification = new PaymentNotification();
+    paidNotification.setId("invoice-1");
+    paidNotification.setStatus("PAID");
+  }
+
+  @Test
+  void testHandleNotification_PaidCommitsHold() {
+    Order order = order(OrderStatus.PENDING);
+    when(inventoryHoldService.commit(1L)).thenReturn(true);
+
+    paymentService.handleNotification(paidNotification);
+
+    assertEquals(OrderStatus.PAID, order.getStatus());
+    verify(inventoryHoldService, never()).hold(anyLong(), any());
+    verify(outboxService).publish(OutboxEventType.ORDER_PAYMENT_SUCCEEDED_EMAIL, 1L);
+  }
+
+  @Test
+  void testHandleNotification_PaidAfterHoldExpiredTakesStockAgain() {
+    Order order = order(OrderStatus.PENDING);
+    when(inventoryHoldService.commit(1L)).thenReturn(false, true);
+    when(orderItemRepository.findByOrderId(1L)).thenReturn(List.of(
+        OrderItem.builder().productId(7L).quantity(2).build()));
+
+    paymentService.handleNotification(paidNotification);
+
+    assertEquals(OrderStatus.PAID, order.getStatus());
+    verify(inventoryHoldService).hold(1L, Map.of(7L, 2));
+  }
+
+  @Test
+  void testHandleNotification_PaidWithoutStockRequiresRefund() {
+    Order order = order(OrderStatus.PENDING);
+    when(inventoryHoldService.commit(1L)).thenReturn(false);
+    when(orderItemRepository.findByOrderId(1L)).thenReturn(List.of(
+        OrderItem.builder().productId(7L).quantity(2).build()));
+    doThrow(new InsufficientInventoryException(List.of(7L)))
+        .when(inventoryHoldService).hold(1L, Map.of(7L, 2));
+
+    paymentService.handleNotification(paidNotification);
+
+    assertEquals(OrderStatus.REFUND_REQUIRED, order.getStatus());
+    verify(outboxService, never()).publish(OutboxEventType.ORDER_PAYMENT_SUCCEEDED_EMAIL, 1L);
+  }
+
+  @Test
+  void testHandleNotification_PaidForCancelledOrderRequiresRefund() {
+    Order order = order(OrderStatus.CANCELLED);
+
+    paymentService.handleNotification(paidNotification);
+
+    assertEquals(OrderStatus.REFUND_REQUIRED, order.getStatus());
+    verify(inventoryHoldService, never()).commit(anyLong());
+  }
+
+  @Test
+  void testHandleNotification_RedeliveredPaidIsIgnored() {
+    Order order = order(OrderStatus.PAID);
+
+    paymentService.handleNotification(paidNotification);
+
+    assertEquals(OrderStatus.PAID, order.getStatus());
+    verify(inventoryHoldService, never()).commit(anyLong());
+    verify(outboxService, never()).publish(any(), anyLong());
+  }
+
+  private Order order(OrderStatus status) {
+    Order order = Order.builder().orderId(1L).status(status).xenditInvoiceId("invoice-1").build();
+    when(orderRepository.findByXenditInvoiceIdWithPessimisticLock("invoice-1"))
+        .thenReturn(Optional.of(order));
+    return order;
+  }
+}